@@ -0,0 +1,470 @@
+package com.bakuard.ecsEngine;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.collections.ReadableLinearStructure;
+import com.bakuard.ecsEngine.component.BlockSummary;
+import com.bakuard.ecsEngine.component.CompPool;
+import com.bakuard.ecsEngine.component.CompTypes;
+import com.bakuard.ecsEngine.component.CompsManager;
+import com.bakuard.ecsEngine.component.EntityFilter;
+import com.bakuard.ecsEngine.component.TagsManager;
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * План вычисления фильтра сущностей. Создается один раз для каждого фильтра и кэшируется миром.
+ * При каждом вычислении план упорядочивает обязательные компоненты и теги фильтра по возрастанию
+ * кол-ва сущностей, которые их имеют, и выбирает одну из двух стратегий:
+ * <ul>
+ *     <li>поточечная проверка - если самое селективное множество мало по сравнению с кол-вом сущностей
+ *     мира, обходятся только его элементы, а остальные условия фильтра проверяются поточечно в порядке
+ *     возрастания мощности;</li>
+ *     <li>поразрядная проверка - иначе, результат строится из самой селективной маски последовательными
+ *     побитовыми операциями с остальными масками. Вычисление прерывается, как только промежуточный
+ *     результат становится пустым.</li>
+ * </ul>
+ * Вложенные фильтры ({@link EntityFilter#anyOf(EntityFilter...)}, {@link EntityFilter#noneOf(EntityFilter...)})
+ * вычисляются собственными планами в те же маски-буферы, которые переиспользуются между вычислениями.
+ * <br/><br/>
+ * Теги фильтра, которых ещё нет в {@link TagsManager}, план не регистрирует, а считает пустыми множествами
+ * и пытается найти заново при каждом вычислении, пока они не появятся.
+ * <br/><br/>
+ * Экземпляр плана не является потокобезопасным и не допускает повторного входа.
+ */
+final class FilterPlan {
+
+    /**
+     * Поточечная проверка выбирается, если мощность самого селективного множества меньше кол-ва
+     * индексов сущностей, деленного на это значение (т.е. меньше кол-ва слов битовой маски).
+     */
+    private static final int SPARSE_PROBE_RATIO = 64;
+
+    private final EntityManager entityManager;
+    private final CompsManager compsManager;
+    private final TagsManager tagsManager;
+    private final EntityFilter filter;
+    private final int[] allCompTypeIds;
+    private final int[] noneCompTypeIds;
+    private final int[] anyCompTypeIds;
+    private final int[] allTagIds;
+    private final int[] noneTagIds;
+    private final int[] anyTagIds;
+    private int unresolvedTagsNumber;
+    private final FilterPlan[] anyOf;
+    private final FilterPlan[] noneOf;
+
+    private final Bits[] required;
+    private final BlockSummary[] requiredSummaries;
+    private final int[] requiredCardinalities;
+    private final Bits[] excluded;
+    private final Bits[] alternatives;
+    private boolean isSatisfiable;
+    private Bits ownResult;
+    private Bits alternativesResult;
+
+    FilterPlan(EntityFilter filter, EntityManager entityManager, CompsManager compsManager, TagsManager tagsManager) {
+        this.filter = filter;
+        this.entityManager = entityManager;
+        this.compsManager = compsManager;
+        this.tagsManager = tagsManager;
+        this.allCompTypeIds = typeIdsOf(filter.getAllComps());
+        this.noneCompTypeIds = typeIdsOf(filter.getNoneComps());
+        this.anyCompTypeIds = typeIdsOf(filter.getAnyComps());
+        this.allTagIds = tagIdsOf(filter.getAllTags());
+        this.noneTagIds = tagIdsOf(filter.getNoneTags());
+        this.anyTagIds = tagIdsOf(filter.getAnyTags());
+        this.anyOf = plansOf(filter.getAnyOf());
+        this.noneOf = plansOf(filter.getNoneOf());
+
+        this.required = new Bits[allCompTypeIds.length + allTagIds.length];
+        this.requiredSummaries = new BlockSummary[required.length];
+        this.requiredCardinalities = new int[required.length];
+        this.excluded = new Bits[noneCompTypeIds.length + noneTagIds.length];
+        this.alternatives = new Bits[anyCompTypeIds.length + anyTagIds.length];
+    }
+
+    EntityFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Записывает в result индексы всех живых сущностей, удовлетворяющих фильтру.
+     * @return result.
+     */
+    Bits select(Bits result) {
+        prepare();
+        selectPrepared(result);
+        release();
+        return result;
+    }
+
+    /**
+     * Передает в consumer индексы всех живых сущностей, удовлетворяющих фильтру, в порядке возрастания.
+     */
+    void forEach(IntConsumer consumer) {
+        prepare();
+        if(isSatisfiable) probe(null, consumer);
+        release();
+    }
+
+    /**
+     * Проверяет, удовлетворяет ли сущность фильтру, считая, что компонент с идентификатором типа
+     * absentCompTypeId и тег с идентификатором absentTagId у неё отсутствуют. В отличие от остальных методов, не использует
+     * маски-буферы плана и может вызываться в любой момент.
+     */
+    boolean matches(Entity entity, int absentCompTypeId, int absentTagId) {
+        resolveTagIds();
+        boolean result = entityManager.isAlive(entity);
+        for(int i = 0; i < allCompTypeIds.length && result; ++i) {
+            result = hasComp(entity, allCompTypeIds[i], absentCompTypeId);
+        }
+        for(int i = 0; i < allTagIds.length && result; ++i) {
+            result = hasTag(entity, allTagIds[i], absentTagId);
+        }
+        for(int i = 0; i < noneCompTypeIds.length && result; ++i) {
+            result = !hasComp(entity, noneCompTypeIds[i], absentCompTypeId);
+        }
+        for(int i = 0; i < noneTagIds.length && result; ++i) {
+            result = !hasTag(entity, noneTagIds[i], absentTagId);
+        }
+        if(result && alternatives.length > 0) {
+            result = false;
+            for(int i = 0; i < anyCompTypeIds.length && !result; ++i) {
+                result = hasComp(entity, anyCompTypeIds[i], absentCompTypeId);
+            }
+            for(int i = 0; i < anyTagIds.length && !result; ++i) {
+                result = hasTag(entity, anyTagIds[i], absentTagId);
+            }
+        }
+        if(result && anyOf.length > 0) {
+            result = false;
+            for(int i = 0; i < anyOf.length && !result; ++i) result = anyOf[i].matches(entity, absentCompTypeId, absentTagId);
+        }
+        for(int i = 0; i < noneOf.length && result; ++i) {
+            result = !noneOf[i].matches(entity, absentCompTypeId, absentTagId);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает идентификаторы типов всех компонентов, упомянутых в фильтре, включая вложенные фильтры.
+     * Идентификаторы могут повторяться.
+     */
+    int[] getMentionedCompTypeIds() {
+        int[] result = concat(concat(allCompTypeIds, noneCompTypeIds), anyCompTypeIds);
+        for(FilterPlan plan : anyOf) result = concat(result, plan.getMentionedCompTypeIds());
+        for(FilterPlan plan : noneOf) result = concat(result, plan.getMentionedCompTypeIds());
+        return result;
+    }
+
+    /**
+     * Проверяет, упомянут ли тег с указанным идентификатором в фильтре, включая вложенные фильтры.
+     */
+    boolean isMentionedTag(int tagId) {
+        resolveTagIds();
+        boolean result = contains(allTagIds, tagId) || contains(noneTagIds, tagId) || contains(anyTagIds, tagId);
+        for(int i = 0; i < anyOf.length && !result; ++i) result = anyOf[i].isMentionedTag(tagId);
+        for(int i = 0; i < noneOf.length && !result; ++i) result = noneOf[i].isMentionedTag(tagId);
+        return result;
+    }
+
+
+    /**
+     * Собирает маски фильтра и вложенных фильтров, упорядочивает обязательные маски по возрастанию
+     * мощности и определяет, может ли хоть одна сущность удовлетворять фильтру.
+     */
+    private void prepare() {
+        resolveTagIds();
+        isSatisfiable = true;
+        for(int i = 0; i < allCompTypeIds.length && isSatisfiable; ++i) {
+            CompPool pool = compsManager.getCompPool(allCompTypeIds[i]);
+            isSatisfiable = pool != null && pool.size() > 0;
+            if(isSatisfiable) {
+                required[i] = pool.getEntityIndexesMask();
+                requiredSummaries[i] = pool.getEntityIndexesSummary();
+                requiredCardinalities[i] = pool.size();
+            }
+        }
+        for(int i = 0; i < allTagIds.length && isSatisfiable; ++i) {
+            final int index = allCompTypeIds.length + i;
+            requiredCardinalities[index] = tagCardinality(allTagIds[i]);
+            isSatisfiable = requiredCardinalities[index] > 0;
+            if(isSatisfiable) {
+                required[index] = tagsManager.getTagMask(allTagIds[i]);
+                requiredSummaries[index] = tagsManager.getTagSummary(allTagIds[i]);
+            }
+        }
+
+        if(isSatisfiable && alternatives.length > 0) {
+            isSatisfiable = false;
+            for(int i = 0; i < anyCompTypeIds.length; ++i) {
+                CompPool pool = compsManager.getCompPool(anyCompTypeIds[i]);
+                alternatives[i] = pool != null && pool.size() > 0 ? pool.getEntityIndexesMask() : null;
+                isSatisfiable |= alternatives[i] != null;
+            }
+            for(int i = 0; i < anyTagIds.length; ++i) {
+                final int index = anyCompTypeIds.length + i;
+                alternatives[index] = tagCardinality(anyTagIds[i]) > 0 ? tagsManager.getTagMask(anyTagIds[i]) : null;
+                isSatisfiable |= alternatives[index] != null;
+            }
+        }
+
+        if(isSatisfiable && anyOf.length > 0) {
+            isSatisfiable = false;
+            for(FilterPlan plan : anyOf) {
+                plan.prepare();
+                isSatisfiable |= plan.isSatisfiable;
+            }
+        }
+
+        if(isSatisfiable) {
+            for(int i = 1; i < required.length; ++i) {
+                for(int j = i; j > 0 && requiredCardinalities[j] < requiredCardinalities[j - 1]; --j) {
+                    swapRequired(j, j - 1);
+                }
+            }
+
+            for(int i = 0; i < noneCompTypeIds.length; ++i) {
+                CompPool pool = compsManager.getCompPool(noneCompTypeIds[i]);
+                excluded[i] = pool != null ? pool.getEntityIndexesMask() : null;
+            }
+            for(int i = 0; i < noneTagIds.length; ++i) {
+                excluded[noneCompTypeIds.length + i] = noneTagIds[i] != -1 ? tagsManager.getTagMask(noneTagIds[i]) : null;
+            }
+            for(FilterPlan plan : noneOf) plan.prepare();
+        }
+    }
+
+    private void release() {
+        Arrays.fill(required, null);
+        Arrays.fill(requiredSummaries, null);
+        Arrays.fill(excluded, null);
+        Arrays.fill(alternatives, null);
+        for(FilterPlan plan : anyOf) plan.release();
+        for(FilterPlan plan : noneOf) plan.release();
+    }
+
+    private void selectPrepared(Bits result) {
+        final Bits alive = entityManager.getAliveEntitiesMask();
+        if(!isSatisfiable) {
+            result.clearAll();
+        } else if(required.length > 0 && requiredCardinalities[0] < alive.size() / SPARSE_PROBE_RATIO) {
+            result.clearAll().expandTo(alive.size());
+            probe(result, null);
+        } else {
+            scan(result);
+        }
+    }
+
+    private void scan(Bits result) {
+        final Bits alive = entityManager.getAliveEntitiesMask();
+        boolean isEmpty = false;
+        if(required.length == 0) {
+            entityManager.copyAliveEntitiesMaskTo(result);
+        } else {
+            result.clearAll().expandTo(alive.size()).or(required[0]);
+            for(int i = 1; i < required.length && !isEmpty; ++i) isEmpty = result.and(required[i]).isEmpty();
+            if(!isEmpty) isEmpty = result.and(alive).isEmpty();
+        }
+
+        if(!isEmpty && alternatives.length > 0) {
+            Bits union = alternativesResult(result.size());
+            for(Bits mask : alternatives) {
+                if(mask != null) union.or(mask);
+            }
+            isEmpty = result.and(union).isEmpty();
+        }
+
+        if(!isEmpty && anyOf.length > 0) {
+            Bits union = alternativesResult(result.size());
+            for(FilterPlan plan : anyOf) {
+                if(plan.isSatisfiable) union.or(plan.selectOwn(result.size()));
+            }
+            isEmpty = result.and(union).isEmpty();
+        }
+
+        for(int i = 0; i < excluded.length && !isEmpty; ++i) {
+            if(excluded[i] != null) result.andNot(excluded[i]);
+        }
+        for(int i = 0; i < noneOf.length && !isEmpty; ++i) {
+            if(noneOf[i].isSatisfiable) result.andNot(noneOf[i].selectOwn(result.size()));
+        }
+    }
+
+    /**
+     * Вычисляет фильтр в собственную маску-буфер этого плана. План должен быть подготовлен.
+     */
+    private Bits selectOwn(int size) {
+        if(ownResult == null) ownResult = new Bits(size);
+        selectPrepared(ownResult);
+        return ownResult;
+    }
+
+    private Bits alternativesResult(int size) {
+        if(alternativesResult == null) alternativesResult = new Bits(size);
+        return alternativesResult.clearAll().expandTo(size);
+    }
+
+    /**
+     * Обходит элементы самого селективного обязательного множества, пропуская блоки индексов, в которых
+     * у хотя бы одного обязательного множества нет элементов, и проверяет остальные условия поточечно.
+     * Результат записывается в result, если он не null, иначе передается в consumer.
+     */
+    private void probe(Bits result, IntConsumer consumer) {
+        final Bits alive = entityManager.getAliveEntitiesMask();
+        final Bits driver = required.length > 0 ? required[0] : alive;
+
+        int pilot = -1;
+        for(int i = 0; i < requiredSummaries.length; ++i) {
+            if(requiredSummaries[i] != null &&
+                    (pilot == -1 || requiredSummaries[i].nonEmptyBlocksNumber() < requiredSummaries[pilot].nonEmptyBlocksNumber())) {
+                pilot = i;
+            }
+        }
+
+        final int blocksNumber = (driver.size() + BlockSummary.BLOCK_SIZE - 1) >>> BlockSummary.BLOCK_SHIFT;
+        for(int block = nextCandidateBlock(pilot, 0, blocksNumber);
+            block != -1;
+            block = nextCandidateBlock(pilot, block + 1, blocksNumber)) {
+
+            final int blockEnd = (block + 1) << BlockSummary.BLOCK_SHIFT;
+            for(int entityIndex = driver.nextSetBit(block << BlockSummary.BLOCK_SHIFT);
+                entityIndex != -1 && entityIndex < blockEnd;
+                entityIndex = driver.nextSetBit(entityIndex + 1)) {
+
+                if(contains(alive, entityIndex) && matchesPrepared(entityIndex)) {
+                    if(result != null) result.set(entityIndex);
+                    else consumer.accept(entityIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверяет все условия фильтра, кроме принадлежности сущности к живым, по подготовленным маскам.
+     */
+    private boolean matchesPrepared(int entityIndex) {
+        boolean result = isSatisfiable;
+        for(int i = 0; i < required.length && result; ++i) result = contains(required[i], entityIndex);
+        for(int i = 0; i < excluded.length && result; ++i) {
+            result = excluded[i] == null || !contains(excluded[i], entityIndex);
+        }
+        if(result && alternatives.length > 0) {
+            result = false;
+            for(int i = 0; i < alternatives.length && !result; ++i) {
+                result = alternatives[i] != null && contains(alternatives[i], entityIndex);
+            }
+        }
+        if(result && anyOf.length > 0) {
+            result = false;
+            for(int i = 0; i < anyOf.length && !result; ++i) result = anyOf[i].matchesPrepared(entityIndex);
+        }
+        for(int i = 0; i < noneOf.length && result; ++i) result = !noneOf[i].matchesPrepared(entityIndex);
+        return result;
+    }
+
+    private int nextCandidateBlock(int pilot, int fromBlock, int blocksNumber) {
+        int result = -1;
+        for(int block = fromBlock; block < blocksNumber && result == -1; ++block) {
+            if(pilot != -1) {
+                block = requiredSummaries[pilot].nextNonEmptyBlock(block);
+                if(block == -1 || block >= blocksNumber) break;
+            }
+
+            boolean isCandidate = true;
+            for(int i = 0; i < requiredSummaries.length && isCandidate; ++i) {
+                isCandidate = requiredSummaries[i] == null || !requiredSummaries[i].isEmptyBlock(block);
+            }
+            if(isCandidate) result = block;
+        }
+        return result;
+    }
+
+    private boolean contains(Bits mask, int entityIndex) {
+        return mask.inBound(entityIndex) && mask.get(entityIndex);
+    }
+
+    private boolean hasComp(Entity entity, int compTypeId, int absentCompTypeId) {
+        return compTypeId != absentCompTypeId && compsManager.hasComp(entity, compTypeId);
+    }
+
+    private boolean hasTag(Entity entity, int tagId, int absentTagId) {
+        return tagId != -1 && tagId != absentTagId && tagsManager.hasTag(entity, tagId);
+    }
+
+    private void swapRequired(int i, int j) {
+        Bits mask = required[i];
+        required[i] = required[j];
+        required[j] = mask;
+
+        BlockSummary summary = requiredSummaries[i];
+        requiredSummaries[i] = requiredSummaries[j];
+        requiredSummaries[j] = summary;
+
+        int cardinality = requiredCardinalities[i];
+        requiredCardinalities[i] = requiredCardinalities[j];
+        requiredCardinalities[j] = cardinality;
+    }
+
+    private FilterPlan[] plansOf(ReadableLinearStructure<EntityFilter> filters) {
+        FilterPlan[] result = new FilterPlan[filters.size()];
+        for(int i = 0; i < result.length; ++i) {
+            result[i] = new FilterPlan(filters.get(i), entityManager, compsManager, tagsManager);
+        }
+        return result;
+    }
+
+    private int[] typeIdsOf(ReadableLinearStructure<Class<?>> compTypes) {
+        int[] result = new int[compTypes.size()];
+        for(int i = 0; i < result.length; ++i) result[i] = CompTypes.idOf(compTypes.get(i));
+        return result;
+    }
+
+    private int[] tagIdsOf(ReadableLinearStructure<String> tags) {
+        int[] result = new int[tags.size()];
+        for(int i = 0; i < result.length; ++i) {
+            result[i] = tagsManager.findTagId(tags.get(i));
+            if(result[i] == -1) ++unresolvedTagsNumber;
+        }
+        return result;
+    }
+
+    /**
+     * Ищет идентификаторы тегов фильтра, которые не были найдены ранее.
+     */
+    private void resolveTagIds() {
+        if(unresolvedTagsNumber > 0) {
+            resolveTagIds(allTagIds, filter.getAllTags());
+            resolveTagIds(noneTagIds, filter.getNoneTags());
+            resolveTagIds(anyTagIds, filter.getAnyTags());
+        }
+    }
+
+    private void resolveTagIds(int[] tagIds, ReadableLinearStructure<String> tags) {
+        for(int i = 0; i < tagIds.length; ++i) {
+            if(tagIds[i] == -1) {
+                tagIds[i] = tagsManager.findTagId(tags.get(i));
+                if(tagIds[i] != -1) --unresolvedTagsNumber;
+            }
+        }
+    }
+
+    private int tagCardinality(int tagId) {
+        return tagId != -1 ? tagsManager.getTagCardinality(tagId) : 0;
+    }
+
+    private int[] concat(int[] first, int[] second) {
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private boolean contains(int[] tagIds, int tagId) {
+        boolean result = false;
+        for(int i = 0; i < tagIds.length && !result; ++i) result = tagIds[i] == tagId;
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.bakuard.ecsEngine;
 
+import com.bakuard.ecsEngine.component.StorageMode;
 import com.bakuard.ecsEngine.event.EventManager;
 import com.bakuard.ecsEngine.gameLoop.GameLoop;
 import com.bakuard.ecsEngine.gameLoop.GameTime;
@@ -21,8 +22,9 @@ public final class Game {
     private Game(int numberUpdatePerSecond,
                  int maxFrameSkip,
                  int maxEventBufferSize,
-                 UncaughtExceptionHandler handler) {
-        world = new World();
+                 UncaughtExceptionHandler handler,
+                 StorageMode storageMode) {
+        world = new World(storageMode);
         systemManager = new SystemManager(this);
         gameLoop = new GameLoop(numberUpdatePerSecond, maxFrameSkip, this, handler);
         eventManager = new EventManager(maxEventBufferSize);
@@ -51,6 +53,7 @@ public final class Game {
         private int maxFrameSkip = 5;
         private int maxEventBufferSize = 250;
         private UncaughtExceptionHandler handler = (GameTime gameTime, Game game, Throwable exception) -> {};
+        private StorageMode storageMode = StorageMode.SPARSE_SETS;
 
         private Builder() {}
 
@@ -74,8 +77,13 @@ public final class Game {
             return this;
         }
 
+        public Builder setStorageMode(StorageMode storageMode) {
+            this.storageMode = storageMode;
+            return this;
+        }
+
         public Game build() {
-            return new Game(numberUpdatePerSecond, maxFrameSkip, maxEventBufferSize, handler);
+            return new Game(numberUpdatePerSecond, maxFrameSkip, maxEventBufferSize, handler, storageMode);
         }
     }
 }
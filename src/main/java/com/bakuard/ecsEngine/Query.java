@@ -0,0 +1,193 @@
+package com.bakuard.ecsEngine;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.component.CompPool;
+import com.bakuard.ecsEngine.component.CompTypes;
+import com.bakuard.ecsEngine.component.CompsManager;
+import com.bakuard.ecsEngine.component.EntityFilter;
+import com.bakuard.ecsEngine.component.TagsManager;
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Постоянная выборка сущностей, удовлетворяющих фильтру ({@link EntityFilter}). В отличие от
+ * {@link World#selectEntityIndexes(EntityFilter)}, результат не вычисляется заново при каждом обращении,
+ * а поддерживается в актуальном состоянии инкрементально - при добавлении и удалении компонентов и тегов,
+ * а также при создании и удалении сущностей через {@link World}. Поэтому стоимость чтения результата
+ * пропорциональна кол-ву сущностей в нем, а не кол-ву сущностей в мире.
+ * <br/><br/>
+ * Создается через {@link World#createQuery(EntityFilter)}. Если выборка больше не нужна, её следует
+ * удалить через {@link World#removeQuery(Query)}.
+ */
+public final class Query {
+
+    private final FilterPlan plan;
+    private final EntityManager entityManager;
+    private final CompsManager compsManager;
+    private final TagsManager tagsManager;
+    private final int[] compTypeIds;
+
+    private final CompPool.Listener[] compListeners;
+    private final TagsManager.Listener tagsListener;
+
+    private final Bits entityIndexes;
+    private long[] entities;
+    private int[] positions;
+    private int size;
+
+    Query(EntityFilter filter, EntityManager entityManager, CompsManager compsManager, TagsManager tagsManager) {
+        this.plan = new FilterPlan(filter, entityManager, compsManager, tagsManager);
+        this.entityManager = entityManager;
+        this.compsManager = compsManager;
+        this.tagsManager = tagsManager;
+        this.compTypeIds = Arrays.stream(plan.getMentionedCompTypeIds()).distinct().toArray();
+        this.entityIndexes = new Bits(128);
+        this.entities = new long[16];
+        this.positions = new int[128];
+
+        this.compListeners = new CompPool.Listener[compTypeIds.length];
+        for(int i = 0; i < compListeners.length; ++i) {
+            final int compTypeId = compTypeIds[i];
+            compListeners[i] = new CompPool.Listener() {
+                @Override
+                public void afterAttach(Entity entity) {
+                    update(entity, -1, -1);
+                }
+
+                @Override
+                public void beforeDetach(Entity entity) {
+                    update(entity, compTypeId, -1);
+                }
+            };
+            compsManager.addListener(CompTypes.typeOf(compTypeId), compListeners[i]);
+        }
+
+        this.tagsListener = new TagsManager.Listener() {
+            @Override
+            public void afterAttach(Entity entity, int tagId) {
+                if(plan.isMentionedTag(tagId)) update(entity, -1, -1);
+            }
+
+            @Override
+            public void beforeDetach(Entity entity, int tagId) {
+                if(plan.isMentionedTag(tagId)) update(entity, -1, tagId);
+            }
+        };
+        tagsManager.addListener(tagsListener);
+    }
+
+    public EntityFilter getFilter() {
+        return plan.getFilter();
+    }
+
+    /**
+     * Возвращает кол-во сущностей, которые удовлетворяют фильтру.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Entity entity) {
+        return entityIndexes.inBound(entity.index())
+                && entityIndexes.get(entity.index())
+                && entities[positions[entity.index()]] == entity.asLong();
+    }
+
+    public Entity getEntity(int index) {
+        return new Entity(getPackedEntity(index));
+    }
+
+    /**
+     * Возвращает сущность по её порядковому номеру в выборке в виде упакованного значения
+     * ({@link Entity#asLong()}).
+     */
+    public long getPackedEntity(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Expected: index >= 0 and index < size. Actual: index = %d, size = %d".formatted(index, size));
+        }
+        return entities[index];
+    }
+
+    /**
+     * Передает в consumer все сущности выборки. Во время обхода допускается изменять компоненты и теги
+     * текущей сущности, а также удалять её.
+     */
+    public void forEach(Consumer<Entity> consumer) {
+        for(int i = size - 1; i >= 0; --i) {
+            if(i < size) consumer.accept(new Entity(entities[i]));
+        }
+    }
+
+    /**
+     * Возвращает битовую маску индексов сущностей выборки. Возвращаемый объект является внутренним
+     * состоянием выборки и не должен изменяться.
+     */
+    public Bits getEntityIndexes() {
+        return entityIndexes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Query{filter: ").append(plan.getFilter()).append(", entities: [");
+        for(int i = 0; i < size; ++i) {
+            if(i > 0) sb.append(',');
+            sb.append(new Entity(entities[i]));
+        }
+        return sb.append("]}").toString();
+    }
+
+
+    void onEntityCreated(Entity entity) {
+        update(entity, -1, -1);
+    }
+
+    void onEntityRemoved(Entity entity) {
+        removeIndex(entity.index());
+    }
+
+    void populate(Bits selectedEntityIndexes) {
+        for(int i = selectedEntityIndexes.nextSetBit(0); i != -1; i = selectedEntityIndexes.nextSetBit(i + 1)) {
+            add(entityManager.getEntityByIndex(i));
+        }
+    }
+
+    void dispose() {
+        for(int i = 0; i < compListeners.length; ++i) {
+            compsManager.removeListener(CompTypes.typeOf(compTypeIds[i]), compListeners[i]);
+        }
+        tagsManager.removeListener(tagsListener);
+    }
+
+
+    private void update(Entity entity, int detachingCompTypeId, int detachingTagId) {
+        final boolean matches = plan.matches(entity, detachingCompTypeId, detachingTagId);
+        final boolean contains = entityIndexes.inBound(entity.index()) && entityIndexes.get(entity.index());
+        if(matches && !contains) add(entity);
+        else if(!matches && contains) removeIndex(entity.index());
+    }
+
+    private void add(Entity entity) {
+        final int entityIndex = entity.index();
+        if(size == entities.length) entities = Arrays.copyOf(entities, size + (size >>> 1));
+        if(entityIndex >= positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(entityIndex + 1, positions.length + (positions.length >>> 1)));
+        }
+
+        entities[size] = entity.asLong();
+        positions[entityIndex] = size++;
+        entityIndexes.growToIndex(entityIndex).set(entityIndex);
+    }
+
+    private void removeIndex(int entityIndex) {
+        if(entityIndexes.inBound(entityIndex) && entityIndexes.get(entityIndex)) {
+            final int position = positions[entityIndex];
+            final long last = entities[--size];
+            entities[position] = last;
+            positions[Entity.indexOf(last)] = position;
+            entityIndexes.clear(entityIndex);
+        }
+    }
+}
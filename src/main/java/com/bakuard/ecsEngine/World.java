@@ -1,32 +1,68 @@
 package com.bakuard.ecsEngine;
 
 import com.bakuard.collections.Bits;
+import com.bakuard.collections.DynamicArray;
+import com.bakuard.ecsEngine.component.ChangeTracker;
 import com.bakuard.ecsEngine.component.CompPool;
+import com.bakuard.ecsEngine.component.CompRecycler;
 import com.bakuard.ecsEngine.component.CompsManager;
+import com.bakuard.ecsEngine.component.ArchetypeStorage;
+import com.bakuard.ecsEngine.component.BlockSummary;
 import com.bakuard.ecsEngine.component.EntityFilter;
+import com.bakuard.ecsEngine.component.Group;
+import com.bakuard.ecsEngine.component.HashIndex;
+import com.bakuard.ecsEngine.component.SortedIndex;
+import com.bakuard.ecsEngine.component.StorageMode;
 import com.bakuard.ecsEngine.component.TagsManager;
+import com.bakuard.ecsEngine.component.View2;
+import com.bakuard.ecsEngine.component.View3;
 import com.bakuard.ecsEngine.entity.Entity;
 import com.bakuard.ecsEngine.entity.EntityManager;
 
-public final class World {
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+public final class World implements AutoCloseable {
+
+    private static final int MAX_CACHED_FILTER_PLANS = 256;
+
 
     private final EntityManager entityManager;
     private final CompsManager compsManager;
     private final TagsManager tagsManager;
+    private final DynamicArray<Query> queries;
+    private final LinkedHashMap<EntityFilter, FilterPlan> filterPlans;
 
     public World() {
+        this(StorageMode.SPARSE_SETS);
+    }
+
+    public World(StorageMode storageMode) {
         this.entityManager = new EntityManager();
-        this.compsManager = new CompsManager(entityManager);
+        this.compsManager = new CompsManager(entityManager, storageMode);
         this.tagsManager = new TagsManager(entityManager);
+        this.queries = new DynamicArray<>();
+        this.filterPlans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<EntityFilter, FilterPlan> eldest) {
+                return size() > MAX_CACHED_FILTER_PLANS;
+            }
+        };
     }
 
 
     public Entity create() {
-        return entityManager.create();
+        Entity entity = entityManager.create();
+        for(int i = 0; i < queries.size(); ++i) queries.get(i).onEntityCreated(entity);
+        return entity;
     }
 
     public Entity create(Object... comps) {
-        Entity entity = entityManager.create();
+        Entity entity = create();
         compsManager.attachComps(entity, comps);
         return entity;
     }
@@ -39,6 +75,7 @@ public final class World {
         compsManager.detachAllComps(entity);
         tagsManager.detachAllTags(entity);
         entityManager.remove(entity);
+        for(int i = 0; i < queries.size(); ++i) queries.get(i).onEntityRemoved(entity);
     }
 
     public boolean isAlive(Entity entity) {
@@ -54,6 +91,10 @@ public final class World {
        compsManager.attachComps(entity, comps);
     }
 
+    public void attachComps(Entity[] entities, Object[] comps) {
+        compsManager.attachComps(entities, comps);
+    }
+
     public <T> void detachComp(Entity entity, Class<T> compType) {
         compsManager.detachComp(entity, compType);
     }
@@ -62,6 +103,10 @@ public final class World {
         compsManager.detachComps(entity, compTypes);
     }
 
+    public void detachComps(Entity[] entities, Class<?> compType) {
+        compsManager.detachComps(entities, compType);
+    }
+
     public void detachAllComps(Entity entity) {
         compsManager.detachAllComps(entity);
     }
@@ -75,10 +120,22 @@ public final class World {
         return compsManager.getComp(entity, compType);
     }
 
+    /**
+     * Аналог {@link #getComp(Entity, Class)}, принимающий идентификатор типа компонента
+     * ({@link com.bakuard.ecsEngine.component.CompTypes#idOf(Class)}).
+     */
+    public <T> T getComp(Entity entity, int compTypeId) {
+        return compsManager.getComp(entity, compTypeId);
+    }
+
     public <T> boolean hasComp(Entity entity, Class<T> compType) {
         return compsManager.hasComp(entity, compType);
     }
 
+    public boolean hasComp(Entity entity, int compTypeId) {
+        return compsManager.hasComp(entity, compTypeId);
+    }
+
     public boolean hasAllComps(Entity entity, Class<?>... compTypes) {
         return compsManager.hasAllComps(entity, compTypes);
     }
@@ -96,6 +153,19 @@ public final class World {
         tagsManager.attachTag(entity, tag);
     }
 
+    /**
+     * Возвращает идентификатор тега, который можно передавать в методы работы с тегами вместо имени
+     * тега, чтобы не вычислять хеш строки при каждом вызове. Если тегу ещё не был назначен
+     * идентификатор - назначает. Идентификатор не меняется до конца жизни мира.
+     */
+    public int getTagId(String tag) {
+        return tagsManager.getTagId(tag);
+    }
+
+    public void attachTag(Entity entity, int tagId) {
+        tagsManager.attachTag(entity, tagId);
+    }
+
     public void attachTags(Entity entity, String... tags) {
         tagsManager.attachTags(entity, tags);
     }
@@ -104,6 +174,10 @@ public final class World {
         tagsManager.detachTag(entity, tag);
     }
 
+    public void detachTag(Entity entity, int tagId) {
+        tagsManager.detachTag(entity, tagId);
+    }
+
     public void detachTags(Entity entity, String... tags) {
         tagsManager.detachTags(entity, tags);
     }
@@ -121,6 +195,10 @@ public final class World {
         return tagsManager.hasTag(entity, tag);
     }
 
+    public boolean hasTag(Entity entity, int tagId) {
+        return tagsManager.hasTag(entity, tagId);
+    }
+
     public boolean hasAllTags(Entity entity, String... tags) {
         return tagsManager.hasAllTags(entity, tags);
     }
@@ -155,15 +233,62 @@ public final class World {
         return haveEqualTags(firstEntity, secondEntity) && haveEqualComps(firstEntity, secondEntity);
     }
 
+    /**
+     * Создает постоянную выборку сущностей, удовлетворяющих фильтру (подробнее см. {@link Query}).
+     * @throws UnsupportedOperationException если пул одного из типов компонентов фильтра не поддерживает
+     *                                       слушателей ({@link CompPool#addListener(CompPool.Listener)}).
+     */
+    public Query createQuery(EntityFilter entityFilter) {
+        Query query = new Query(entityFilter, entityManager, compsManager, tagsManager);
+        query.populate(selectEntityIndexes(entityFilter));
+        queries.addLast(query);
+        return query;
+    }
+
+    /**
+     * Прекращает обновление выборки. После вызова этого метода выборка больше не отражает состояние мира.
+     */
+    public void removeQuery(Query query) {
+        for(int i = 0; i < queries.size(); ++i) {
+            if(queries.get(i) == query) {
+                queries.quickRemove(i);
+                query.dispose();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Возвращает маску индексов всех живых сущностей, удовлетворяющих фильтру. Порядок применения
+     * условий фильтра выбирается при каждом вызове исходя из кол-ва сущностей, имеющих обязательные
+     * компоненты и теги: для редких компонентов и тегов проверяются только сущности, которые их имеют,
+     * иначе результат вычисляется побитовыми операциями над масками, начиная с самой селективной.
+     * Планы вычисления последних {@value #MAX_CACHED_FILTER_PLANS} использованных фильтров кэшируются.
+     * Для фильтров, которые вычисляются постоянно, рекомендуется использовать {@link #createQuery(EntityFilter)}.
+     */
     public Bits selectEntityIndexes(EntityFilter entityFilter) {
-        Bits entityIndexes = entityManager.createAliveEntitiesMask();
+        return planOf(entityFilter).select(new Bits(entityManager.getAliveEntitiesMask().size()));
+    }
 
-        compsManager.excludeEntityIndexesWithout(entityIndexes, entityFilter.getAllComps());
-        tagsManager.excludeEntityIndexesWithout(entityIndexes, entityFilter.getAllTags());
-        compsManager.excludeEntityIndexesWith(entityIndexes, entityFilter.getNoneComps());
-        tagsManager.excludeEntityIndexesWith(entityIndexes, entityFilter.getNoneTags());
+    /**
+     * Аналог {@link #selectEntityIndexes(EntityFilter)}, который записывает результат в переданную маску
+     * вместо создания новой. Позволяет повторно использовать одну и ту же маску между кадрами.
+     * @return result.
+     */
+    public Bits selectEntityIndexes(EntityFilter entityFilter, Bits result) {
+        return planOf(entityFilter).select(result);
+    }
 
-        return entityIndexes;
+    /**
+     * Передает в consumer индексы всех живых сущностей, удовлетворяющих фильтру, в порядке возрастания,
+     * не создавая промежуточную маску. Блоки индексов (см. {@link BlockSummary}), в которых хотя бы у
+     * одного обязательного компонента или тега нет ни одной сущности, пропускаются целиком. Внутри
+     * остальных блоков обход ведется по самому селективному обязательному компоненту или тегу, остальные
+     * маски проверяются поточечно. Во время обхода нельзя менять компоненты и теги, а также вычислять
+     * этот же фильтр.
+     */
+    public void forEachEntityIndex(EntityFilter entityFilter, IntConsumer consumer) {
+        planOf(entityFilter).forEach(consumer);
     }
 
 
@@ -175,4 +300,91 @@ public final class World {
     public <T, S extends CompPool> S getCompPool(Class<T> compType) {
         return compsManager.getCompPool(compType);
     }
+
+    public <T> CompRecycler<T> enableRecycling(Class<T> compType,
+                                               Supplier<T> factory,
+                                               Consumer<T> resetter,
+                                               int maxSize) {
+        return compsManager.enableRecycling(compType, factory, resetter, maxSize);
+    }
+
+    public <T> T obtainComp(Class<T> compType) {
+        return compsManager.obtainComp(compType);
+    }
+
+    public <T> T attachRecycledComp(Entity entity, Class<T> compType) {
+        return compsManager.attachRecycledComp(entity, compType);
+    }
+
+    /**
+     * Освобождает неиспользуемую память всех пулов компонентов, масок тегов и менеджера сущностей.
+     * Имеет смысл вызывать после удаления большого кол-ва сущностей.
+     */
+    public void trim() {
+        compsManager.trim();
+        tagsManager.trim();
+        entityManager.trim();
+    }
+
+    public void setAutoTrim(boolean autoTrim) {
+        compsManager.setAutoTrim(autoTrim);
+    }
+
+    public ChangeTracker trackChanges(Class<?> compType) {
+        return compsManager.trackChanges(compType);
+    }
+
+    public <T, K> HashIndex<T, K> createHashIndex(Class<T> compType, Function<T, K> keyExtractor) {
+        return compsManager.createHashIndex(compType, keyExtractor);
+    }
+
+    public <T, K extends Comparable<? super K>> SortedIndex<T, K> createSortedIndex(Class<T> compType,
+                                                                                 Function<T, K> keyExtractor) {
+        return compsManager.createSortedIndex(compType, keyExtractor);
+    }
+
+    public void markChanged(Entity entity, Class<?> compType) {
+        compsManager.markChanged(entity, compType);
+    }
+
+    public <A, B> View2<A, B> createView(Class<A> firstCompType, Class<B> secondCompType) {
+        return compsManager.createView(firstCompType, secondCompType);
+    }
+
+    public <A, B, C> View3<A, B, C> createView(Class<A> firstCompType,
+                                               Class<B> secondCompType,
+                                               Class<C> thirdCompType) {
+        return compsManager.createView(firstCompType, secondCompType, thirdCompType);
+    }
+
+    public Group createGroup(Class<?>... compTypes) {
+        return compsManager.createGroup(compTypes);
+    }
+
+    public StorageMode getStorageMode() {
+        return compsManager.getStorageMode();
+    }
+
+    public ArchetypeStorage getArchetypeStorage() {
+        return compsManager.getArchetypeStorage();
+    }
+
+    /**
+     * Закрывает пулы компонентов этого мира, удерживающие ресурсы (например,
+     * {@link com.bakuard.ecsEngine.component.OffHeapStructPool}). Вызывается, когда мир больше не нужен.
+     */
+    @Override
+    public void close() {
+        compsManager.close();
+    }
+
+
+    private FilterPlan planOf(EntityFilter entityFilter) {
+        FilterPlan plan = filterPlans.get(entityFilter);
+        if(plan == null) {
+            plan = new FilterPlan(entityFilter, entityManager, compsManager, tagsManager);
+            filterPlans.put(entityFilter, plan);
+        }
+        return plan;
+    }
 }
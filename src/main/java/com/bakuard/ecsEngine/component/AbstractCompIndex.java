@@ -0,0 +1,161 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Общая часть вторичных индексов по значениям компонентов ({@link HashIndex}, {@link SortedIndex}).
+ * Индекс сопоставляет каждому ключу, извлеченному из компонента, множество сущностей с этим ключом и
+ * поддерживается в актуальном состоянии через слушателя пула: при добавлении, замене (в т.ч. отмеченной
+ * через {@link CompPool#markChanged(Entity)}) и удалении компонентов. Изменение полей компонента "на месте"
+ * без вызова {@link CompPool#markChanged(Entity)} индексом не отслеживается.
+ * <br/><br/>
+ * Сущности, для компонентов которых извлеченный ключ равен null, не индексируются.
+ */
+abstract class AbstractCompIndex<T, K> {
+
+    private final CompPool pool;
+    private final Function<T, K> keyExtractor;
+    private final Map<K, Entry> entries;
+    private final CompPool.Listener listener;
+    private Object[] keys;
+    private long[] entities;
+    private int[] positions;
+
+    AbstractCompIndex(CompPool pool, Function<T, K> keyExtractor, Map<K, Entry> entries) {
+        this.pool = pool;
+        this.keyExtractor = Objects.requireNonNull(keyExtractor);
+        this.entries = entries;
+        this.keys = new Object[16];
+        this.entities = new long[16];
+        this.positions = new int[16];
+        Arrays.fill(positions, -1);
+
+        this.listener = new CompPool.Listener() {
+            @Override
+            public void afterAttach(Entity entity) {
+                add(entity, keyExtractor.apply(pool.getComp(entity)));
+            }
+
+            @Override
+            public void afterChange(Entity entity) {
+                K key = keyExtractor.apply(pool.getComp(entity));
+                if(!isIndexed(entity.index()) || !Objects.equals(key, keys[entity.index()])) {
+                    remove(entity.index());
+                    add(entity, key);
+                }
+            }
+
+            @Override
+            public void beforeDetach(Entity entity) {
+                remove(entity.index());
+            }
+        };
+        pool.addListener(listener);
+        pool.forEach((Entity entity, T comp) -> add(entity, keyExtractor.apply(comp)));
+    }
+
+    public CompPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Возвращает кол-во различных ключей в индексе.
+     */
+    public int keysNumber() {
+        return entries.size();
+    }
+
+    /**
+     * Прекращает обновление индекса.
+     */
+    public void stop() {
+        pool.removeListener(listener);
+    }
+
+
+    Entry entryOf(K key) {
+        return key != null ? entries.get(key) : null;
+    }
+
+    int size(Entry entry) {
+        return entry != null ? entry.size : 0;
+    }
+
+    Entity entityAt(Entry entry, int position) {
+        return new Entity(entities[entry.entityIndexes[position]]);
+    }
+
+    long packedEntityAt(Entry entry, int position) {
+        return entities[entry.entityIndexes[position]];
+    }
+
+    void forEach(Entry entry, Consumer<Entity> consumer) {
+        for(int i = size(entry) - 1; i >= 0; --i) {
+            if(i < entry.size) consumer.accept(entityAt(entry, i));
+        }
+    }
+
+    void select(Entry entry, Bits result) {
+        for(int i = 0; i < size(entry); ++i) result.set(entry.entityIndexes[i]);
+    }
+
+    Bits prepareResult(Bits result) {
+        return result.clearAll().expandTo(pool.getEntityIndexesMask().size());
+    }
+
+
+    private boolean isIndexed(int entityIndex) {
+        return entityIndex < positions.length && positions[entityIndex] != -1;
+    }
+
+    private void add(Entity entity, K key) {
+        if(key == null) return;
+
+        final int entityIndex = entity.index();
+        if(entityIndex >= positions.length) {
+            final int oldLength = positions.length;
+            final int newLength = Math.max(entityIndex + 1, oldLength + (oldLength >>> 1));
+            keys = Arrays.copyOf(keys, newLength);
+            entities = Arrays.copyOf(entities, newLength);
+            positions = Arrays.copyOf(positions, newLength);
+            Arrays.fill(positions, oldLength, newLength, -1);
+        }
+
+        Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+        if(entry.size == entry.entityIndexes.length) {
+            entry.entityIndexes = Arrays.copyOf(entry.entityIndexes, entry.size << 1);
+        }
+        entry.entityIndexes[entry.size] = entityIndex;
+        keys[entityIndex] = key;
+        entities[entityIndex] = entity.asLong();
+        positions[entityIndex] = entry.size++;
+    }
+
+    private void remove(int entityIndex) {
+        if(!isIndexed(entityIndex)) return;
+
+        final K key = (K) keys[entityIndex];
+        final Entry entry = entries.get(key);
+        final int position = positions[entityIndex];
+        final int last = entry.entityIndexes[--entry.size];
+        entry.entityIndexes[position] = last;
+        positions[last] = position;
+        if(entry.size == 0) entries.remove(key);
+
+        keys[entityIndex] = null;
+        positions[entityIndex] = -1;
+    }
+
+
+    static final class Entry {
+        private int[] entityIndexes = new int[2];
+        private int size;
+    }
+}
@@ -0,0 +1,663 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Общая часть всех пулов компонентов построенных по принципу разреженного множества: разреженный
+ * массив (индекс сущности -> индекс в плотном массиве), плотный массив сущностей и битовая маска
+ * индексов сущностей. Наследники отвечают только за хранение самих компонентов в плотном массиве,
+ * что позволяет хранить компоненты как в массиве ссылок, так и в массивах примитивов.
+ */
+public abstract class AbstractSparseSet implements CompPool {
+
+    private static final int INIT_CAPACITY = 10;
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final Listener[] EMPTY_LISTENERS = new Listener[0];
+    private static final int MIN_PARALLEL_CHUNK = 1024;
+
+
+    private int[][] entityIndexToComp;
+    private int[] pagesOccupancy;
+    private long[] entities;
+    private int size;
+    private final Bits entityIndexes;
+    private final BlockSummary entityIndexesSummary;
+    private boolean autoTrim;
+
+    private int actualModCount;
+    private int sortCursor;
+    private final AtomicInteger parallelPasses;
+    private Listener[] listeners;
+    Group owner;
+
+    protected AbstractSparseSet() {
+        listeners = EMPTY_LISTENERS;
+        parallelPasses = new AtomicInteger();
+        entityIndexToComp = new int[1][];
+        pagesOccupancy = new int[1];
+        entities = new long[INIT_CAPACITY];
+        entityIndexes = new Bits(128);
+        entityIndexesSummary = new BlockSummary();
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        final boolean isNew = !hasComp(entity);
+        setBoxedComp(attachEntity(entity), component);
+        notifyAttached(entity, isNew);
+    }
+
+    /**
+     * Добавляет компоненты comps[from..to) сущностям entities[from..to). Емкость плотных массивов и
+     * битовой маски увеличивается один раз для всей пачки.
+     */
+    @Override
+    public void attachComps(Entity[] entities, Object[] comps, int from, int to) {
+        beginModification();
+
+        int maxEntityIndex = 0;
+        for(int i = from; i < to; ++i) maxEntityIndex = Math.max(maxEntityIndex, entities[i].index());
+        ensureDenseCapacity(size + (to - from));
+        entityIndexes.growToIndex(maxEntityIndex);
+
+        for(int i = from; i < to; ++i) {
+            final Entity entity = entities[i];
+            int compIndex = getDenseIndex(entity);
+            final boolean isNew = compIndex == -1;
+            if(isNew) compIndex = appendEntity(entity);
+            setBoxedComp(compIndex, comps[i]);
+            notifyAttached(entity, isNew);
+        }
+    }
+
+    @Override
+    public void detachComp(Entity entity) {
+        beginModification();
+
+        if(hasComp(entity)) {
+            for(Listener listener : listeners) listener.beforeDetach(entity);
+
+            final int compIndex = getDenseIndex(entity);
+            final int lastCompsIndex = --size;
+
+            setDenseIndex(Entity.indexOf(entities[lastCompsIndex]), compIndex);
+            setDenseIndex(entity.index(), -1);
+
+            moveComp(lastCompsIndex, compIndex);
+            entities[compIndex] = entities[lastCompsIndex];
+
+            entityIndexes.clear(entity.index());
+            entityIndexesSummary.onClear(entity.index());
+
+            if(autoTrim) {
+                freePageIfEmpty(entity.index() >>> PAGE_SHIFT);
+                if(size < entities.length >>> 2) shrinkDenseArrays(calculateCapacity(size));
+            }
+        }
+    }
+
+    /**
+     * Уменьшает емкость плотных массивов до текущего кол-ва компонентов, освобождает пустые страницы
+     * разреженного массива и уменьшает битовую маску индексов сущностей до максимального индекса
+     * сущности в пуле. Маска уменьшается на месте, поэтому ранее полученная через
+     * {@link #getEntityIndexesMask()} маска остается актуальной.
+     */
+    @Override
+    public void trim() {
+        beginModification();
+
+        shrinkDenseArrays(size);
+
+        int lastPageIndex = 0;
+        for(int i = 0; i < entityIndexToComp.length; ++i) {
+            freePageIfEmpty(i);
+            if(entityIndexToComp[i] != null) lastPageIndex = i;
+        }
+        entityIndexToComp = Arrays.copyOf(entityIndexToComp, lastPageIndex + 1);
+        pagesOccupancy = Arrays.copyOf(pagesOccupancy, lastPageIndex + 1);
+
+        int maxEntityIndex = 0;
+        for(int i = 0; i < size; ++i) maxEntityIndex = Math.max(maxEntityIndex, Entity.indexOf(entities[i]));
+        entityIndexes.compressTo(Math.max(128, maxEntityIndex + 1));
+    }
+
+    /**
+     * Включает или выключает автоматическое уменьшение емкости пула. Если режим включен, то при удалении
+     * компонентов пул освобождает опустевшие страницы разреженного массива, а также уменьшает емкость
+     * плотных массивов, как только они оказываются заполнены менее чем на четверть. Новая емкость в
+     * полтора раза больше кол-ва компонентов, поэтому чередование добавления и удаления компонентов
+     * около границы не приводит к постоянным перевыделениям памяти. По умолчанию режим выключен.
+     */
+    public void setAutoTrim(boolean autoTrim) {
+        this.autoTrim = autoTrim;
+    }
+
+    public boolean isAutoTrim() {
+        return autoTrim;
+    }
+
+    public void swap(Entity first, Entity second) {
+        beginModification();
+
+        final int firstIndex = getDenseIndex(first);
+        final int secondIndex = getDenseIndex(second);
+        if(firstIndex > -1 && secondIndex > -1) {
+            setDenseIndex(first.index(), secondIndex);
+            setDenseIndex(second.index(), firstIndex);
+            swapEntities(firstIndex, secondIndex);
+        }
+    }
+
+    /**
+     * Упорядочивает плотный массив по возрастанию индексов сущностей. После этого обход нескольких пулов
+     * в порядке плотного массива одного из них обращается к разреженным массивам остальных пулов
+     * почти последовательно. Если пул принадлежит группе ({@link Group}), сортируется только часть
+     * плотного массива вне группы.
+     */
+    public void sortByEntityIndex() {
+        sort(this::compareEntityIndexes);
+    }
+
+    /**
+     * Упорядочивает плотный массив по компонентам с помощью comparator. Каждая сущность сохраняет свой
+     * компонент. Если пул принадлежит группе ({@link Group}), сортируется только часть плотного массива
+     * вне группы.
+     */
+    public <T> void sortByComps(Comparator<T> comparator) {
+        sort((first, second) -> comparator.compare((T) getBoxedComp(first), (T) getBoxedComp(second)));
+    }
+
+    /**
+     * Выполняет не более maxSteps шагов пузырьковой сортировки плотного массива по возрастанию индексов
+     * сущностей, продолжая с того места, где остановился предыдущий вызов. Предназначен для постепенного
+     * восстановления порядка плотного массива - например, по несколько шагов на каждый кадр.
+     * @return кол-во выполненных перестановок.
+     */
+    public int partialSortByEntityIndex(int maxSteps) {
+        final int from = sortedRangeStart();
+        int swaps = 0;
+        if(size - from > 1) {
+            for(int i = 0; i < maxSteps; ++i) {
+                if(sortCursor < from || sortCursor >= size - 1) sortCursor = from;
+                if(compareEntityIndexes(sortCursor, sortCursor + 1) > 0) {
+                    swapDense(sortCursor, sortCursor + 1);
+                    ++swaps;
+                }
+                ++sortCursor;
+            }
+        }
+        return swaps;
+    }
+
+    /**
+     * Возвращает индекс компонента указанной сущности в плотном массиве или -1, если сущность
+     * не имеет компонента в этом пуле.
+     */
+    public int getDenseIndex(Entity entity) {
+        return getDenseIndex(entity.index());
+    }
+
+    /**
+     * Аналог {@link #getDenseIndex(Entity)}, принимающий индекс сущности.
+     */
+    public int getDenseIndex(int entityIndex) {
+        final int pageIndex = entityIndex >>> PAGE_SHIFT;
+        final int[] page = pageIndex < entityIndexToComp.length ? entityIndexToComp[pageIndex] : null;
+        return page != null ? page[entityIndex & PAGE_MASK] : -1;
+    }
+
+    /**
+     * Создает и возвращает объект сущности, компонент которой хранится в указанной ячейке плотного массива.
+     * Если объект сущности не нужен, используйте {@link #getPackedEntityFromDensityArray(int)}.
+     */
+    public Entity getEntityFromDensityArray(int index) {
+        assertInBound(index);
+        return new Entity(entities[index]);
+    }
+
+    /**
+     * Возвращает сущность, компонент которой хранится в указанной ячейке плотного массива, в виде
+     * упакованного значения ({@link Entity#asLong()}).
+     */
+    public long getPackedEntityFromDensityArray(int index) {
+        assertInBound(index);
+        return entities[index];
+    }
+
+    public <T> T getCompFromDensityArray(int index) {
+        assertInBound(index);
+        return (T)getBoxedComp(index);
+    }
+
+    @Override
+    public <T> T getComp(Entity entity) {
+        final int compIndex = getDenseIndex(entity);
+        return compIndex > -1 ? (T)getBoxedComp(compIndex) : null;
+    }
+
+    @Override
+    public boolean hasComp(Entity entity) {
+        return getDenseIndex(entity) != -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public <T> void forEach(BiConsumer<Entity, T> consumer) {
+        for(int i = size - 1; i >= 0; --i) {
+            consumer.accept(new Entity(entities[i]), (T) getBoxedComp(i));
+        }
+    }
+
+    /**
+     * Аналог {@link #forEach(BiConsumer)}, который не создает объекты сущностей, а передает в consumer
+     * индекс и поколение каждой сущности.
+     */
+    public <T> void forEachPacked(PackedEntryConsumer<T> consumer) {
+        for(int i = size - 1; i >= 0; --i) {
+            final long entity = entities[i];
+            consumer.accept(Entity.indexOf(entity), Entity.generationOf(entity), (T) getBoxedComp(i));
+        }
+    }
+
+    /**
+     * Параллельно обходит все компоненты пула в пуле потоков {@link ForkJoinPool#commonPool()}. Подробнее
+     * см. {@link #parallelForEachDenseIndex(ForkJoinPool, IntConsumer)}.
+     */
+    @Override
+    public <T> void parallelForEach(BiConsumer<Entity, T> consumer) {
+        parallelForEachDenseIndex(ForkJoinPool.commonPool(),
+                index -> consumer.accept(new Entity(entities[index]), (T) getBoxedComp(index)));
+    }
+
+    /**
+     * Параллельно передает в consumer индексы всех занятых ячеек плотного массива. Плотный массив
+     * разбивается на непрерывные диапазоны, которые обрабатываются задачами forkJoinPool. Метод
+     * возвращает управление после обработки всех ячеек.
+     * <br/><br/>
+     * Во время обхода допускается изменять значения компонентов (например, через
+     * {@link IntPool#setIntInDensityArray(int, int)}), но любое структурное изменение пула (добавление
+     * или удаление компонентов, перестановка ячеек), начатое из любого потока после начала обхода и до его
+     * завершения, гарантированно отклоняется с {@link ConcurrentModificationException}.
+     */
+    public void parallelForEachDenseIndex(ForkJoinPool forkJoinPool, IntConsumer consumer) {
+        final int chunkSize = Math.max(MIN_PARALLEL_CHUNK, size / (forkJoinPool.getParallelism() * 4));
+        parallelPasses.incrementAndGet();
+        try {
+            forkJoinPool.invoke(new ForEachTask(0, size, chunkSize, consumer));
+        } finally {
+            parallelPasses.decrementAndGet();
+        }
+    }
+
+    @Override
+    public <T> EntryIterator<T> iterator() {
+        return new EntryIteratorImpl<T>(actualModCount, size);
+    }
+
+    @Override
+    public Bits getEntityIndexesMask() {
+        return entityIndexes;
+    }
+
+    @Override
+    public BlockSummary getEntityIndexesSummary() {
+        return entityIndexesSummary;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        for(int i = 0; i < listeners.length; ++i) {
+            if(listeners[i] == listener) {
+                Listener[] newListeners = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+                listeners = newListeners;
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void markChanged(Entity entity) {
+        if(hasComp(entity)) notifyChanged(entity);
+    }
+
+    /**
+     * Возвращает группу ({@link Group}), которая владеет этим пулом, или null.
+     */
+    public Group getOwner() {
+        return owner;
+    }
+
+
+    /**
+     * Добавляет сущность в пул (если её там ещё нет) и возвращает индекс в плотном массиве, по которому
+     * наследник должен записать компонент. Если сущность уже присутствует в пуле - возвращает индекс
+     * её текущего компонента. После записи компонента наследник должен вызвать
+     * {@link #notifyAttached(Entity, boolean)}.
+     */
+    protected int attachEntity(Entity entity) {
+        beginModification();
+
+        int compIndex = getDenseIndex(entity);
+        if(compIndex == -1) {
+            ensureDenseCapacity(size + 1);
+            entityIndexes.growToIndex(entity.index());
+            compIndex = appendEntity(entity);
+        }
+        return compIndex;
+    }
+
+    /**
+     * Возвращает индекс компонента указанной сущности в плотном массиве.
+     * @throws NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    protected int getExistedDenseIndex(Entity entity) {
+        final int compIndex = getDenseIndex(entity);
+        if(compIndex == -1) {
+            throw new NoSuchElementException("Entity %s hasn't component in this pool.".formatted(entity));
+        }
+        return compIndex;
+    }
+
+    protected void notifyAttached(Entity entity, boolean isNew) {
+        if(isNew) {
+            for(Listener listener : listeners) listener.afterAttach(entity);
+        } else {
+            notifyChanged(entity);
+        }
+    }
+
+    protected void notifyChanged(Entity entity) {
+        for(Listener listener : listeners) listener.afterChange(entity);
+    }
+
+    protected Entity getEntityUnchecked(int index) {
+        return new Entity(entities[index]);
+    }
+
+    protected long getPackedEntityUnchecked(int index) {
+        return entities[index];
+    }
+
+    protected void assertInBound(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Expected: index >= 0 and index < size. Actual: index = %d, size = %d".formatted(index, size));
+        }
+    }
+
+    protected int calculateCapacity(int size) {
+        return size + (size >>> 1);
+    }
+
+    protected String entitiesToString() {
+        StringBuilder sb = new StringBuilder("[");
+        if(size > 0) {
+            sb.append(new Entity(entities[0]));
+            for(int i = 1; i < size; ++i) sb.append(',').append(new Entity(entities[i]));
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+
+    /**
+     * Увеличивает емкость массива(ов) компонентов до указанного значения с сохранением текущего содержимого.
+     */
+    protected abstract void growCompsArray(int newCapacity);
+
+    /**
+     * Уменьшает емкость массива(ов) компонентов до указанного значения, которое не меньше {@link #size()}.
+     * Реализация по умолчанию вызывает {@link #growCompsArray(int)}, что подходит для наследников,
+     * которые изменяют емкость через {@link Arrays#copyOf}.
+     */
+    protected void shrinkCompsArray(int newCapacity) {
+        growCompsArray(newCapacity);
+    }
+
+    /**
+     * Перемещает компонент из одной ячейки плотного массива в другую. Ячейка from после этого
+     * считается свободной.
+     */
+    protected abstract void moveComp(int from, int to);
+
+    /**
+     * Меняет местами компоненты в двух ячейках плотного массива.
+     */
+    protected abstract void swapComps(int first, int second);
+
+    protected abstract Object getBoxedComp(int index);
+
+    protected abstract void setBoxedComp(int index, Object comp);
+
+
+    /**
+     * Разреженный массив разбит на страницы по {@link #PAGE_SIZE} элементов. Страница создается только
+     * при первой записи в неё индекса компонента, поэтому память занимаемая разреженным массивом
+     * пропорциональна кол-ву занятых диапазонов индексов сущностей, а не максимальному индексу сущности.
+     */
+    private void setDenseIndex(int entityIndex, int compIndex) {
+        final int pageIndex = entityIndex >>> PAGE_SHIFT;
+        if(pageIndex >= entityIndexToComp.length) {
+            if(compIndex == -1) return;
+            entityIndexToComp = Arrays.copyOf(entityIndexToComp, calculateCapacity(pageIndex + 1));
+            pagesOccupancy = Arrays.copyOf(pagesOccupancy, entityIndexToComp.length);
+        }
+
+        int[] page = entityIndexToComp[pageIndex];
+        if(page == null) {
+            if(compIndex == -1) return;
+            page = new int[PAGE_SIZE];
+            Arrays.fill(page, -1);
+            entityIndexToComp[pageIndex] = page;
+        }
+
+        final int slot = entityIndex & PAGE_MASK;
+        if(page[slot] == -1 && compIndex != -1) ++pagesOccupancy[pageIndex];
+        else if(page[slot] != -1 && compIndex == -1) --pagesOccupancy[pageIndex];
+        page[slot] = compIndex;
+    }
+
+    private void freePageIfEmpty(int pageIndex) {
+        if(pagesOccupancy[pageIndex] == 0) entityIndexToComp[pageIndex] = null;
+    }
+
+    private void shrinkDenseArrays(int newCapacity) {
+        newCapacity = Math.max(newCapacity, INIT_CAPACITY);
+        if(newCapacity < entities.length) {
+            entities = Arrays.copyOf(entities, newCapacity);
+            shrinkCompsArray(newCapacity);
+        }
+    }
+
+    /**
+     * Добавляет сущность в конец плотного массива. Емкость плотных массивов и битовой маски должна
+     * быть увеличена заранее.
+     */
+    private int appendEntity(Entity entity) {
+        final int compIndex = size++;
+        setDenseIndex(entity.index(), compIndex);
+        entities[compIndex] = entity.asLong();
+        entityIndexes.set(entity.index());
+        entityIndexesSummary.onSet(entity.index());
+        return compIndex;
+    }
+
+    private void ensureDenseCapacity(int minCapacity) {
+        if(minCapacity > entities.length) {
+            int newCapacity = calculateCapacity(minCapacity);
+            entities = Arrays.copyOf(entities, newCapacity);
+            growCompsArray(newCapacity);
+        }
+    }
+
+    /**
+     * Меняет местами две ячейки плотного массива вместе с сущностями и их компонентами. В отличие от
+     * {@link #swap(Entity, Entity)}, каждая сущность сохраняет свой компонент.
+     */
+    void swapDense(int first, int second) {
+        if(first != second) {
+            beginModification();
+            setDenseIndex(Entity.indexOf(entities[first]), second);
+            setDenseIndex(Entity.indexOf(entities[second]), first);
+            swapEntities(first, second);
+            swapComps(first, second);
+        }
+    }
+
+    private void sort(DenseIndexComparator comparator) {
+        final int from = sortedRangeStart();
+        final int length = size - from;
+        if(length > 1) {
+            Integer[] order = new Integer[length];
+            for(int i = 0; i < length; ++i) order[i] = from + i;
+            Arrays.sort(order, comparator::compare);
+
+            int[] positionOf = new int[length];
+            int[] originAt = new int[length];
+            for(int i = 0; i < length; ++i) {
+                positionOf[i] = from + i;
+                originAt[i] = from + i;
+            }
+            for(int i = 0; i < length; ++i) {
+                final int origin = order[i] - from;
+                final int position = positionOf[origin];
+                final int target = from + i;
+                if(position != target) {
+                    final int displaced = originAt[i] - from;
+                    swapDense(target, position);
+                    positionOf[origin] = target;
+                    positionOf[displaced] = position;
+                    originAt[position - from] = displaced + from;
+                    originAt[i] = origin + from;
+                }
+            }
+        }
+    }
+
+    private void beginModification() {
+        if(parallelPasses.get() > 0) {
+            throw new ConcurrentModificationException("Pool can't be structurally modified during parallel iteration.");
+        }
+        ++actualModCount;
+    }
+
+    private int sortedRangeStart() {
+        return owner != null ? owner.size() : 0;
+    }
+
+    private int compareEntityIndexes(int firstDenseIndex, int secondDenseIndex) {
+        return Integer.compare(Entity.indexOf(entities[firstDenseIndex]), Entity.indexOf(entities[secondDenseIndex]));
+    }
+
+    private void swapEntities(int firstIndex, int secondIndex) {
+        long firstEntity = entities[firstIndex];
+        entities[firstIndex] = entities[secondIndex];
+        entities[secondIndex] = firstEntity;
+    }
+
+
+    private class EntryIteratorImpl<E> implements EntryIterator<E> {
+        private final int expectedModCount;
+        private final int itemsNumber;
+        private int currentIndex = -1;
+        private boolean hasRecent;
+        private long recentEntity;
+        private E recentComp;
+
+        public EntryIteratorImpl(int expectedModCount, int itemsNumber) {
+            this.expectedModCount = expectedModCount;
+            this.itemsNumber = itemsNumber;
+        }
+
+        @Override
+        public boolean next() {
+            assertCompPoolWasNotBeenChanged();
+            hasRecent = ++currentIndex < itemsNumber;
+            if(hasRecent) {
+                recentEntity = entities[currentIndex];
+                recentComp = (E)getBoxedComp(currentIndex);
+            } else {
+                recentComp = null;
+            }
+            return hasRecent;
+        }
+
+        @Override
+        public Entity recentEntity() {
+            return hasRecent ? new Entity(recentEntity) : null;
+        }
+
+        @Override
+        public E recentComp() {
+            return recentComp;
+        }
+
+        private void assertCompPoolWasNotBeenChanged() {
+            if(actualModCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+
+    private static final class ForEachTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final IntConsumer consumer;
+
+        public ForEachTask(int from, int to, int chunkSize, IntConsumer consumer) {
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= chunkSize) {
+                for(int i = from; i < to; ++i) consumer.accept(i);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ForEachTask(from, middle, chunkSize, consumer),
+                        new ForEachTask(middle, to, chunkSize, consumer)
+                );
+            }
+        }
+    }
+
+
+    @FunctionalInterface
+    public static interface PackedEntryConsumer<T> {
+        public void accept(int entityIndex, int entityGeneration, T comp);
+    }
+
+    @FunctionalInterface
+    private static interface DenseIndexComparator {
+        public int compare(int firstDenseIndex, int secondDenseIndex);
+    }
+}
@@ -0,0 +1,98 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+/**
+ * Общая часть представлений ({@link View2}, {@link View3}). Обход выполняется по плотному массиву
+ * наименьшего из пулов представления, а наличие компонентов в остальных пулах проверяется через их
+ * разреженные массивы - без промежуточных битовых масок и без поиска пулов по типу для каждой сущности.
+ */
+abstract class AbstractView {
+
+    private final CompsManager compsManager;
+    private final int[] compTypeIds;
+
+    AbstractView(CompsManager compsManager, Class<?>... compTypes) {
+        this.compsManager = compsManager;
+        this.compTypeIds = new int[compTypes.length];
+        for(int i = 0; i < compTypes.length; ++i) compTypeIds[i] = CompTypes.idOf(compTypes[i]);
+    }
+
+    /**
+     * Возвращает верхнюю оценку кол-ва сущностей в представлении - размер наименьшего из его пулов.
+     */
+    public int estimateSize() {
+        CompPool[] pools = resolvePools();
+        return pools != null ? pools[smallest(pools)].size() : 0;
+    }
+
+    /**
+     * Передает в action каждую сущность, которая имеет компоненты во всех пулах представления, вместе
+     * с её компонентами. Массив comps переиспользуется между вызовами action. Во время обхода допускается
+     * удалять компоненты текущей сущности, другие структурные изменения пулов представления не допускаются.
+     */
+    void iterate(EntryAction action) {
+        CompPool[] pools = resolvePools();
+        if(pools == null) return;
+
+        final int driverIndex = smallest(pools);
+        final Object[] comps = new Object[pools.length];
+        if(pools[driverIndex] instanceof AbstractSparseSet driver) {
+            for(int i = driver.size() - 1; i >= 0; --i) {
+                if(i >= driver.size()) continue;
+                final long entity = driver.getPackedEntityUnchecked(i);
+                comps[driverIndex] = driver.getBoxedComp(i);
+                if(collectComps(pools, driverIndex, entity, comps)) {
+                    action.accept(new Entity(entity), comps);
+                }
+            }
+        } else {
+            pools[driverIndex].forEach((Entity entity, Object comp) -> {
+                comps[driverIndex] = comp;
+                if(collectComps(pools, driverIndex, entity.asLong(), comps)) action.accept(entity, comps);
+            });
+        }
+    }
+
+
+    private CompPool[] resolvePools() {
+        CompPool[] pools = new CompPool[compTypeIds.length];
+        for(int i = 0; i < pools.length; ++i) {
+            pools[i] = compsManager.getCompPool(compTypeIds[i]);
+            if(pools[i] == null) return null;
+        }
+        return pools;
+    }
+
+    private int smallest(CompPool[] pools) {
+        int result = 0;
+        for(int i = 1; i < pools.length; ++i) {
+            if(pools[i].size() < pools[result].size()) result = i;
+        }
+        return result;
+    }
+
+    private boolean collectComps(CompPool[] pools, int driverIndex, long packedEntity, Object[] comps) {
+        boolean result = true;
+        for(int i = 0; i < pools.length && result; ++i) {
+            if(i == driverIndex) continue;
+
+            if(pools[i] instanceof AbstractSparseSet pool) {
+                final int denseIndex = pool.getDenseIndex(Entity.indexOf(packedEntity));
+                result = denseIndex != -1;
+                if(result) comps[i] = pool.getBoxedComp(denseIndex);
+            } else {
+                final Entity entity = new Entity(packedEntity);
+                result = pools[i].hasComp(entity);
+                if(result) comps[i] = pools[i].getComp(entity);
+            }
+        }
+        return result;
+    }
+
+
+    @FunctionalInterface
+    interface EntryAction {
+        void accept(Entity entity, Object[] comps);
+    }
+}
@@ -0,0 +1,162 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Таблица, в которой хранятся все сущности с одинаковым набором типов компонентов. Каждый тип
+ * компонента хранится в отдельном столбце, а компоненты одной сущности находятся в одной и той же
+ * строке всех столбцов. Используется {@link ArchetypeStorage}.
+ * <br/><br/>
+ * Для обхода таблицы достаточно получить столбцы нужных типов компонентов через
+ * {@link #getColumn(int)} один раз и затем пройти все строки от 0 до {@link #size()}. Ссылки на столбцы
+ * становятся недействительными после любого структурного изменения хранилища.
+ */
+public final class Archetype {
+
+    private static final int INIT_CAPACITY = 10;
+
+
+    private final int[] typeIds;
+    private final Class<?>[] compTypes;
+    private Object[][] columns;
+    private Entity[] entities;
+    private int size;
+
+    private Archetype[] addEdges;
+    private Archetype[] removeEdges;
+
+    Archetype(int[] typeIds, Class<?>[] compTypes) {
+        this.typeIds = typeIds;
+        this.compTypes = compTypes;
+        this.columns = new Object[typeIds.length][INIT_CAPACITY];
+        this.entities = new Entity[INIT_CAPACITY];
+        this.addEdges = new Archetype[0];
+        this.removeEdges = new Archetype[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int columnsNumber() {
+        return typeIds.length;
+    }
+
+    /**
+     * Возвращает индекс столбца для указанного типа компонента или -1, если сущности этой таблицы
+     * не имеют компонентов данного типа.
+     */
+    public int indexOf(Class<?> compType) {
+        for(int i = 0; i < compTypes.length; ++i) {
+            if(compTypes[i] == compType) return i;
+        }
+        return -1;
+    }
+
+    public boolean hasCompType(Class<?> compType) {
+        return indexOf(compType) != -1;
+    }
+
+    public Class<?> getCompType(int columnIndex) {
+        return compTypes[columnIndex];
+    }
+
+    public Entity getEntity(int row) {
+        assertInBound(row);
+        return entities[row];
+    }
+
+    public <T> T getComp(int row, int columnIndex) {
+        assertInBound(row);
+        return (T) columns[columnIndex][row];
+    }
+
+    /**
+     * Возвращает массив компонентов одного столбца. Значимы только первые {@link #size()} элементов.
+     */
+    public Object[] getColumn(int columnIndex) {
+        return columns[columnIndex];
+    }
+
+    @Override
+    public String toString() {
+        return "Archetype{" +
+                "compTypes: " + Arrays.toString(compTypes) +
+                ", size: " + size +
+                '}';
+    }
+
+
+    int[] typeIds() {
+        return typeIds;
+    }
+
+    int columnIndexOfTypeId(int typeId) {
+        return Arrays.binarySearch(typeIds, typeId);
+    }
+
+    Object getCompUnchecked(int row, int columnIndex) {
+        return columns[columnIndex][row];
+    }
+
+    void setComp(int row, int columnIndex, Object comp) {
+        columns[columnIndex][row] = comp;
+    }
+
+    Entity getEntityUnchecked(int row) {
+        return entities[row];
+    }
+
+    int addRow(Entity entity) {
+        if(size == entities.length) {
+            int newCapacity = size + (size >>> 1) + 1;
+            entities = Arrays.copyOf(entities, newCapacity);
+            for(int i = 0; i < columns.length; ++i) columns[i] = Arrays.copyOf(columns[i], newCapacity);
+        }
+        entities[size] = entity;
+        return size++;
+    }
+
+    /**
+     * Удаляет строку, перемещая на её место последнюю строку таблицы.
+     * @return сущность, строка которой была перемещена, или null, если удалялась последняя строка.
+     */
+    Entity removeRow(int row) {
+        final int last = --size;
+        Entity movedEntity = null;
+        if(row != last) {
+            movedEntity = entities[last];
+            entities[row] = movedEntity;
+            for(Object[] column : columns) column[row] = column[last];
+        }
+        entities[last] = null;
+        for(Object[] column : columns) column[last] = null;
+        return movedEntity;
+    }
+
+    Archetype getAddEdge(int typeId) {
+        return typeId < addEdges.length ? addEdges[typeId] : null;
+    }
+
+    void setAddEdge(int typeId, Archetype archetype) {
+        if(typeId >= addEdges.length) addEdges = Arrays.copyOf(addEdges, typeId + 1);
+        addEdges[typeId] = archetype;
+    }
+
+    Archetype getRemoveEdge(int typeId) {
+        return typeId < removeEdges.length ? removeEdges[typeId] : null;
+    }
+
+    void setRemoveEdge(int typeId, Archetype archetype) {
+        if(typeId >= removeEdges.length) removeEdges = Arrays.copyOf(removeEdges, typeId + 1);
+        removeEdges[typeId] = archetype;
+    }
+
+    private void assertInBound(int row) {
+        if(row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Expected: row >= 0 and row < size. Actual: row = %d, size = %d".formatted(row, size));
+        }
+    }
+}
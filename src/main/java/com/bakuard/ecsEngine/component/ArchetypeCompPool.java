@@ -0,0 +1,94 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Представление одного типа компонентов хранящихся в {@link ArchetypeStorage} в виде пула компонентов.
+ * Не хранит собственных данных - все операции делегируются хранилищу.
+ */
+public final class ArchetypeCompPool implements CompPool {
+
+    private final ArchetypeStorage storage;
+    private final Class<?> compType;
+    private final int typeId;
+
+    ArchetypeCompPool(ArchetypeStorage storage, Class<?> compType, int typeId) {
+        this.storage = storage;
+        this.compType = compType;
+        this.typeId = typeId;
+    }
+
+    public Class<?> getCompType() {
+        return compType;
+    }
+
+    public ArchetypeStorage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        storage.attachComp(entity, typeId, component);
+    }
+
+    @Override
+    public void detachComp(Entity entity) {
+        storage.detachComp(entity, typeId);
+    }
+
+    @Override
+    public <T> T getComp(Entity entity) {
+        return storage.getComp(entity, typeId);
+    }
+
+    @Override
+    public boolean hasComp(Entity entity) {
+        return storage.hasComp(entity, typeId);
+    }
+
+    @Override
+    public int size() {
+        return storage.size(typeId);
+    }
+
+    @Override
+    public <T> void forEach(BiConsumer<Entity, T> consumer) {
+        storage.forEach(typeId, consumer);
+    }
+
+    @Override
+    public <T> EntryIterator<T> iterator() {
+        return storage.iterator(typeId);
+    }
+
+    @Override
+    public Bits getEntityIndexesMask() {
+        return storage.getEntityIndexesMask(typeId);
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        storage.addListener(typeId, listener);
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        storage.removeListener(typeId, listener);
+    }
+
+    @Override
+    public void markChanged(Entity entity) {
+        storage.markChanged(entity, typeId);
+    }
+
+    @Override
+    public String toString() {
+        return "ArchetypeCompPool{" +
+                "compType: " + compType +
+                ", size: " + size() +
+                '}';
+    }
+}
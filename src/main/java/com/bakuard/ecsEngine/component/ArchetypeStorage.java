@@ -0,0 +1,398 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.collections.DynamicArray;
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище компонентов, в котором сущности с одинаковым набором типов компонентов хранятся вместе
+ * в одной таблице ({@link Archetype}). Добавление или удаление компонента перемещает сущность из одной
+ * таблицы в другую. Выборка сущностей имеющих несколько типов компонентов сводится к последовательному
+ * обходу подходящих таблиц ({@link #forEachArchetype(Consumer, Class[])}).
+ * <br/><br/>
+ * Для каждого типа компонента хранилище предоставляет представление в виде {@link CompPool}
+ * ({@link #getCompPool(Class)}), поэтому остальная часть движка (фильтры, маски индексов сущностей)
+ * работает с ним так же, как и с {@link SparseSet}.
+ */
+public final class ArchetypeStorage {
+
+    private static final Archetype[] EMPTY_ARCHETYPES = new Archetype[0];
+    private static final CompPool.Listener[] EMPTY_LISTENERS = new CompPool.Listener[0];
+
+
+    private final HashMap<Class<?>, Integer> typeIds;
+    private final DynamicArray<Class<?>> compTypes;
+    private final DynamicArray<Bits> entityIndexesMasks;
+    private final DynamicArray<CompPool.Listener[]> listeners;
+    private int[] compsNumber;
+
+    private final HashMap<TypeSet, Archetype> archetypesByTypes;
+    private final DynamicArray<Archetype> archetypes;
+
+    private Archetype[] entityArchetypes;
+    private int[] entityRows;
+
+    private int actualModCount;
+
+    public ArchetypeStorage() {
+        typeIds = new HashMap<>();
+        compTypes = new DynamicArray<>();
+        entityIndexesMasks = new DynamicArray<>();
+        listeners = new DynamicArray<>();
+        compsNumber = new int[10];
+        archetypesByTypes = new HashMap<>();
+        archetypes = new DynamicArray<>();
+        entityArchetypes = EMPTY_ARCHETYPES;
+        entityRows = new int[0];
+    }
+
+    /**
+     * Возвращает представление указанного типа компонентов в виде пула компонентов.
+     */
+    public CompPool getCompPool(Class<?> compType) {
+        return new ArchetypeCompPool(this, compType, typeIdOf(compType));
+    }
+
+    public void attachComp(Entity entity, Object comp) {
+        attachComp(entity, typeIdOf(comp.getClass()), comp);
+    }
+
+    public void detachComp(Entity entity, Class<?> compType) {
+        Integer typeId = typeIds.get(compType);
+        if(typeId != null) detachComp(entity, typeId);
+    }
+
+    /**
+     * Удаляет все компоненты сущности за одно удаление строки из таблицы. Слушатели уведомляются о
+     * каждом типе компонента по очереди, и к моменту уведомления об очередном типе все предыдущие типы
+     * уже считаются удаленными ({@link #hasComp(Entity, Class)} возвращает для них false).
+     */
+    public void detachAllComps(Entity entity) {
+        Archetype archetype = getArchetype(entity.index());
+        if(archetype != null) {
+            ++actualModCount;
+            for(int typeId : archetype.typeIds()) {
+                for(CompPool.Listener listener : listeners.get(typeId)) listener.beforeDetach(entity);
+                --compsNumber[typeId];
+                entityIndexesMasks.get(typeId).clear(entity.index());
+            }
+            removeFromArchetype(entity.index(), archetype);
+        }
+    }
+
+    public <T> T getComp(Entity entity, Class<T> compType) {
+        Integer typeId = typeIds.get(compType);
+        return typeId != null ? getComp(entity, typeId) : null;
+    }
+
+    public boolean hasComp(Entity entity, Class<?> compType) {
+        Integer typeId = typeIds.get(compType);
+        return typeId != null && hasComp(entity, typeId);
+    }
+
+    /**
+     * Последовательно передает в consumer все таблицы, сущности которых имеют компоненты всех
+     * указанных типов.
+     */
+    public void forEachArchetype(Consumer<Archetype> consumer, Class<?>... compTypes) {
+        int[] requiredTypeIds = new int[compTypes.length];
+        for(int i = 0; i < compTypes.length; ++i) {
+            Integer typeId = typeIds.get(compTypes[i]);
+            if(typeId == null) return;
+            requiredTypeIds[i] = typeId;
+        }
+
+        for(int i = 0; i < archetypes.size(); ++i) {
+            Archetype archetype = archetypes.get(i);
+            if(archetype.size() > 0 && containsAll(archetype, requiredTypeIds)) consumer.accept(archetype);
+        }
+    }
+
+    public int archetypesNumber() {
+        return archetypes.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ArchetypeStorage{" +
+                "compTypes: " + compTypes +
+                ", archetypes: " + archetypes +
+                '}';
+    }
+
+
+    void attachComp(Entity entity, int typeId, Object comp) {
+        ++actualModCount;
+
+        final int entityIndex = entity.index();
+        Archetype current = getArchetype(entityIndex);
+        int columnIndex = current != null ? current.columnIndexOfTypeId(typeId) : -1;
+        if(columnIndex >= 0) {
+            current.setComp(entityRows[entityIndex], columnIndex, comp);
+            for(CompPool.Listener listener : listeners.get(typeId)) listener.afterChange(entity);
+        } else {
+            Archetype target = current != null ? withType(current, typeId) : findOrCreate(new int[]{typeId});
+            int row = moveEntity(entity, current, target);
+            target.setComp(row, target.columnIndexOfTypeId(typeId), comp);
+
+            ++compsNumber[typeId];
+            entityIndexesMasks.get(typeId).growToIndex(entityIndex).set(entityIndex);
+            for(CompPool.Listener listener : listeners.get(typeId)) listener.afterAttach(entity);
+        }
+    }
+
+    void detachComp(Entity entity, int typeId) {
+        ++actualModCount;
+
+        final int entityIndex = entity.index();
+        Archetype current = getArchetype(entityIndex);
+        if(current != null && current.columnIndexOfTypeId(typeId) >= 0) {
+            for(CompPool.Listener listener : listeners.get(typeId)) listener.beforeDetach(entity);
+            if(current.columnsNumber() == 1) removeFromArchetype(entityIndex, current);
+            else moveEntity(entity, current, withoutType(current, typeId));
+
+            --compsNumber[typeId];
+            entityIndexesMasks.get(typeId).clear(entityIndex);
+        }
+    }
+
+    <T> T getComp(Entity entity, int typeId) {
+        Archetype current = getArchetype(entity.index());
+        if(current != null && hasComp(entity, typeId)) {
+            int columnIndex = current.columnIndexOfTypeId(typeId);
+            if(columnIndex >= 0) return (T) current.getCompUnchecked(entityRows[entity.index()], columnIndex);
+        }
+        return null;
+    }
+
+    boolean hasComp(Entity entity, int typeId) {
+        Bits mask = entityIndexesMasks.get(typeId);
+        return mask.inBound(entity.index()) && mask.get(entity.index());
+    }
+
+    void addListener(int typeId, CompPool.Listener listener) {
+        CompPool.Listener[] typeListeners = listeners.get(typeId);
+        typeListeners = Arrays.copyOf(typeListeners, typeListeners.length + 1);
+        typeListeners[typeListeners.length - 1] = listener;
+        listeners.replace(typeId, typeListeners);
+    }
+
+    void removeListener(int typeId, CompPool.Listener listener) {
+        CompPool.Listener[] typeListeners = listeners.get(typeId);
+        for(int i = 0; i < typeListeners.length; ++i) {
+            if(typeListeners[i] == listener) {
+                CompPool.Listener[] newListeners = new CompPool.Listener[typeListeners.length - 1];
+                System.arraycopy(typeListeners, 0, newListeners, 0, i);
+                System.arraycopy(typeListeners, i + 1, newListeners, i, newListeners.length - i);
+                listeners.replace(typeId, newListeners);
+                break;
+            }
+        }
+    }
+
+    void markChanged(Entity entity, int typeId) {
+        if(hasComp(entity, typeId)) {
+            for(CompPool.Listener listener : listeners.get(typeId)) listener.afterChange(entity);
+        }
+    }
+
+    int size(int typeId) {
+        return compsNumber[typeId];
+    }
+
+    Bits getEntityIndexesMask(int typeId) {
+        return entityIndexesMasks.get(typeId);
+    }
+
+    <T> void forEach(int typeId, BiConsumer<Entity, T> consumer) {
+        for(int i = 0; i < archetypes.size(); ++i) {
+            Archetype archetype = archetypes.get(i);
+            int columnIndex = archetype.columnIndexOfTypeId(typeId);
+            if(columnIndex >= 0) {
+                Object[] column = archetype.getColumn(columnIndex);
+                for(int row = archetype.size() - 1; row >= 0; --row) {
+                    consumer.accept(archetype.getEntityUnchecked(row), (T) column[row]);
+                }
+            }
+        }
+    }
+
+    <T> CompPool.EntryIterator<T> iterator(int typeId) {
+        return new EntryIteratorImpl<>(typeId, actualModCount);
+    }
+
+
+    private int typeIdOf(Class<?> compType) {
+        Integer typeId = typeIds.get(compType);
+        if(typeId == null) {
+            typeId = compTypes.size();
+            typeIds.put(compType, typeId);
+            compTypes.addLast(compType);
+            entityIndexesMasks.addLast(new Bits(128));
+            listeners.addLast(EMPTY_LISTENERS);
+            if(typeId >= compsNumber.length) compsNumber = Arrays.copyOf(compsNumber, typeId + (typeId >>> 1) + 1);
+        }
+        return typeId;
+    }
+
+    private Archetype getArchetype(int entityIndex) {
+        return entityIndex < entityArchetypes.length ? entityArchetypes[entityIndex] : null;
+    }
+
+    private Archetype withType(Archetype archetype, int typeId) {
+        Archetype result = archetype.getAddEdge(typeId);
+        if(result == null) {
+            int[] source = archetype.typeIds();
+            int[] typeIds = Arrays.copyOf(source, source.length + 1);
+            typeIds[source.length] = typeId;
+            Arrays.sort(typeIds);
+            result = findOrCreate(typeIds);
+            archetype.setAddEdge(typeId, result);
+            result.setRemoveEdge(typeId, archetype);
+        }
+        return result;
+    }
+
+    private Archetype withoutType(Archetype archetype, int typeId) {
+        Archetype result = archetype.getRemoveEdge(typeId);
+        if(result == null) {
+            int[] source = archetype.typeIds();
+            int[] typeIds = new int[source.length - 1];
+            for(int i = 0, j = 0; i < source.length; ++i) {
+                if(source[i] != typeId) typeIds[j++] = source[i];
+            }
+            result = findOrCreate(typeIds);
+            archetype.setRemoveEdge(typeId, result);
+            result.setAddEdge(typeId, archetype);
+        }
+        return result;
+    }
+
+    private Archetype findOrCreate(int[] sortedTypeIds) {
+        return archetypesByTypes.computeIfAbsent(new TypeSet(sortedTypeIds), typeSet -> {
+            Class<?>[] types = new Class<?>[sortedTypeIds.length];
+            for(int i = 0; i < types.length; ++i) types[i] = compTypes.get(sortedTypeIds[i]);
+            Archetype archetype = new Archetype(sortedTypeIds, types);
+            archetypes.addLast(archetype);
+            return archetype;
+        });
+    }
+
+    /**
+     * Перемещает сущность из таблицы from (может быть null) в таблицу to, копируя все общие для этих
+     * таблиц компоненты.
+     * @return номер строки сущности в таблице to.
+     */
+    private int moveEntity(Entity entity, Archetype from, Archetype to) {
+        final int entityIndex = entity.index();
+        final int newRow = to.addRow(entity);
+
+        if(from != null) {
+            final int oldRow = entityRows[entityIndex];
+            int[] fromTypeIds = from.typeIds();
+            int[] toTypeIds = to.typeIds();
+            for(int i = 0, j = 0; i < fromTypeIds.length && j < toTypeIds.length; ) {
+                if(fromTypeIds[i] == toTypeIds[j]) to.setComp(newRow, j++, from.getCompUnchecked(oldRow, i++));
+                else if(fromTypeIds[i] < toTypeIds[j]) ++i;
+                else ++j;
+            }
+            removeFromArchetype(entityIndex, from);
+        }
+
+        growLocations(entityIndex + 1);
+        entityArchetypes[entityIndex] = to;
+        entityRows[entityIndex] = newRow;
+        return newRow;
+    }
+
+    private void removeFromArchetype(int entityIndex, Archetype archetype) {
+        final int row = entityRows[entityIndex];
+        Entity movedEntity = archetype.removeRow(row);
+        if(movedEntity != null) entityRows[movedEntity.index()] = row;
+        entityArchetypes[entityIndex] = null;
+    }
+
+    private void growLocations(int newSize) {
+        if(newSize > entityArchetypes.length) {
+            int newCapacity = newSize + (newSize >>> 1);
+            entityArchetypes = Arrays.copyOf(entityArchetypes, newCapacity);
+            entityRows = Arrays.copyOf(entityRows, newCapacity);
+        }
+    }
+
+    private boolean containsAll(Archetype archetype, int[] requiredTypeIds) {
+        boolean result = true;
+        for(int i = 0; i < requiredTypeIds.length && result; ++i) {
+            result = archetype.columnIndexOfTypeId(requiredTypeIds[i]) >= 0;
+        }
+        return result;
+    }
+
+
+    private record TypeSet(int[] typeIds) {
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof TypeSet other && Arrays.equals(typeIds, other.typeIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(typeIds);
+        }
+    }
+
+    private class EntryIteratorImpl<E> implements CompPool.EntryIterator<E> {
+        private final int typeId;
+        private final int expectedModCount;
+        private int archetypeIndex;
+        private int columnIndex = -1;
+        private int row = -1;
+        private Entity recentEntity;
+        private E recentComp;
+
+        public EntryIteratorImpl(int typeId, int expectedModCount) {
+            this.typeId = typeId;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean next() {
+            if(actualModCount != expectedModCount) throw new ConcurrentModificationException();
+
+            while(columnIndex < 0 || ++row >= archetypes.get(archetypeIndex).size()) {
+                if(columnIndex >= 0) ++archetypeIndex;
+                if(archetypeIndex >= archetypes.size()) {
+                    columnIndex = -1;
+                    recentEntity = null;
+                    recentComp = null;
+                    return false;
+                }
+                columnIndex = archetypes.get(archetypeIndex).columnIndexOfTypeId(typeId);
+                row = -1;
+                if(columnIndex < 0) ++archetypeIndex;
+            }
+
+            Archetype archetype = archetypes.get(archetypeIndex);
+            recentEntity = archetype.getEntityUnchecked(row);
+            recentComp = (E) archetype.getCompUnchecked(row, columnIndex);
+            return true;
+        }
+
+        @Override
+        public Entity recentEntity() {
+            return recentEntity;
+        }
+
+        @Override
+        public E recentComp() {
+            return recentComp;
+        }
+    }
+}
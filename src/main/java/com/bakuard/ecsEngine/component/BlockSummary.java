@@ -0,0 +1,95 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+
+import java.util.Arrays;
+
+/**
+ * Сводка битовой маски индексов сущностей по блокам из {@link #BLOCK_SIZE} индексов. Для каждого блока
+ * хранит кол-во единичных битов маски, а также маску непустых блоков. Позволяет при вычислении фильтров
+ * пропускать блоки, в которых у хотя бы одной из обязательных масок нет ни одного единичного бита, не
+ * просматривая сами маски. Для мира из 5 млн. сущностей маска непустых блоков занимает 20 слов.
+ * <br/><br/>
+ * Сводка не связана с маской напрямую: владелец маски обязан вызывать {@link #onSet(int)} и
+ * {@link #onClear(int)} при каждом изменении бита маски.
+ */
+public final class BlockSummary {
+
+    public static final int BLOCK_SHIFT = 12;
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private int[] blockCardinalities;
+    private final Bits nonEmptyBlocks;
+    private int nonEmptyBlocksNumber;
+    private int cardinality;
+
+    public BlockSummary() {
+        blockCardinalities = new int[1];
+        nonEmptyBlocks = new Bits(64);
+    }
+
+    /**
+     * Должен вызываться после того, как бит index маски изменил значение с 0 на 1.
+     */
+    public void onSet(int index) {
+        final int block = index >>> BLOCK_SHIFT;
+        ++cardinality;
+        if(block >= blockCardinalities.length) {
+            blockCardinalities = Arrays.copyOf(blockCardinalities, Math.max(block + 1, blockCardinalities.length << 1));
+        }
+        if(blockCardinalities[block]++ == 0) {
+            nonEmptyBlocks.growToIndex(block).set(block);
+            ++nonEmptyBlocksNumber;
+        }
+    }
+
+    /**
+     * Должен вызываться после того, как бит index маски изменил значение с 1 на 0.
+     */
+    public void onClear(int index) {
+        final int block = index >>> BLOCK_SHIFT;
+        --cardinality;
+        if(--blockCardinalities[block] == 0) {
+            nonEmptyBlocks.clear(block);
+            --nonEmptyBlocksNumber;
+        }
+    }
+
+    /**
+     * Возвращает true, если в блоке с указанным номером нет ни одного единичного бита маски.
+     */
+    public boolean isEmptyBlock(int block) {
+        return block >= blockCardinalities.length || blockCardinalities[block] == 0;
+    }
+
+    /**
+     * Возвращает номер первого непустого блока, начиная с fromBlock включительно, или -1, если
+     * таких блоков нет.
+     */
+    public int nextNonEmptyBlock(int fromBlock) {
+        return fromBlock < nonEmptyBlocks.size() ? nonEmptyBlocks.nextSetBit(fromBlock) : -1;
+    }
+
+    /**
+     * Возвращает общее кол-во единичных битов маски.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public int nonEmptyBlocksNumber() {
+        return nonEmptyBlocksNumber;
+    }
+
+    /**
+     * Возвращает кол-во единичных битов маски в блоке с указанным номером.
+     */
+    public int blockCardinality(int block) {
+        return block < blockCardinalities.length ? blockCardinalities[block] : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockSummary{nonEmptyBlocks: " + nonEmptyBlocks + '}';
+    }
+}
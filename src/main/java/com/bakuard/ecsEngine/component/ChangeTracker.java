@@ -0,0 +1,122 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+
+/**
+ * Отслеживает изменения одного пула компонентов с момента последнего вызова {@link #clear()}
+ * (например, с начала текущего кадра). Изменения накапливаются в трех битовых масках индексов сущностей:
+ * <ul>
+ *     <li>{@link #getAdded()} - сущности, которые получили компонент;</li>
+ *     <li>{@link #getRemoved()} - сущности, которые потеряли компонент;</li>
+ *     <li>{@link #getChanged()} - сущности, компонент которых был заменен или отмечен измененным через
+ *     {@link CompPool#markChanged(Entity)}.</li>
+ * </ul>
+ * Каждая сущность попадает не более чем в одну из масок: если компонент был добавлен и удален в течение
+ * одного периода, сущность не попадает ни в одну маску, а если удален и добавлен снова - считается
+ * измененной. Маски можно напрямую комбинировать с результатом выборки сущностей, например:
+ * {@code world.selectEntityIndexes(filter).and(tracker.getChanged())}.
+ * <br/><br/>
+ * Экземпляр этого класса не является потокобезопасным.
+ */
+public final class ChangeTracker {
+
+    private final CompPool pool;
+    private final CompPool.Listener listener;
+    private final Bits added;
+    private final Bits removed;
+    private final Bits changed;
+
+    /**
+     * @throws UnsupportedOperationException если pool не поддерживает слушателей.
+     */
+    public ChangeTracker(CompPool pool) {
+        this.pool = pool;
+        this.added = new Bits(128);
+        this.removed = new Bits(128);
+        this.changed = new Bits(128);
+        this.listener = new CompPool.Listener() {
+            @Override
+            public void afterAttach(Entity entity) {
+                int index = entity.index();
+                if(removed.inBound(index) && removed.get(index)) {
+                    removed.clear(index);
+                    changed.growToIndex(index).set(index);
+                } else {
+                    added.growToIndex(index).set(index);
+                }
+            }
+
+            @Override
+            public void afterChange(Entity entity) {
+                int index = entity.index();
+                if(!added.inBound(index) || !added.get(index)) changed.growToIndex(index).set(index);
+            }
+
+            @Override
+            public void beforeDetach(Entity entity) {
+                int index = entity.index();
+                if(added.inBound(index) && added.get(index)) {
+                    added.clear(index);
+                } else {
+                    if(changed.inBound(index)) changed.clear(index);
+                    removed.growToIndex(index).set(index);
+                }
+            }
+        };
+        pool.addListener(listener);
+    }
+
+    public CompPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Возвращает маску индексов сущностей, которые получили компонент. Возвращаемый объект является
+     * внутренним состоянием трекера и изменяется вместе с ним.
+     */
+    public Bits getAdded() {
+        return added;
+    }
+
+    /**
+     * Возвращает маску индексов сущностей, которые потеряли компонент. Возвращаемый объект является
+     * внутренним состоянием трекера и изменяется вместе с ним.
+     */
+    public Bits getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Возвращает маску индексов сущностей, компонент которых был изменен. Возвращаемый объект является
+     * внутренним состоянием трекера и изменяется вместе с ним.
+     */
+    public Bits getChanged() {
+        return changed;
+    }
+
+    /**
+     * Начинает новый период отслеживания изменений.
+     */
+    public void clear() {
+        added.clearAll();
+        removed.clearAll();
+        changed.clearAll();
+    }
+
+    /**
+     * Прекращает отслеживание изменений пула.
+     */
+    public void stop() {
+        pool.removeListener(listener);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeTracker{" +
+                "added: " + added +
+                ", removed: " + removed +
+                ", changed: " + changed +
+                '}';
+    }
+}
@@ -12,6 +12,22 @@ public interface CompPool {
 
     public void detachComp(Entity entity);
 
+    /**
+     * Добавляет компоненты comps[from..to) сущностям entities[from..to). Реализация по умолчанию
+     * последовательно вызывает {@link #attachComp(Entity, Object)}, пулы могут переопределять этот метод,
+     * чтобы выполнять общую подготовку (например, увеличение емкости) один раз для всей пачки.
+     */
+    public default void attachComps(Entity[] entities, Object[] comps, int from, int to) {
+        for(int i = from; i < to; ++i) attachComp(entities[i], comps[i]);
+    }
+
+    /**
+     * Удаляет компоненты сущностей entities[from..to).
+     */
+    public default void detachComps(Entity[] entities, int from, int to) {
+        for(int i = from; i < to; ++i) detachComp(entities[i]);
+    }
+
     public <T> T getComp(Entity entity);
 
     public boolean hasComp(Entity entity);
@@ -20,14 +36,79 @@ public interface CompPool {
 
     public <T> void forEach(BiConsumer<Entity, T> consumer);
 
+    /**
+     * Обходит все компоненты пула, возможно параллельно в нескольких потоках. Порядок обхода не определен.
+     * Пул нельзя структурно изменять (добавлять или удалять компоненты) во время обхода. Реализация по
+     * умолчанию выполняет обычный последовательный обход через {@link #forEach(BiConsumer)}.
+     */
+    public default <T> void parallelForEach(BiConsumer<Entity, T> consumer) {
+        forEach(consumer);
+    }
+
     public <T> EntryIterator<T> iterator();
 
+    /**
+     * Освобождает неиспользуемую память пула, если это возможно. Реализация по умолчанию ничего не делает.
+     */
+    public default void trim() {
+
+    }
+
     public Bits getEntityIndexesMask();
 
+    /**
+     * Возвращает сводку по блокам маски {@link #getEntityIndexesMask()} или null, если пул её не
+     * поддерживает. Используется для пропуска пустых блоков при вычислении фильтров.
+     */
+    public default BlockSummary getEntityIndexesSummary() {
+        return null;
+    }
+
+    /**
+     * Добавляет слушателя, который будет уведомляться о добавлении и удалении компонентов этого пула.
+     * @throws UnsupportedOperationException если пул не поддерживает слушателей.
+     */
+    public default void addListener(Listener listener) {
+        throw new UnsupportedOperationException(getClass().getName() + " doesn't support listeners.");
+    }
+
+    public default void removeListener(Listener listener) {
+        throw new UnsupportedOperationException(getClass().getName() + " doesn't support listeners.");
+    }
+
+    /**
+     * Сообщает слушателям пула, что компонент указанной сущности был изменен на месте (без замены
+     * через {@link #attachComp(Entity, Object)}). Если сущность не имеет компонента в этом пуле - ничего
+     * не делает.
+     * @throws UnsupportedOperationException если пул не поддерживает слушателей.
+     */
+    public default void markChanged(Entity entity) {
+        throw new UnsupportedOperationException(getClass().getName() + " doesn't support listeners.");
+    }
+
 
     public static interface EntryIterator<E> {
         public boolean next();
         public Entity recentEntity();
         public E recentComp();
     }
+
+    public static interface Listener {
+        /**
+         * Вызывается после того, как сущность получила компонент, которого у неё до этого не было.
+         */
+        public default void afterAttach(Entity entity) {}
+
+        /**
+         * Вызывается после замены компонента, который у сущности уже был, или после вызова
+         * {@link CompPool#markChanged(Entity)}.
+         */
+        public default void afterChange(Entity entity) {}
+
+        /**
+         * Вызывается перед удалением компонента сущности. В момент вызова компонент все еще доступен
+         * через пул.
+         */
+        public default void beforeDetach(Entity entity) {}
+    }
 }
@@ -0,0 +1,87 @@
+package com.bakuard.ecsEngine.component;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный по размеру список свободных экземпляров компонентов одного типа. Позволяет повторно
+ * использовать объекты компонентов, которые часто добавляются и удаляются (снаряды, частицы и т.п.),
+ * вместо создания новых. Экземпляр компонента сбрасывается в начальное состояние при повторной выдаче
+ * через {@link #obtain()}, а не при возврате в список.
+ * <br/><br/>
+ * Повторно использовать можно только те объекты компонентов, которые принадлежат не более чем одной
+ * сущности, иначе один и тот же объект может быть выдан несколько раз.
+ */
+public final class CompRecycler<T> {
+
+    private final Supplier<T> factory;
+    private final Consumer<T> resetter;
+    private final Object[] free;
+    private int size;
+
+    /**
+     * @param factory создает новый экземпляр компонента, если список свободных экземпляров пуст.
+     * @param resetter сбрасывает повторно выдаваемый экземпляр компонента в начальное состояние.
+     * @param maxSize максимальное кол-во хранимых свободных экземпляров.
+     * @throws IllegalArgumentException если maxSize < 0.
+     */
+    public CompRecycler(Supplier<T> factory, Consumer<T> resetter, int maxSize) {
+        if(maxSize < 0) {
+            throw new IllegalArgumentException("Expected: maxSize >= 0. Actual: maxSize = " + maxSize);
+        }
+        this.factory = Objects.requireNonNull(factory);
+        this.resetter = Objects.requireNonNull(resetter);
+        this.free = new Object[maxSize];
+    }
+
+    /**
+     * Возвращает сброшенный свободный экземпляр компонента или новый экземпляр, если свободных нет.
+     */
+    public T obtain() {
+        T comp;
+        if(size > 0) {
+            comp = (T) free[--size];
+            free[size] = null;
+            resetter.accept(comp);
+        } else {
+            comp = factory.get();
+        }
+        return comp;
+    }
+
+    /**
+     * Добавляет экземпляр компонента в список свободных.
+     * @return true - если экземпляр был добавлен, false - если список свободных экземпляров заполнен.
+     */
+    public boolean recycle(T comp) {
+        boolean result = size < free.length;
+        if(result) free[size++] = comp;
+        return result;
+    }
+
+    /**
+     * Возвращает текущее кол-во свободных экземпляров.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int maxSize() {
+        return free.length;
+    }
+
+    public void clear() {
+        Arrays.fill(free, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CompRecycler{" +
+                "size: " + size +
+                ", maxSize: " + free.length +
+                '}';
+    }
+}
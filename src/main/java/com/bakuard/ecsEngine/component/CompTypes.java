@@ -0,0 +1,56 @@
+package com.bakuard.ecsEngine.component;
+
+import java.util.Arrays;
+
+/**
+ * Глобальный реестр типов компонентов. Назначает каждому типу компонента небольшой неотрицательный
+ * целочисленный идентификатор. Идентификаторы назначаются последовательно при первом обращении к типу
+ * и не изменяются до конца работы программы, поэтому их можно один раз получить при инициализации
+ * системы и затем использовать в перегрузках методов {@link CompsManager}, принимающих идентификатор
+ * типа вместо {@link Class}.
+ */
+public final class CompTypes {
+
+    private static final ClassValue<Integer> IDS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return register(type);
+        }
+    };
+    private static Class<?>[] types = new Class<?>[16];
+    private static int typesNumber;
+
+    private CompTypes() {}
+
+    /**
+     * Возвращает идентификатор указанного типа компонента, назначая его при первом обращении.
+     */
+    public static int idOf(Class<?> compType) {
+        return IDS.get(compType);
+    }
+
+    /**
+     * Возвращает тип компонента по его идентификатору.
+     * @throws IndexOutOfBoundsException если идентификатор ещё не был назначен ни одному типу.
+     */
+    public static synchronized Class<?> typeOf(int id) {
+        if(id < 0 || id >= typesNumber) {
+            throw new IndexOutOfBoundsException("Unknown comp type id " + id);
+        }
+        return types[id];
+    }
+
+    /**
+     * Возвращает кол-во назначенных идентификаторов. Все идентификаторы меньше этого значения.
+     */
+    public static synchronized int typesNumber() {
+        return typesNumber;
+    }
+
+
+    private static synchronized int register(Class<?> type) {
+        if(typesNumber == types.length) types = Arrays.copyOf(types, typesNumber * 2);
+        types[typesNumber] = type;
+        return typesNumber++;
+    }
+}
@@ -5,18 +5,37 @@ import com.bakuard.collections.ReadableLinearStructure;
 import com.bakuard.ecsEngine.entity.Entity;
 import com.bakuard.ecsEngine.entity.EntityManager;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-public final class CompsManager {
+/**
+ * Управляет пулами компонентов. Пулы хранятся в массиве, индексами которого являются идентификаторы
+ * типов компонентов ({@link CompTypes#idOf(Class)}). Методы, принимающие идентификатор типа компонента
+ * вместо {@link Class}, позволяют системам один раз получить идентификаторы при инициализации и не
+ * вычислять их при каждом обращении.
+ */
+public final class CompsManager implements AutoCloseable {
 
     private final EntityManager entityManager;
-    private final HashMap<Class<?>, CompPool> compPools;
+    private CompPool[] compPools;
+    private CompRecycler<?>[] recyclers;
+    private final StorageMode storageMode;
+    private final ArchetypeStorage archetypeStorage;
+    private boolean autoTrim;
 
     public CompsManager(EntityManager entityManager) {
+        this(entityManager, StorageMode.SPARSE_SETS);
+    }
+
+    public CompsManager(EntityManager entityManager, StorageMode storageMode) {
         this.entityManager = entityManager;
-        this.compPools = new HashMap<>();
+        this.compPools = new CompPool[16];
+        this.recyclers = new CompRecycler<?>[16];
+        this.storageMode = storageMode;
+        this.archetypeStorage = storageMode == StorageMode.ARCHETYPES ? new ArchetypeStorage() : null;
     }
 
     public void attachComp(Entity entity, Object comp) {
@@ -29,19 +48,82 @@ public final class CompsManager {
         }
     }
 
+    /**
+     * Добавляет каждой сущности entities[i] компонент comps[i]. Подряд идущие компоненты одного типа
+     * передаются в пул одной пачкой ({@link CompPool#attachComps(Entity[], Object[], int, int)}), поэтому
+     * поиск пула выполняется один раз на каждую такую последовательность. Не живые сущности пропускаются.
+     * @throws IllegalArgumentException если длины массивов entities и comps не совпадают.
+     */
+    public void attachComps(Entity[] entities, Object[] comps) {
+        if(entities.length != comps.length) {
+            throw new IllegalArgumentException(
+                    "Expected: entities.length == comps.length. Actual: entities.length = %d, comps.length = %d"
+                            .formatted(entities.length, comps.length)
+            );
+        }
+
+        int from = nextAliveEntity(entities, 0);
+        while(from < entities.length) {
+            final Class<?> compType = comps[from].getClass();
+            int to = from + 1;
+            while(to < entities.length && comps[to].getClass() == compType && entityManager.isAlive(entities[to])) ++to;
+
+            CompPool pool = getOrCreateCompPool(compType);
+            CompRecycler<Object> recycler = getRecyclerOrNull(CompTypes.idOf(compType));
+            if(recycler != null) {
+                for(int i = from; i < to; ++i) recycleReplacedComp(recycler, pool, entities[i], comps[i]);
+            }
+            pool.attachComps(entities, comps, from, to);
+            from = nextAliveEntity(entities, to);
+        }
+    }
+
     public <T> void detachComp(Entity entity, Class<T> compType) {
-        if(entityManager.isAlive(entity)) detachCompIgnoringEntityState(entity, compType);
+        if(entityManager.isAlive(entity)) detachCompIgnoringEntityState(entity, CompTypes.idOf(compType));
+    }
+
+    public void detachComp(Entity entity, int compTypeId) {
+        if(entityManager.isAlive(entity)) detachCompIgnoringEntityState(entity, compTypeId);
     }
 
     public void detachComps(Entity entity, Class<?>... compTypes) {
         if(entityManager.isAlive(entity)) {
-            for(Class<?> compType : compTypes) detachCompIgnoringEntityState(entity, compType);
+            for(Class<?> compType : compTypes) detachCompIgnoringEntityState(entity, CompTypes.idOf(compType));
+        }
+    }
+
+    /**
+     * Удаляет у всех указанных сущностей компонент типа compType. Не живые сущности пропускаются.
+     */
+    public void detachComps(Entity[] entities, Class<?> compType) {
+        final int compTypeId = CompTypes.idOf(compType);
+        CompPool pool = getCompPoolOrNull(compTypeId);
+        if(pool != null) {
+            int from = nextAliveEntity(entities, 0);
+            while(from < entities.length) {
+                int to = from + 1;
+                while(to < entities.length && entityManager.isAlive(entities[to])) ++to;
+
+                CompRecycler<Object> recycler = getRecyclerOrNull(compTypeId);
+                if(recycler != null) {
+                    for(int i = from; i < to; ++i) recycleComp(recycler, pool, entities[i]);
+                }
+                pool.detachComps(entities, from, to);
+                from = nextAliveEntity(entities, to);
+            }
         }
     }
 
     public void detachAllComps(Entity entity) {
         if(entityManager.isAlive(entity)) {
-            compPools.forEach((compType, compPool) -> compPool.detachComp(entity));
+            for(int i = 0; i < recyclers.length; ++i) {
+                CompPool pool = compPools[i];
+                if(recyclers[i] != null && pool != null) recycleComp(getRecyclerOrNull(i), pool, entity);
+            }
+            if(archetypeStorage != null) archetypeStorage.detachAllComps(entity);
+            for(CompPool pool : compPools) {
+                if(pool != null) pool.detachComp(entity);
+            }
         }
     }
 
@@ -52,23 +134,30 @@ public final class CompsManager {
 
 
     public <T> T getComp(Entity entity, Class<T> compType) {
+        return getComp(entity, CompTypes.idOf(compType));
+    }
+
+    public <T> T getComp(Entity entity, int compTypeId) {
         T result = null;
         if(entityManager.isAlive(entity)) {
-            CompPool pool = compPools.get(compType);
+            CompPool pool = getCompPoolOrNull(compTypeId);
             if(pool != null) result = pool.getComp(entity);
         }
         return result;
     }
 
     public <T> boolean hasComp(Entity entity, Class<T> compType) {
-        return entityManager.isAlive(entity) && hasComponentIgnoringEntityState(entity, compType);
+        return entityManager.isAlive(entity) && hasComponentIgnoringEntityState(entity, CompTypes.idOf(compType));
+    }
+
+    public boolean hasComp(Entity entity, int compTypeId) {
+        return entityManager.isAlive(entity) && hasComponentIgnoringEntityState(entity, compTypeId);
     }
 
     public boolean hasAllComps(Entity entity, Class<?>... compTypes) {
         boolean result = entityManager.isAlive(entity);
         for(int i = 0; i < compTypes.length && result; i++) {
-            Class<?> compType = compTypes[i];
-            result = hasComponentIgnoringEntityState(entity, compType);
+            result = hasComponentIgnoringEntityState(entity, CompTypes.idOf(compTypes[i]));
         }
         return result;
     }
@@ -76,8 +165,7 @@ public final class CompsManager {
     public boolean hasNoneOfComps(Entity entity, Class<?>... compTypes) {
         boolean result = entityManager.isAlive(entity);
         for(int i = 0; i < compTypes.length && result; i++) {
-            Class<?> compType = compTypes[i];
-            result = !hasComponentIgnoringEntityState(entity, compType);
+            result = !hasComponentIgnoringEntityState(entity, CompTypes.idOf(compTypes[i]));
         }
         return result;
     }
@@ -88,10 +176,9 @@ public final class CompsManager {
         boolean result = isFirstAlive && isSecondAlive;
 
         if(result) {
-            Iterator<CompPool> storeIterator = compPools.values().iterator();
-            while(result && storeIterator.hasNext()) {
-                CompPool store = storeIterator.next();
-                result = Objects.equals(store.getComp(firstEntity), store.getComp(secondEntity));
+            for(int i = 0; i < compPools.length && result; ++i) {
+                CompPool store = compPools[i];
+                result = store == null || Objects.equals(store.getComp(firstEntity), store.getComp(secondEntity));
             }
         }
 
@@ -101,8 +188,7 @@ public final class CompsManager {
 
     public void excludeEntityIndexesWithout(Bits entityIndexes, ReadableLinearStructure<Class<?>> compTypes) {
         for(int i = 0; i < compTypes.size(); ++i) {
-            Class<?> compType = compTypes.get(i);
-            CompPool pool = compPools.get(compType);
+            CompPool pool = getCompPoolOrNull(CompTypes.idOf(compTypes.get(i)));
             if(pool != null) {
                 entityIndexes.and(pool.getEntityIndexesMask());
             } else {
@@ -114,37 +200,302 @@ public final class CompsManager {
 
     public void excludeEntityIndexesWith(Bits entityIndexes, ReadableLinearStructure<Class<?>> compTypes) {
         for(int i = 0; i < compTypes.size(); ++i) {
-            Class<?> compType = compTypes.get(i);
-            CompPool pool = compPools.get(compType);
+            CompPool pool = getCompPoolOrNull(CompTypes.idOf(compTypes.get(i)));
             if(pool != null) entityIndexes.andNot(pool.getEntityIndexesMask());
         }
     }
 
 
     public <T> void registerCompPool(CompPool pool, Class<T> compType) {
-        compPools.put(compType, pool);
+        final int compTypeId = CompTypes.idOf(compType);
+        ensureCapacity(compTypeId);
+        compPools[compTypeId] = pool;
     }
 
     public <T, S extends CompPool> S getCompPool(Class<T> compType) {
-        return (S) compPools.get(compType);
+        return (S) getCompPoolOrNull(CompTypes.idOf(compType));
+    }
+
+    public <S extends CompPool> S getCompPool(int compTypeId) {
+        return (S) getCompPoolOrNull(compTypeId);
+    }
+
+    /**
+     * Добавляет слушателя к пулу компонентов указанного типа. Если пула для этого типа компонентов еще
+     * нет - он будет создан.
+     * @throws UnsupportedOperationException если пул компонентов этого типа не поддерживает слушателей.
+     */
+    public void addListener(Class<?> compType, CompPool.Listener listener) {
+        getOrCreateCompPool(compType).addListener(listener);
+    }
+
+    public void removeListener(Class<?> compType, CompPool.Listener listener) {
+        CompPool pool = getCompPoolOrNull(CompTypes.idOf(compType));
+        if(pool != null) pool.removeListener(listener);
+    }
+
+    /**
+     * Создает и возвращает {@link ChangeTracker} для пула компонентов указанного типа. Если пула для
+     * этого типа компонентов еще нет - он будет создан.
+     * @throws UnsupportedOperationException если пул компонентов этого типа не поддерживает слушателей.
+     */
+    public ChangeTracker trackChanges(Class<?> compType) {
+        return new ChangeTracker(getOrCreateCompPool(compType));
+    }
+
+    /**
+     * Создает хеш-индекс по ключу, извлекаемому из компонентов указанного типа (см. {@link HashIndex}).
+     * @throws UnsupportedOperationException если пул компонентов этого типа не поддерживает слушателей.
+     */
+    public <T, K> HashIndex<T, K> createHashIndex(Class<T> compType, Function<T, K> keyExtractor) {
+        return new HashIndex<>(getOrCreateCompPool(compType), keyExtractor);
+    }
+
+    /**
+     * Создает упорядоченный индекс по ключу, извлекаемому из компонентов указанного типа
+     * (см. {@link SortedIndex}).
+     * @throws UnsupportedOperationException если пул компонентов этого типа не поддерживает слушателей.
+     */
+    public <T, K extends Comparable<? super K>> SortedIndex<T, K> createSortedIndex(Class<T> compType,
+                                                                                 Function<T, K> keyExtractor) {
+        return new SortedIndex<>(getOrCreateCompPool(compType), keyExtractor);
+    }
+
+    /**
+     * См. {@link CompPool#markChanged(Entity)}. Если сущность не жива - ничего не делает.
+     */
+    public void markChanged(Entity entity, Class<?> compType) {
+        if(entityManager.isAlive(entity)) {
+            CompPool pool = getCompPoolOrNull(CompTypes.idOf(compType));
+            if(pool != null) pool.markChanged(entity);
+        }
+    }
+
+    /**
+     * Включает повторное использование объектов компонентов типа compType. После вызова этого метода
+     * компоненты этого типа, удаляемые через методы detach этого менеджера (в том числе через
+     * {@link #detachAllComps(Entity)}), а также компоненты, замещаемые другим экземпляром через методы attach
+     * этого менеджера, помещаются в список свободных экземпляров, откуда их можно
+     * получить через {@link #obtainComp(Class)} или {@link #attachRecycledComp(Entity, Class)}.
+     * Подробнее см. {@link CompRecycler}.
+     */
+    public <T> CompRecycler<T> enableRecycling(Class<T> compType,
+                                               Supplier<T> factory,
+                                               Consumer<T> resetter,
+                                               int maxSize) {
+        final int compTypeId = CompTypes.idOf(compType);
+        CompRecycler<T> recycler = new CompRecycler<>(factory, resetter, maxSize);
+        ensureCapacity(compTypeId);
+        recyclers[compTypeId] = recycler;
+        return recycler;
+    }
+
+    public void disableRecycling(Class<?> compType) {
+        final int compTypeId = CompTypes.idOf(compType);
+        if(compTypeId < recyclers.length) recyclers[compTypeId] = null;
+    }
+
+    /**
+     * Возвращает сброшенный свободный экземпляр компонента указанного типа, либо новый экземпляр.
+     * @throws IllegalStateException если для этого типа компонентов не было вызвано
+     *                               {@link #enableRecycling(Class, Supplier, Consumer, int)}.
+     */
+    public <T> T obtainComp(Class<T> compType) {
+        CompRecycler<T> recycler = (CompRecycler<T>) getRecyclerOrNull(CompTypes.idOf(compType));
+        if(recycler == null) {
+            throw new IllegalStateException("Recycling is not enabled for comp type " + compType.getName());
+        }
+        return recycler.obtain();
+    }
+
+    /**
+     * Получает экземпляр компонента через {@link #obtainComp(Class)}, добавляет его сущности и возвращает.
+     * Если сущность не жива - ничего не делает и возвращает null.
+     */
+    public <T> T attachRecycledComp(Entity entity, Class<T> compType) {
+        T comp = null;
+        if(entityManager.isAlive(entity)) {
+            comp = obtainComp(compType);
+            attachCompIgnoringEntityState(entity, comp);
+        }
+        return comp;
+    }
+
+    /**
+     * Освобождает неиспользуемую память всех пулов компонентов (см. {@link CompPool#trim()}).
+     */
+    public void trim() {
+        for(CompPool pool : compPools) {
+            if(pool != null) pool.trim();
+        }
+    }
+
+    /**
+     * Включает или выключает автоматическое уменьшение емкости (см. {@link AbstractSparseSet#setAutoTrim(boolean)})
+     * для всех пулов компонентов построенных на {@link AbstractSparseSet}, включая пулы, которые будут
+     * созданы этим менеджером позже.
+     */
+    public void setAutoTrim(boolean autoTrim) {
+        this.autoTrim = autoTrim;
+        for(CompPool pool : compPools) {
+            if(pool instanceof AbstractSparseSet sparseSet) sparseSet.setAutoTrim(autoTrim);
+        }
+    }
+
+    /**
+     * Создает представление сущностей, которые имеют компоненты обоих указанных типов. Представление
+     * не хранит выборку сущностей: при каждом обходе оно проходит по плотному массиву наименьшего из
+     * пулов и проверяет наличие компонентов в остальном пуле через его разреженный массив.
+     */
+    public <A, B> View2<A, B> createView(Class<A> firstCompType, Class<B> secondCompType) {
+        return new View2<>(this, firstCompType, secondCompType);
+    }
+
+    /**
+     * Аналог {@link #createView(Class, Class)} для трех типов компонентов.
+     */
+    public <A, B, C> View3<A, B, C> createView(Class<A> firstCompType,
+                                               Class<B> secondCompType,
+                                               Class<C> thirdCompType) {
+        return new View3<>(this, firstCompType, secondCompType, thirdCompType);
+    }
+
+    /**
+     * Создает группу ({@link Group}) для пулов компонентов указанных типов. Если пул для какого-либо
+     * из типов ещё не существует, для него будет создан и зарегистрирован {@link SparseSet}.
+     * @throws IllegalArgumentException если пул какого-либо из типов не является {@link AbstractSparseSet}.
+     * @throws IllegalStateException если пул какого-либо из типов уже принадлежит другой группе.
+     */
+    public Group createGroup(Class<?>... compTypes) {
+        AbstractSparseSet[] pools = new AbstractSparseSet[compTypes.length];
+        for(int i = 0; i < compTypes.length; ++i) {
+            final int compTypeId = CompTypes.idOf(compTypes[i]);
+            ensureCapacity(compTypeId);
+            if(compPools[compTypeId] == null) compPools[compTypeId] = createSparseSet();
+            CompPool pool = compPools[compTypeId];
+            if(!(pool instanceof AbstractSparseSet sparseSet)) {
+                throw new IllegalArgumentException(
+                        "Comp pool for type %s must be AbstractSparseSet. Actual: %s".formatted(compTypes[i], pool)
+                );
+            }
+            pools[i] = sparseSet;
+        }
+        return new Group(pools);
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * @throws IllegalStateException если менеджер компонентов использует способ хранения отличный
+     *                               от {@link StorageMode#ARCHETYPES}.
+     */
+    public ArchetypeStorage getArchetypeStorage() {
+        if(archetypeStorage == null) {
+            throw new IllegalStateException("Archetype storage is unavailable for storage mode " + storageMode);
+        }
+        return archetypeStorage;
+    }
+
+    /**
+     * Закрывает все пулы компонентов, которые реализуют {@link AutoCloseable} (например,
+     * {@link OffHeapStructPool}). Если при закрытии одного
+     * из пулов возникло исключение, остальные пулы все равно будут закрыты, а исключение будет
+     * выброшено после этого.
+     * @throws IllegalStateException если при закрытии хотя бы одного из пулов возникло исключение.
+     */
+    @Override
+    public void close() {
+        IllegalStateException exception = null;
+        for(CompPool pool : compPools) {
+            if(pool instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch(Exception e) {
+                    if(exception == null) exception = new IllegalStateException("Fail to close comp pool.", e);
+                    else exception.addSuppressed(e);
+                }
+            }
+        }
+        if(exception != null) throw exception;
     }
 
 
     private void attachCompIgnoringEntityState(Entity entity, Object comp) {
-        compPools.computeIfAbsent(
-                        comp.getClass(),
-                        compType -> new SparseSet()
-                )
-                .attachComp(entity, comp);
+        CompPool pool = getOrCreateCompPool(comp.getClass());
+        CompRecycler<Object> recycler = getRecyclerOrNull(CompTypes.idOf(comp.getClass()));
+        if(recycler != null) recycleReplacedComp(recycler, pool, entity, comp);
+        pool.attachComp(entity, comp);
+    }
+
+    private CompPool getOrCreateCompPool(Class<?> compType) {
+        final int compTypeId = CompTypes.idOf(compType);
+        CompPool pool = getCompPoolOrNull(compTypeId);
+        if(pool == null) {
+            pool = createDefaultCompPool(compType);
+            ensureCapacity(compTypeId);
+            compPools[compTypeId] = pool;
+        }
+        return pool;
+    }
+
+    private CompPool getCompPoolOrNull(int compTypeId) {
+        return compTypeId < compPools.length ? compPools[compTypeId] : null;
+    }
+
+    private CompRecycler<Object> getRecyclerOrNull(int compTypeId) {
+        return compTypeId < recyclers.length ? (CompRecycler<Object>) recyclers[compTypeId] : null;
+    }
+
+    private void ensureCapacity(int compTypeId) {
+        if(compTypeId >= compPools.length) {
+            int newLength = Math.max(compTypeId + 1, compPools.length + (compPools.length >>> 1));
+            compPools = Arrays.copyOf(compPools, newLength);
+            recyclers = Arrays.copyOf(recyclers, newLength);
+        }
+    }
+
+    private int nextAliveEntity(Entity[] entities, int from) {
+        while(from < entities.length && !entityManager.isAlive(entities[from])) ++from;
+        return from;
+    }
+
+    private SparseSet createSparseSet() {
+        SparseSet sparseSet = new SparseSet();
+        sparseSet.setAutoTrim(autoTrim);
+        return sparseSet;
+    }
+
+    private CompPool createDefaultCompPool(Class<?> compType) {
+        if(compType.isAnnotationPresent(Marker.class)) return new MarkerPool(entityManager);
+        return switch(storageMode) {
+            case SPARSE_SETS -> createSparseSet();
+            case ARCHETYPES -> archetypeStorage.getCompPool(compType);
+        };
+    }
+
+    private void detachCompIgnoringEntityState(Entity entity, int compTypeId) {
+        CompPool store = getCompPoolOrNull(compTypeId);
+        if(store != null) {
+            CompRecycler<Object> recycler = getRecyclerOrNull(compTypeId);
+            if(recycler != null) recycleComp(recycler, store, entity);
+            store.detachComp(entity);
+        }
+    }
+
+    private void recycleComp(CompRecycler<Object> recycler, CompPool pool, Entity entity) {
+        Object comp = pool.getComp(entity);
+        if(comp != null) recycler.recycle(comp);
     }
 
-    private <T> void detachCompIgnoringEntityState(Entity entity, Class<T> compType) {
-        CompPool store = compPools.get(compType);
-        if(store != null) store.detachComp(entity);
+    private void recycleReplacedComp(CompRecycler<Object> recycler, CompPool pool, Entity entity, Object newComp) {
+        Object comp = pool.getComp(entity);
+        if(comp != null && comp != newComp) recycler.recycle(comp);
     }
 
-    private <T> boolean hasComponentIgnoringEntityState(Entity entity, Class<T> compType) {
-        CompPool compPool = compPools.get(compType);
+    private boolean hasComponentIgnoringEntityState(Entity entity, int compTypeId) {
+        CompPool compPool = getCompPoolOrNull(compTypeId);
         return compPool != null && compPool.hasComp(entity);
     }
 }
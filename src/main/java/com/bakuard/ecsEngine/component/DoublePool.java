@@ -0,0 +1,168 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Пул компонентов, каждый из которых представляет собой одно значение типа double. Значения хранятся
+ * в плотном массиве примитивов и доступны через типизированные методы без упаковки. Методы общего
+ * интерфейса {@link CompPool} (например {@link #getComp(Entity)}) также поддерживаются, но работают
+ * с упакованными значениями.
+ */
+public final class DoublePool extends AbstractSparseSet {
+
+    private static final int INIT_CAPACITY = 10;
+
+
+    private double[] comps;
+
+    public DoublePool() {
+        comps = new double[INIT_CAPACITY];
+    }
+
+    public void attachDouble(Entity entity, double comp) {
+        final boolean isNew = !hasComp(entity);
+        final int compIndex = attachEntity(entity);
+        comps[compIndex] = comp;
+        notifyAttached(entity, isNew);
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        assertDouble(component);
+        super.attachComp(entity, component);
+    }
+
+    @Override
+    public void attachComps(Entity[] entities, Object[] comps, int from, int to) {
+        for(int i = from; i < to; ++i) assertDouble(comps[i]);
+        super.attachComps(entities, comps, from, to);
+    }
+
+    /**
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public double getDouble(Entity entity) {
+        return comps[getExistedDenseIndex(entity)];
+    }
+
+    /**
+     * Уведомляет слушателей пула об изменении компонента (см. {@link CompPool.Listener#afterChange(Entity)}).
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public void setDouble(Entity entity, double comp) {
+        comps[getExistedDenseIndex(entity)] = comp;
+        notifyChanged(entity);
+    }
+
+    public double getDoubleFromDensityArray(int index) {
+        assertInBound(index);
+        return comps[index];
+    }
+
+    /**
+     * Изменяет компонент по индексу в плотном массиве, не уведомляя слушателей пула: {@link ChangeTracker},
+     * {@link HashIndex} и {@link SortedIndex} этого изменения не увидят. Если у пула есть слушатели, после
+     * изменения следует вызвать {@link #markChanged(Entity)} или использовать
+     * {@link #setDoubleInDensityArrayAndNotify(int, double)}.
+     */
+    public void setDoubleInDensityArray(int index, double comp) {
+        assertInBound(index);
+        comps[index] = comp;
+    }
+
+    /**
+     * Аналог {@link #setDoubleInDensityArray(int, double)}, который уведомляет слушателей пула об изменении
+     * компонента (см. {@link CompPool.Listener#afterChange(Entity)}). Слушатели вызываются в текущем потоке,
+     * поэтому во время параллельного обхода этот метод можно использовать только с потокобезопасными слушателями.
+     */
+    public void setDoubleInDensityArrayAndNotify(int index, double comp) {
+        assertInBound(index);
+        comps[index] = comp;
+        notifyChanged(getEntityUnchecked(index));
+    }
+
+    public void forEachDouble(DoubleEntryConsumer consumer) {
+        for(int i = size() - 1; i >= 0; --i) {
+            consumer.accept(getEntityUnchecked(i), comps[i]);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (o != null && getClass() == o.getClass()) {
+            DoublePool other = (DoublePool)o;
+
+            boolean result = size() == other.size();
+            for(int i = 0; i < size() && result; ++i) {
+                result = Double.compare(comps[i], other.comps[i]) == 0 && getPackedEntityUnchecked(i) == other.getPackedEntityUnchecked(i);
+            }
+            return result;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size();
+        for(int i = 0; i < size(); ++i) {
+            result = result * 31 + Double.hashCode(comps[i]);
+            result = result * 31 + Long.hashCode(getPackedEntityUnchecked(i));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DoublePool{" +
+                "size: " + size() +
+                ", comps: " + Arrays.toString(Arrays.copyOf(comps, size())) +
+                ", entities: " + entitiesToString() +
+                '}';
+    }
+
+
+    @Override
+    protected void growCompsArray(int newCapacity) {
+        comps = Arrays.copyOf(comps, newCapacity);
+    }
+
+    @Override
+    protected void moveComp(int from, int to) {
+        comps[to] = comps[from];
+    }
+
+    @Override
+    protected void swapComps(int first, int second) {
+        double temp = comps[first];
+        comps[first] = comps[second];
+        comps[second] = temp;
+    }
+
+    @Override
+    protected Object getBoxedComp(int index) {
+        return comps[index];
+    }
+
+    @Override
+    protected void setBoxedComp(int index, Object comp) {
+        comps[index] = (Double) comp;
+    }
+
+
+    private void assertDouble(Object component) {
+        if(!(component instanceof Double)) {
+            throw new IllegalArgumentException("Expected Double. Actual: %s".formatted(component));
+        }
+    }
+
+
+    @FunctionalInterface
+    public static interface DoubleEntryConsumer {
+        public void accept(Entity entity, double comp);
+    }
+}
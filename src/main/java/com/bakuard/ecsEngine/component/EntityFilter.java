@@ -9,40 +9,88 @@ public final class EntityFilter {
 
     private final ReadableLinearStructure<String> allTags;
     private final ReadableLinearStructure<String> noneTags;
+    private final ReadableLinearStructure<String> anyTags;
     private final ReadableLinearStructure<Class<?>> allComps;
     private final ReadableLinearStructure<Class<?>> noneComps;
+    private final ReadableLinearStructure<Class<?>> anyComps;
+    private final ReadableLinearStructure<EntityFilter> anyOf;
+    private final ReadableLinearStructure<EntityFilter> noneOf;
+    private int hashCode;
 
     public EntityFilter() {
         allTags = new DynamicArray<>();
         noneTags = new DynamicArray<>();
+        anyTags = new DynamicArray<>();
         allComps = new DynamicArray<>();
         noneComps = new DynamicArray<>();
+        anyComps = new DynamicArray<>();
+        anyOf = new DynamicArray<>();
+        noneOf = new DynamicArray<>();
     }
 
     private EntityFilter(ReadableLinearStructure<String> allTags,
 						 ReadableLinearStructure<String> noneTags,
+						 ReadableLinearStructure<String> anyTags,
 						 ReadableLinearStructure<Class<?>> allComps,
-						 ReadableLinearStructure<Class<?>> noneComps) {
+						 ReadableLinearStructure<Class<?>> noneComps,
+						 ReadableLinearStructure<Class<?>> anyComps,
+						 ReadableLinearStructure<EntityFilter> anyOf,
+						 ReadableLinearStructure<EntityFilter> noneOf) {
         this.allTags = allTags;
         this.noneTags = noneTags;
+        this.anyTags = anyTags;
         this.allComps = allComps;
         this.noneComps = noneComps;
+        this.anyComps = anyComps;
+        this.anyOf = anyOf;
+        this.noneOf = noneOf;
     }
 
     public EntityFilter allComps(Class<?>... compTypes) {
-        return new EntityFilter(allTags, noneTags, DynamicArray.of(compTypes), noneComps);
+        return new EntityFilter(allTags, noneTags, anyTags, DynamicArray.of(compTypes), noneComps, anyComps, anyOf, noneOf);
     }
 
     public EntityFilter noneComps(Class<?>... compTypes) {
-        return new EntityFilter(allTags, noneTags, allComps, DynamicArray.of(compTypes));
+        return new EntityFilter(allTags, noneTags, anyTags, allComps, DynamicArray.of(compTypes), anyComps, anyOf, noneOf);
+    }
+
+    /**
+     * Сущность удовлетворяет фильтру, только если имеет хотя бы один из указанных компонентов.
+     * Пустой список не накладывает ограничений.
+     */
+    public EntityFilter anyComps(Class<?>... compTypes) {
+        return new EntityFilter(allTags, noneTags, anyTags, allComps, noneComps, DynamicArray.of(compTypes), anyOf, noneOf);
     }
 
     public EntityFilter allTags(String... tags) {
-        return new EntityFilter(DynamicArray.of(tags), noneTags, allComps, noneComps);
+        return new EntityFilter(DynamicArray.of(tags), noneTags, anyTags, allComps, noneComps, anyComps, anyOf, noneOf);
     }
 
     public EntityFilter noneTags(String... tags) {
-        return new EntityFilter(allTags, DynamicArray.of(tags), allComps, noneComps);
+        return new EntityFilter(allTags, DynamicArray.of(tags), anyTags, allComps, noneComps, anyComps, anyOf, noneOf);
+    }
+
+    /**
+     * Сущность удовлетворяет фильтру, только если имеет хотя бы один из указанных тегов.
+     * Пустой список не накладывает ограничений.
+     */
+    public EntityFilter anyTags(String... tags) {
+        return new EntityFilter(allTags, noneTags, DynamicArray.of(tags), allComps, noneComps, anyComps, anyOf, noneOf);
+    }
+
+    /**
+     * Сущность удовлетворяет фильтру, только если удовлетворяет хотя бы одному из вложенных фильтров.
+     * Пустой список не накладывает ограничений.
+     */
+    public EntityFilter anyOf(EntityFilter... filters) {
+        return new EntityFilter(allTags, noneTags, anyTags, allComps, noneComps, anyComps, DynamicArray.of(filters), noneOf);
+    }
+
+    /**
+     * Сущность удовлетворяет фильтру, только если не удовлетворяет ни одному из вложенных фильтров.
+     */
+    public EntityFilter noneOf(EntityFilter... filters) {
+        return new EntityFilter(allTags, noneTags, anyTags, allComps, noneComps, anyComps, anyOf, DynamicArray.of(filters));
     }
 
     public ReadableLinearStructure<Class<?>> getAllComps() {
@@ -53,6 +101,10 @@ public final class EntityFilter {
         return noneComps;
     }
 
+    public ReadableLinearStructure<Class<?>> getAnyComps() {
+        return anyComps;
+    }
+
     public ReadableLinearStructure<String> getAllTags() {
         return allTags;
     }
@@ -61,6 +113,18 @@ public final class EntityFilter {
         return noneTags;
     }
 
+    public ReadableLinearStructure<String> getAnyTags() {
+        return anyTags;
+    }
+
+    public ReadableLinearStructure<EntityFilter> getAnyOf() {
+        return anyOf;
+    }
+
+    public ReadableLinearStructure<EntityFilter> getNoneOf() {
+        return noneOf;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -68,13 +132,22 @@ public final class EntityFilter {
         EntityFilter entityFilter = (EntityFilter) o;
         return allTags.equals(entityFilter.allTags)
                 && noneTags.equals(entityFilter.noneTags)
+                && anyTags.equals(entityFilter.anyTags)
                 && allComps.equals(entityFilter.allComps)
-                && noneComps.equals(entityFilter.noneComps);
+                && noneComps.equals(entityFilter.noneComps)
+                && anyComps.equals(entityFilter.anyComps)
+                && anyOf.equals(entityFilter.anyOf)
+                && noneOf.equals(entityFilter.noneOf);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(allTags, noneTags, allComps, noneComps);
+        int result = hashCode;
+        if(result == 0) {
+            result = Objects.hash(allTags, noneTags, anyTags, allComps, noneComps, anyComps, anyOf, noneOf);
+            hashCode = result;
+        }
+        return result;
     }
 
     @Override
@@ -84,6 +157,10 @@ public final class EntityFilter {
                 + ", noneTags: " + getNoneTags()
                 + ", allComps: " + getAllComps()
                 + ", noneComps: " + getNoneComps()
+                + ", anyTags: " + getAnyTags()
+                + ", anyComps: " + getAnyComps()
+                + ", anyOf: " + getAnyOf()
+                + ", noneOf: " + getNoneOf()
                 + "}";
     }
 }
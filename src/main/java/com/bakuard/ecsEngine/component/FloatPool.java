@@ -0,0 +1,168 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Пул компонентов, каждый из которых представляет собой одно значение типа float. Значения хранятся
+ * в плотном массиве примитивов и доступны через типизированные методы без упаковки. Методы общего
+ * интерфейса {@link CompPool} (например {@link #getComp(Entity)}) также поддерживаются, но работают
+ * с упакованными значениями.
+ */
+public final class FloatPool extends AbstractSparseSet {
+
+    private static final int INIT_CAPACITY = 10;
+
+
+    private float[] comps;
+
+    public FloatPool() {
+        comps = new float[INIT_CAPACITY];
+    }
+
+    public void attachFloat(Entity entity, float comp) {
+        final boolean isNew = !hasComp(entity);
+        final int compIndex = attachEntity(entity);
+        comps[compIndex] = comp;
+        notifyAttached(entity, isNew);
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        assertFloat(component);
+        super.attachComp(entity, component);
+    }
+
+    @Override
+    public void attachComps(Entity[] entities, Object[] comps, int from, int to) {
+        for(int i = from; i < to; ++i) assertFloat(comps[i]);
+        super.attachComps(entities, comps, from, to);
+    }
+
+    /**
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public float getFloat(Entity entity) {
+        return comps[getExistedDenseIndex(entity)];
+    }
+
+    /**
+     * Уведомляет слушателей пула об изменении компонента (см. {@link CompPool.Listener#afterChange(Entity)}).
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public void setFloat(Entity entity, float comp) {
+        comps[getExistedDenseIndex(entity)] = comp;
+        notifyChanged(entity);
+    }
+
+    public float getFloatFromDensityArray(int index) {
+        assertInBound(index);
+        return comps[index];
+    }
+
+    /**
+     * Изменяет компонент по индексу в плотном массиве, не уведомляя слушателей пула: {@link ChangeTracker},
+     * {@link HashIndex} и {@link SortedIndex} этого изменения не увидят. Если у пула есть слушатели, после
+     * изменения следует вызвать {@link #markChanged(Entity)} или использовать
+     * {@link #setFloatInDensityArrayAndNotify(int, float)}.
+     */
+    public void setFloatInDensityArray(int index, float comp) {
+        assertInBound(index);
+        comps[index] = comp;
+    }
+
+    /**
+     * Аналог {@link #setFloatInDensityArray(int, float)}, который уведомляет слушателей пула об изменении
+     * компонента (см. {@link CompPool.Listener#afterChange(Entity)}). Слушатели вызываются в текущем потоке,
+     * поэтому во время параллельного обхода этот метод можно использовать только с потокобезопасными слушателями.
+     */
+    public void setFloatInDensityArrayAndNotify(int index, float comp) {
+        assertInBound(index);
+        comps[index] = comp;
+        notifyChanged(getEntityUnchecked(index));
+    }
+
+    public void forEachFloat(FloatEntryConsumer consumer) {
+        for(int i = size() - 1; i >= 0; --i) {
+            consumer.accept(getEntityUnchecked(i), comps[i]);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (o != null && getClass() == o.getClass()) {
+            FloatPool other = (FloatPool)o;
+
+            boolean result = size() == other.size();
+            for(int i = 0; i < size() && result; ++i) {
+                result = Float.compare(comps[i], other.comps[i]) == 0 && getPackedEntityUnchecked(i) == other.getPackedEntityUnchecked(i);
+            }
+            return result;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size();
+        for(int i = 0; i < size(); ++i) {
+            result = result * 31 + Float.hashCode(comps[i]);
+            result = result * 31 + Long.hashCode(getPackedEntityUnchecked(i));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FloatPool{" +
+                "size: " + size() +
+                ", comps: " + Arrays.toString(Arrays.copyOf(comps, size())) +
+                ", entities: " + entitiesToString() +
+                '}';
+    }
+
+
+    @Override
+    protected void growCompsArray(int newCapacity) {
+        comps = Arrays.copyOf(comps, newCapacity);
+    }
+
+    @Override
+    protected void moveComp(int from, int to) {
+        comps[to] = comps[from];
+    }
+
+    @Override
+    protected void swapComps(int first, int second) {
+        float temp = comps[first];
+        comps[first] = comps[second];
+        comps[second] = temp;
+    }
+
+    @Override
+    protected Object getBoxedComp(int index) {
+        return comps[index];
+    }
+
+    @Override
+    protected void setBoxedComp(int index, Object comp) {
+        comps[index] = (Float) comp;
+    }
+
+
+    private void assertFloat(Object component) {
+        if(!(component instanceof Float)) {
+            throw new IllegalArgumentException("Expected Float. Actual: %s".formatted(component));
+        }
+    }
+
+
+    @FunctionalInterface
+    public static interface FloatEntryConsumer {
+        public void accept(Entity entity, float comp);
+    }
+}
@@ -0,0 +1,154 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Группа владеет несколькими пулами компонентов и поддерживает их в таком состоянии, что первые
+ * {@link #size()} ячеек плотных массивов всех пулов группы соответствуют одним и тем же сущностям,
+ * т.е. сущностям, которые имеют компоненты во всех пулах группы. Это позволяет обходить такие
+ * сущности параллельным проходом по плотным массивам без обращения к разреженным массивам:
+ * <pre>
+ * group.forEach(i -> {
+ *     Position position = positions.getCompFromDensityArray(i);
+ *     Velocity velocity = velocities.getCompFromDensityArray(i);
+ *     ...
+ * });
+ * </pre>
+ * Группа обновляется инкрементально при каждом добавлении и удалении компонентов в её пулах. Пул может
+ * принадлежать только одной группе. Вызов {@link AbstractSparseSet#swap(Entity, Entity)} для пулов
+ * группы нарушает её инвариант.
+ */
+public final class Group {
+
+    private final AbstractSparseSet[] pools;
+    private final CompPool.Listener listener;
+    private int size;
+
+    /**
+     * @throws IllegalStateException если хотя бы один из пулов уже принадлежит другой группе.
+     * @throws IllegalArgumentException если pools пуст.
+     */
+    public Group(AbstractSparseSet... pools) {
+        if(pools.length == 0) {
+            throw new IllegalArgumentException("Group must own at least one pool.");
+        }
+        for(AbstractSparseSet pool : pools) {
+            if(pool.owner != null) {
+                throw new IllegalStateException("Pool %s already owned by another group.".formatted(pool));
+            }
+        }
+
+        this.pools = pools.clone();
+        this.listener = new CompPool.Listener() {
+            @Override
+            public void afterAttach(Entity entity) {
+                if(hasAllComps(entity.index())) addToGroup(entity.index());
+            }
+
+            @Override
+            public void beforeDetach(Entity entity) {
+                removeFromGroup(entity.index());
+            }
+        };
+
+        for(AbstractSparseSet pool : this.pools) {
+            pool.owner = this;
+            pool.addListener(listener);
+        }
+
+        AbstractSparseSet smallest = this.pools[0];
+        for(AbstractSparseSet pool : this.pools) {
+            if(pool.size() < smallest.size()) smallest = pool;
+        }
+        for(int i = 0; i < smallest.size(); ++i) {
+            int entityIndex = Entity.indexOf(smallest.getPackedEntityUnchecked(i));
+            if(hasAllComps(entityIndex)) addToGroup(entityIndex);
+        }
+    }
+
+    /**
+     * Возвращает кол-во сущностей, которые имеют компоненты во всех пулах группы.
+     */
+    public int size() {
+        return size;
+    }
+
+    public AbstractSparseSet getPool(int index) {
+        return pools[index];
+    }
+
+    public int poolsNumber() {
+        return pools.length;
+    }
+
+    public boolean contains(Entity entity) {
+        return contains(entity.index());
+    }
+
+    /**
+     * Возвращает сущность, компоненты которой расположены в ячейке index плотных массивов всех
+     * пулов группы.
+     */
+    public Entity getEntity(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Expected: index >= 0 and index < size. Actual: index = %d, size = %d".formatted(index, size));
+        }
+        return pools[0].getEntityUnchecked(index);
+    }
+
+    /**
+     * Передает в consumer индексы всех ячеек плотных массивов, которые принадлежат группе. Пулы группы
+     * нельзя изменять во время обхода.
+     */
+    public void forEach(IntConsumer consumer) {
+        for(int i = size - 1; i >= 0; --i) consumer.accept(i);
+    }
+
+    /**
+     * Освобождает пулы группы. После вызова этого метода группа перестает обновляться.
+     */
+    public void disband() {
+        for(AbstractSparseSet pool : pools) {
+            pool.removeListener(listener);
+            pool.owner = null;
+        }
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Group{" +
+                "size: " + size +
+                ", pools: " + Arrays.toString(pools) +
+                '}';
+    }
+
+
+    private boolean contains(int entityIndex) {
+        int denseIndex = pools[0].getDenseIndex(entityIndex);
+        return denseIndex > -1 && denseIndex < size;
+    }
+
+    private boolean hasAllComps(int entityIndex) {
+        boolean result = true;
+        for(int i = 0; i < pools.length && result; ++i) result = pools[i].getDenseIndex(entityIndex) != -1;
+        return result;
+    }
+
+    private void addToGroup(int entityIndex) {
+        if(!contains(entityIndex)) {
+            for(AbstractSparseSet pool : pools) pool.swapDense(pool.getDenseIndex(entityIndex), size);
+            ++size;
+        }
+    }
+
+    private void removeFromGroup(int entityIndex) {
+        if(contains(entityIndex)) {
+            --size;
+            for(AbstractSparseSet pool : pools) pool.swapDense(pool.getDenseIndex(entityIndex), size);
+        }
+    }
+}
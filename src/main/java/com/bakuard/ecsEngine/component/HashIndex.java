@@ -0,0 +1,64 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.HashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Вторичный хеш-индекс по значениям компонентов одного пула. Позволяет находить сущности по равенству
+ * ключа, извлеченного из компонента (например, "сущность с PlayerId == 8812" или "все сущности с
+ * Team == RED"), без перебора всего пула. Подробнее о поддержании индекса см. {@link AbstractCompIndex}.
+ * <br/><br/>
+ * Экземпляр этого класса не является потокобезопасным.
+ */
+public final class HashIndex<T, K> extends AbstractCompIndex<T, K> {
+
+    /**
+     * @param keyExtractor извлекает ключ из компонента пула.
+     * @throws UnsupportedOperationException если pool не поддерживает слушателей.
+     */
+    public HashIndex(CompPool pool, Function<T, K> keyExtractor) {
+        super(pool, keyExtractor, new HashMap<>());
+    }
+
+    /**
+     * Возвращает кол-во сущностей с указанным ключом.
+     */
+    public int count(K key) {
+        return size(entryOf(key));
+    }
+
+    /**
+     * Возвращает одну из сущностей с указанным ключом или null, если таких сущностей нет. Удобен для
+     * уникальных ключей.
+     */
+    public Entity findFirst(K key) {
+        Entry entry = entryOf(key);
+        return size(entry) > 0 ? entityAt(entry, 0) : null;
+    }
+
+    /**
+     * Передает в consumer все сущности с указанным ключом. Во время обхода допускается удалять
+     * компонент текущей сущности.
+     */
+    public void forEach(K key, Consumer<Entity> consumer) {
+        forEach(entryOf(key), consumer);
+    }
+
+    /**
+     * Записывает в result индексы всех сущностей с указанным ключом. Предыдущее содержимое result удаляется.
+     * @return result.
+     */
+    public Bits select(K key, Bits result) {
+        select(entryOf(key), prepareResult(result));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "HashIndex{keysNumber: " + keysNumber() + ", pool: " + getPool() + '}';
+    }
+}
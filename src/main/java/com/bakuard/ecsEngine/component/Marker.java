@@ -0,0 +1,16 @@
+package com.bakuard.ecsEngine.component;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает тип компонента-маркера, т.е. компонента без данных, который используется только для выборки
+ * сущностей. Для таких типов {@link CompsManager} автоматически создает {@link MarkerPool}, который
+ * хранит только битовую маску индексов сущностей.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Marker {
+}
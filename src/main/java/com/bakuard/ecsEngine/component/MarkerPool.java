@@ -0,0 +1,171 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.BiConsumer;
+
+/**
+ * Пул компонентов-маркеров (см. {@link Marker}). Хранит только битовую маску индексов сущностей, которые
+ * имеют компонент, и один общий экземпляр компонента, который возвращается для всех сущностей. Сущности
+ * при обходе пула восстанавливаются по индексу через {@link EntityManager}.
+ */
+public final class MarkerPool implements CompPool {
+
+    private static final Listener[] EMPTY_LISTENERS = new Listener[0];
+
+
+    private final EntityManager entityManager;
+    private final Bits entityIndexes;
+    private final BlockSummary entityIndexesSummary;
+    private Object marker;
+    private int size;
+    private int actualModCount;
+    private Listener[] listeners;
+
+    public MarkerPool(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.entityIndexes = new Bits(128);
+        this.entityIndexesSummary = new BlockSummary();
+        this.listeners = EMPTY_LISTENERS;
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        ++actualModCount;
+        marker = component;
+
+        final int index = entity.index();
+        if(hasComp(entity)) {
+            for(Listener listener : listeners) listener.afterChange(entity);
+        } else {
+            entityIndexes.growToIndex(index).set(index);
+            entityIndexesSummary.onSet(index);
+            ++size;
+            for(Listener listener : listeners) listener.afterAttach(entity);
+        }
+    }
+
+    @Override
+    public void detachComp(Entity entity) {
+        ++actualModCount;
+        if(hasComp(entity)) {
+            for(Listener listener : listeners) listener.beforeDetach(entity);
+            entityIndexes.clear(entity.index());
+            entityIndexesSummary.onClear(entity.index());
+            --size;
+        }
+    }
+
+    @Override
+    public <T> T getComp(Entity entity) {
+        return hasComp(entity) ? (T) marker : null;
+    }
+
+    @Override
+    public boolean hasComp(Entity entity) {
+        return entityIndexes.inBound(entity.index()) && entityIndexes.get(entity.index());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public <T> void forEach(BiConsumer<Entity, T> consumer) {
+        for(int i = entityIndexes.nextSetBit(0); i != -1; i = entityIndexes.nextSetBit(i + 1)) {
+            consumer.accept(entityManager.getEntityByIndex(i), (T) marker);
+        }
+    }
+
+    @Override
+    public <T> EntryIterator<T> iterator() {
+        return new EntryIteratorImpl<>(actualModCount);
+    }
+
+    @Override
+    public Bits getEntityIndexesMask() {
+        return entityIndexes;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        for(int i = 0; i < listeners.length; ++i) {
+            if(listeners[i] == listener) {
+                Listener[] newListeners = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+                listeners = newListeners;
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void markChanged(Entity entity) {
+        if(hasComp(entity)) {
+            for(Listener listener : listeners) listener.afterChange(entity);
+        }
+    }
+
+    /**
+     * Уменьшает битовую маску до максимального индекса сущности в пуле. Маска уменьшается на месте,
+     * поэтому ранее полученная через {@link #getEntityIndexesMask()} маска остается актуальной.
+     */
+    @Override
+    public void trim() {
+        ++actualModCount;
+        int lastIndex = -1;
+        for(int i = entityIndexes.nextSetBit(0); i != -1; i = entityIndexes.nextSetBit(i + 1)) lastIndex = i;
+
+        entityIndexes.compressTo(Math.max(128, lastIndex + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "MarkerPool{" +
+                "size: " + size +
+                ", marker: " + marker +
+                ", entityIndexes: " + entityIndexes +
+                '}';
+    }
+
+
+    private class EntryIteratorImpl<E> implements EntryIterator<E> {
+        private final int expectedModCount;
+        private int currentIndex = -1;
+        private boolean hasRecent;
+
+        public EntryIteratorImpl(int expectedModCount) {
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean next() {
+            if(actualModCount != expectedModCount) throw new ConcurrentModificationException();
+            currentIndex = entityIndexes.nextSetBit(currentIndex + 1);
+            hasRecent = currentIndex != -1;
+            return hasRecent;
+        }
+
+        @Override
+        public Entity recentEntity() {
+            return hasRecent ? entityManager.getEntityByIndex(currentIndex) : null;
+        }
+
+        @Override
+        public E recentComp() {
+            return hasRecent ? (E) marker : null;
+        }
+    }
+}
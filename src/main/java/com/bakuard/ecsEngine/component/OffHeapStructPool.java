@@ -0,0 +1,304 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Пул компонентов фиксированного размера, структура которых описана с помощью {@link StructLayout}.
+ * В отличие от {@link StructPool}, данные компонентов хранятся вне кучи Java (в {@link MemorySegment},
+ * выделенном в собственной {@link Arena}) в виде
+ * плотно упакованных записей по {@link StructLayout#byteSize()} байт, поэтому не увеличивают объем
+ * работы сборщика мусора. Битовая маска индексов сущностей и сами сущности по-прежнему хранятся
+ * в куче.
+ * <br/><br/>
+ * Емкость пула увеличивается автоматически, но её также можно увеличить заранее с помощью
+ * {@link #ensureCapacity(int)}. Каждое изменение емкости выделяет новый участок памяти, копирует в него
+ * данные и сразу освобождает предыдущий участок, не дожидаясь сборщика мусора.
+ * <br/><br/>
+ * После завершения работы с пулом следует вызвать {@link #close()} - это делается автоматически при вызове
+ * {@link com.bakuard.ecsEngine.World#close()}. Закрытие пула немедленно освобождает память вне кучи. Любое
+ * обращение к данным компонентов закрытого пула приводит к {@link IllegalStateException}.
+ * <br/><br/>
+ * Пул использует Foreign Function &amp; Memory API, которое в Java 21 является preview API, поэтому
+ * приложение должно запускаться с флагом {@code --enable-preview}.
+ * <br/><br/>
+ * Методы общего интерфейса {@link CompPool} также поддерживаются: {@link #getComp(Entity)} возвращает
+ * копию данных компонента в виде {@link ByteBuffer} в куче с порядком байт {@link ByteOrder#nativeOrder()},
+ * а {@link #attachComp(Entity, Object)} принимает {@link ByteBuffer} с данными компонента (начиная
+ * с текущей позиции буфера). Если порядок байт переданного буфера отличается от
+ * {@link ByteOrder#nativeOrder()}, поля компонента копируются по одному с преобразованием порядка байт.
+ * <br/><br/>
+ * Методы доступа к полям по индексу в плотном массиве проверяют, что индекс меньше {@link #size()},
+ * и выбрасывают {@link IndexOutOfBoundsException} в противном случае.
+ */
+public final class OffHeapStructPool extends AbstractSparseSet implements AutoCloseable {
+
+    private static final int INIT_CAPACITY = 10;
+
+
+    private final StructLayout layout;
+    private final int stride;
+    private final MemorySegment swapBuffer;
+    private Arena arena;
+    private MemorySegment data;
+    private int capacity;
+
+    public OffHeapStructPool(StructLayout layout) {
+        this(layout, INIT_CAPACITY);
+    }
+
+    public OffHeapStructPool(StructLayout layout, int initCapacity) {
+        if(layout.byteSize() == 0) {
+            throw new IllegalArgumentException("Layout must contain at least one field.");
+        }
+        this.layout = layout;
+        this.stride = layout.byteSize();
+        this.swapBuffer = MemorySegment.ofArray(new byte[stride]);
+        reallocate(Math.max(initCapacity, INIT_CAPACITY));
+    }
+
+    public StructLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Увеличивает емкость хранилища данных компонентов так, чтобы в нем поместилось не менее указанного
+     * кол-ва компонентов. Если текущая емкость уже достаточна - ничего не делает.
+     */
+    public void ensureCapacity(int minCapacity) {
+        assertNotClosed();
+        if(minCapacity > capacity) reallocate(minCapacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Добавляет сущности компонент, все поля которого равны нулю. Если сущность уже имеет компонент
+     * в этом пуле - обнуляет его поля.
+     * @return индекс компонента в плотном массиве.
+     */
+    public int attachStruct(Entity entity) {
+        assertNotClosed();
+        final boolean isNew = !hasComp(entity);
+        final long offset = (long) attachEntity(entity) * stride;
+        data.asSlice(offset, stride).fill((byte) 0);
+        notifyAttached(entity, isNew);
+        return getDenseIndex(entity);
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        assertNotClosed();
+        assertBuffer(component);
+        super.attachComp(entity, component);
+    }
+
+    @Override
+    public void attachComps(Entity[] entities, Object[] comps, int from, int to) {
+        assertNotClosed();
+        for(int i = from; i < to; ++i) assertBuffer(comps[i]);
+        super.attachComps(entities, comps, from, to);
+    }
+
+    public int getInt(int denseIndex, int fieldIndex) {
+        return data.get(ValueLayout.JAVA_INT_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.INT));
+    }
+
+    public long getLong(int denseIndex, int fieldIndex) {
+        return data.get(ValueLayout.JAVA_LONG_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.LONG));
+    }
+
+    public float getFloat(int denseIndex, int fieldIndex) {
+        return data.get(ValueLayout.JAVA_FLOAT_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.FLOAT));
+    }
+
+    public double getDouble(int denseIndex, int fieldIndex) {
+        return data.get(ValueLayout.JAVA_DOUBLE_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.DOUBLE));
+    }
+
+    public void setInt(int denseIndex, int fieldIndex, int value) {
+        data.set(ValueLayout.JAVA_INT_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.INT), value);
+    }
+
+    public void setLong(int denseIndex, int fieldIndex, long value) {
+        data.set(ValueLayout.JAVA_LONG_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.LONG), value);
+    }
+
+    public void setFloat(int denseIndex, int fieldIndex, float value) {
+        data.set(ValueLayout.JAVA_FLOAT_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.FLOAT), value);
+    }
+
+    public void setDouble(int denseIndex, int fieldIndex, double value) {
+        data.set(ValueLayout.JAVA_DOUBLE_UNALIGNED, byteIndex(denseIndex, fieldIndex, StructLayout.FieldType.DOUBLE), value);
+    }
+
+    public boolean isClosed() {
+        return data == null;
+    }
+
+    /**
+     * Закрывает пул и немедленно освобождает занятую им память вне кучи. После вызова любое обращение
+     * к данным компонентов приводит к {@link IllegalStateException}. Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        if(arena != null) {
+            arena.close();
+            arena = null;
+            data = null;
+            capacity = 0;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (o != null && getClass() == o.getClass()) {
+            OffHeapStructPool other = (OffHeapStructPool)o;
+
+            boolean result = size() == other.size() && layout.equals(other.layout)
+                    && isClosed() == other.isClosed();
+            if(result && !isClosed()) {
+                result = usedData().mismatch(other.usedData()) == -1;
+            }
+            for(int i = 0; i < size() && result; ++i) {
+                result = getPackedEntityUnchecked(i) == other.getPackedEntityUnchecked(i);
+            }
+            return result;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size();
+        if(!isClosed()) result = result * 31 + usedData().asByteBuffer().hashCode();
+        for(int i = 0; i < size(); ++i) {
+            result = result * 31 + Long.hashCode(getPackedEntityUnchecked(i));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapStructPool{" +
+                "size: " + size() +
+                ", capacity: " + capacity +
+                ", closed: " + isClosed() +
+                ", layout: " + layout +
+                ", entities: " + entitiesToString() +
+                '}';
+    }
+
+
+    @Override
+    protected void growCompsArray(int newCapacity) {
+        ensureCapacity(newCapacity);
+    }
+
+    @Override
+    protected void shrinkCompsArray(int newCapacity) {
+        assertNotClosed();
+        if(newCapacity < capacity) reallocate(newCapacity);
+    }
+
+    @Override
+    protected void moveComp(int from, int to) {
+        assertNotClosed();
+        if(from != to) MemorySegment.copy(data, (long) from * stride, data, (long) to * stride, stride);
+    }
+
+    @Override
+    protected void swapComps(int first, int second) {
+        assertNotClosed();
+        MemorySegment.copy(data, (long) first * stride, swapBuffer, 0, stride);
+        MemorySegment.copy(data, (long) second * stride, data, (long) first * stride, stride);
+        MemorySegment.copy(swapBuffer, 0, data, (long) second * stride, stride);
+    }
+
+    @Override
+    protected Object getBoxedComp(int index) {
+        assertNotClosed();
+        ByteBuffer copy = ByteBuffer.allocate(stride).order(ByteOrder.nativeOrder());
+        MemorySegment.copy(data, (long) index * stride, MemorySegment.ofBuffer(copy), 0, stride);
+        return copy;
+    }
+
+    @Override
+    protected void setBoxedComp(int index, Object comp) {
+        assertNotClosed();
+        assertBuffer(comp);
+        ByteBuffer source = (ByteBuffer) comp;
+        if(source.order() == ByteOrder.nativeOrder()) {
+            MemorySegment.copy(MemorySegment.ofBuffer(source), 0, data, (long) index * stride, stride);
+        } else {
+            for(int i = 0; i < layout.fieldsNumber(); ++i) {
+                StructLayout.Field field = layout.getField(i);
+                final long target = (long) index * stride + field.byteOffset();
+                final int from = source.position() + field.byteOffset();
+                switch(field.type()) {
+                    case INT -> data.set(ValueLayout.JAVA_INT_UNALIGNED, target, source.getInt(from));
+                    case LONG -> data.set(ValueLayout.JAVA_LONG_UNALIGNED, target, source.getLong(from));
+                    case FLOAT -> data.set(ValueLayout.JAVA_FLOAT_UNALIGNED, target, source.getFloat(from));
+                    case DOUBLE -> data.set(ValueLayout.JAVA_DOUBLE_UNALIGNED, target, source.getDouble(from));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Выделяет новый участок памяти указанной емкости в новой арене, копирует в него данные
+     * и закрывает предыдущую арену.
+     */
+    private void reallocate(int newCapacity) {
+        Arena newArena = Arena.ofShared();
+        MemorySegment newData = newArena.allocate((long) newCapacity * stride, Long.BYTES);
+        if(arena != null) {
+            MemorySegment.copy(data, 0, newData, 0, Math.min(data.byteSize(), newData.byteSize()));
+            arena.close();
+        }
+        arena = newArena;
+        data = newData;
+        capacity = newCapacity;
+    }
+
+    private MemorySegment usedData() {
+        return data.asSlice(0, (long) size() * stride);
+    }
+
+    private long byteIndex(int denseIndex, int fieldIndex, StructLayout.FieldType expectedType) {
+        assertNotClosed();
+        assertInBound(denseIndex);
+        StructLayout.Field field = layout.getField(fieldIndex);
+        if(field.type() != expectedType) {
+            throw new IllegalArgumentException(
+                    "Field '%s' has type %s. Expected: %s".formatted(field.name(), field.type(), expectedType)
+            );
+        }
+        return (long) denseIndex * stride + field.byteOffset();
+    }
+
+    private void assertBuffer(Object component) {
+        if(!(component instanceof ByteBuffer buffer) || buffer.remaining() < stride) {
+            throw new IllegalArgumentException(
+                    "Expected ByteBuffer with at least %d remaining bytes. Actual: %s".formatted(stride, component)
+            );
+        }
+    }
+
+    private void assertNotClosed() {
+        if(data == null) {
+            throw new IllegalStateException("Pool was closed.");
+        }
+    }
+}
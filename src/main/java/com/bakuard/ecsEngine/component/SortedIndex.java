@@ -0,0 +1,108 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Вторичный упорядоченный индекс по значениям компонентов одного пула. Позволяет выбирать сущности,
+ * ключи которых лежат в заданном диапазоне, а также сущности с наименьшими и наибольшими ключами
+ * (top-k), без перебора всего пула. Подробнее о поддержании индекса см. {@link AbstractCompIndex}.
+ * <br/><br/>
+ * Экземпляр этого класса не является потокобезопасным.
+ */
+public final class SortedIndex<T, K extends Comparable<? super K>> extends AbstractCompIndex<T, K> {
+
+    private final TreeMap<K, Entry> entries;
+
+    /**
+     * @param keyExtractor извлекает ключ из компонента пула.
+     * @throws UnsupportedOperationException если pool не поддерживает слушателей.
+     */
+    public SortedIndex(CompPool pool, Function<T, K> keyExtractor) {
+        this(pool, keyExtractor, new TreeMap<>());
+    }
+
+    private SortedIndex(CompPool pool, Function<T, K> keyExtractor, TreeMap<K, Entry> entries) {
+        super(pool, keyExtractor, entries);
+        this.entries = entries;
+    }
+
+    /**
+     * Записывает в result индексы всех сущностей, ключи которых лежат в указанном диапазоне. Предыдущее
+     * содержимое result удаляется.
+     * @return result.
+     */
+    public Bits selectRange(K from, boolean fromInclusive, K to, boolean toInclusive, Bits result) {
+        prepareResult(result);
+        for(Entry entry : range(from, fromInclusive, to, toInclusive).values()) select(entry, result);
+        return result;
+    }
+
+    /**
+     * Передает в consumer все сущности, ключи которых лежат в указанном диапазоне, в порядке возрастания
+     * ключей. Порядок сущностей с одинаковыми ключами не определен. Изменять пул во время обхода нельзя.
+     */
+    public void forEachInRange(K from, boolean fromInclusive, K to, boolean toInclusive, Consumer<Entity> consumer) {
+        for(Entry entry : range(from, fromInclusive, to, toInclusive).values()) {
+            for(int i = 0; i < size(entry); ++i) consumer.accept(entityAt(entry, i));
+        }
+    }
+
+    /**
+     * Записывает в result не более result.length сущностей с наименьшими ключами в порядке возрастания
+     * ключей в виде упакованных значений ({@link Entity#asLong()}).
+     * @return кол-во записанных сущностей.
+     */
+    public int selectLowest(long[] result) {
+        return select(entries, result);
+    }
+
+    /**
+     * Записывает в result не более result.length сущностей с наибольшими ключами в порядке убывания
+     * ключей в виде упакованных значений ({@link Entity#asLong()}).
+     * @return кол-во записанных сущностей.
+     */
+    public int selectHighest(long[] result) {
+        return select(entries.descendingMap(), result);
+    }
+
+    /**
+     * Возвращает наименьший ключ индекса или null, если индекс пуст.
+     */
+    public K firstKey() {
+        return entries.isEmpty() ? null : entries.firstKey();
+    }
+
+    /**
+     * Возвращает наибольший ключ индекса или null, если индекс пуст.
+     */
+    public K lastKey() {
+        return entries.isEmpty() ? null : entries.lastKey();
+    }
+
+    @Override
+    public String toString() {
+        return "SortedIndex{keysNumber: " + keysNumber() + ", pool: " + getPool() + '}';
+    }
+
+
+    private NavigableMap<K, Entry> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        return from.compareTo(to) > 0 ?
+                new TreeMap<>() :
+                entries.subMap(from, fromInclusive, to, toInclusive);
+    }
+
+    private int select(NavigableMap<K, Entry> orderedEntries, long[] result) {
+        int count = 0;
+        for(Entry entry : orderedEntries.values()) {
+            for(int i = 0; i < size(entry) && count < result.length; ++i) result[count++] = packedEntityAt(entry, i);
+            if(count == result.length) break;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,619 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Пул компонентов-позиций (см. {@link Point}), который поддерживает равномерную сетку с ячейками
+ * размера cellSize. Каждая сущность пула при добавлении и изменении позиции помещается в ячейку сетки,
+ * что позволяет отвечать на пространственные запросы (радиус, прямоугольная область, k ближайших),
+ * просматривая только ячейки, пересекающие область запроса, а не все сущности пула. Занятые ячейки
+ * хранятся в хеш-таблице, поэтому размер мира не ограничен.
+ * <br/><br/>
+ * Пул может быть двумерным или трехмерным. Для двумерного пула координата z не участвует в разбиении
+ * на ячейки, и её следует оставлять равной нулю.
+ * <br/><br/>
+ * Результаты запросов по радиусу и области записываются в битовую маску индексов сущностей, поэтому
+ * их можно напрямую комбинировать с результатом выборки сущностей, например:
+ * {@code pool.selectInRadius(x, y, 0, r, result).and(world.selectEntityIndexes(filter))}.
+ */
+public final class SpatialGridPool extends AbstractSparseSet {
+
+    private static final int INIT_CAPACITY = 10;
+    private static final int INIT_CELL_CAPACITY = 4;
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+
+    private final float cellSize;
+    private final int dimensions;
+    private float[] xs;
+    private float[] ys;
+    private float[] zs;
+    private int[] cellOfComp;
+    private int[] slotInCell;
+
+    private long[] tableKeys;
+    private int[] tableCells;
+    private int[][] cellMembers;
+    private int[] cellSizes;
+    private long[] cellKeys;
+    private int cellsNumber;
+    private int[] freeCells;
+    private int freeCellsNumber;
+    private int occupiedCellsNumber;
+
+    private float[] heapDistances;
+    private int[] heapDenseIndexes;
+
+    /**
+     * @param cellSize размер ребра ячейки сетки. Рекомендуется выбирать порядка типичного радиуса запроса.
+     * @param dimensions размерность пула: 2 или 3.
+     * @throws IllegalArgumentException если cellSize <= 0 или dimensions не равно 2 или 3.
+     */
+    public SpatialGridPool(float cellSize, int dimensions) {
+        if(!(cellSize > 0)) {
+            throw new IllegalArgumentException("Expected: cellSize > 0. Actual: cellSize = " + cellSize);
+        }
+        if(dimensions != 2 && dimensions != 3) {
+            throw new IllegalArgumentException("Expected: dimensions is 2 or 3. Actual: dimensions = " + dimensions);
+        }
+        this.cellSize = cellSize;
+        this.dimensions = dimensions;
+        xs = new float[INIT_CAPACITY];
+        ys = new float[INIT_CAPACITY];
+        zs = new float[INIT_CAPACITY];
+        cellOfComp = new int[INIT_CAPACITY];
+        slotInCell = new int[INIT_CAPACITY];
+        Arrays.fill(cellOfComp, -1);
+
+        tableKeys = new long[16];
+        tableCells = new int[16];
+        Arrays.fill(tableKeys, EMPTY_KEY);
+        cellMembers = new int[8][];
+        cellSizes = new int[8];
+        cellKeys = new long[8];
+        freeCells = new int[8];
+
+        heapDistances = new float[0];
+        heapDenseIndexes = new int[0];
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public void attachPosition(Entity entity, float x, float y, float z) {
+        final boolean isNew = !hasComp(entity);
+        place(attachEntity(entity), x, y, z);
+        notifyAttached(entity, isNew);
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        assertPoint(component);
+        super.attachComp(entity, component);
+    }
+
+    @Override
+    public void attachComps(Entity[] entities, Object[] comps, int from, int to) {
+        for(int i = from; i < to; ++i) assertPoint(comps[i]);
+        super.attachComps(entities, comps, from, to);
+    }
+
+    /**
+     * Изменяет позицию сущности и перемещает её в соответствующую ячейку сетки. Уведомляет слушателей
+     * пула об изменении компонента (см. {@link CompPool.Listener#afterChange(Entity)}).
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public void setPosition(Entity entity, float x, float y, float z) {
+        place(getExistedDenseIndex(entity), x, y, z);
+        notifyChanged(entity);
+    }
+
+    /**
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public float getX(Entity entity) {
+        return xs[getExistedDenseIndex(entity)];
+    }
+
+    /**
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public float getY(Entity entity) {
+        return ys[getExistedDenseIndex(entity)];
+    }
+
+    /**
+     * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+     */
+    public float getZ(Entity entity) {
+        return zs[getExistedDenseIndex(entity)];
+    }
+
+    /**
+     * Меняет местами компоненты двух сущностей, при этом каждая сущность перемещается в ячейку сетки,
+     * соответствующую её новой позиции.
+     */
+    @Override
+    public void swap(Entity first, Entity second) {
+        super.swap(first, second);
+        final int firstIndex = getDenseIndex(first);
+        final int secondIndex = getDenseIndex(second);
+        if(firstIndex > -1 && secondIndex > -1) {
+            cellMembers[cellOfComp[firstIndex]][slotInCell[firstIndex]] = first.index();
+            cellMembers[cellOfComp[secondIndex]][slotInCell[secondIndex]] = second.index();
+        }
+    }
+
+    @Override
+    public void detachComp(Entity entity) {
+        final int denseIndex = getDenseIndex(entity);
+        if(denseIndex != -1) removeFromCell(denseIndex);
+        super.detachComp(entity);
+    }
+
+    /**
+     * Записывает в result индексы всех сущностей пула, расстояние от которых до точки (x, y, z)
+     * не превышает radius. Предыдущее содержимое result удаляется.
+     * @return result.
+     */
+    public Bits selectInRadius(float x, float y, float z, float radius, Bits result) {
+        final float radiusSquare = radius * radius;
+        result.clearAll().expandTo(getEntityIndexesMask().size());
+
+        final int minCx = cellCoordinate(x - radius), maxCx = cellCoordinate(x + radius);
+        final int minCy = cellCoordinate(y - radius), maxCy = cellCoordinate(y + radius);
+        final int minCz = dimensions == 3 ? cellCoordinate(z - radius) : 0;
+        final int maxCz = dimensions == 3 ? cellCoordinate(z + radius) : 0;
+        if(cellsNumberInRange(minCx, maxCx, minCy, maxCy, minCz, maxCz) > occupiedCellsNumber) {
+            for(int i = 0; i < size(); ++i) {
+                if(distanceSquare(i, x, y, z) <= radiusSquare) result.set(Entity.indexOf(getPackedEntityUnchecked(i)));
+            }
+        } else {
+            for(int cx = minCx; cx <= maxCx; ++cx) {
+                for(int cy = minCy; cy <= maxCy; ++cy) {
+                    for(int cz = minCz; cz <= maxCz; ++cz) {
+                        final int cell = findCell(cellKey(cx, cy, cz));
+                        for(int i = 0; cell != -1 && i < cellSizes[cell]; ++i) {
+                            final int entityIndex = cellMembers[cell][i];
+                            if(distanceSquare(getDenseIndex(entityIndex), x, y, z) <= radiusSquare) result.set(entityIndex);
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Записывает в result индексы всех сущностей пула, позиции которых лежат внутри прямоугольной
+     * области [minX, maxX] x [minY, maxY] x [minZ, maxZ] (включая границы). Предыдущее содержимое result
+     * удаляется.
+     * @return result.
+     */
+    public Bits selectInBox(float minX, float minY, float minZ,
+                            float maxX, float maxY, float maxZ,
+                            Bits result) {
+        result.clearAll().expandTo(getEntityIndexesMask().size());
+
+        final int minCx = cellCoordinate(minX), maxCx = cellCoordinate(maxX);
+        final int minCy = cellCoordinate(minY), maxCy = cellCoordinate(maxY);
+        final int minCz = dimensions == 3 ? cellCoordinate(minZ) : 0;
+        final int maxCz = dimensions == 3 ? cellCoordinate(maxZ) : 0;
+        if(cellsNumberInRange(minCx, maxCx, minCy, maxCy, minCz, maxCz) > occupiedCellsNumber) {
+            for(int i = 0; i < size(); ++i) {
+                if(isInBox(i, minX, minY, minZ, maxX, maxY, maxZ)) result.set(Entity.indexOf(getPackedEntityUnchecked(i)));
+            }
+        } else {
+            for(int cx = minCx; cx <= maxCx; ++cx) {
+                for(int cy = minCy; cy <= maxCy; ++cy) {
+                    for(int cz = minCz; cz <= maxCz; ++cz) {
+                        final int cell = findCell(cellKey(cx, cy, cz));
+                        for(int i = 0; cell != -1 && i < cellSizes[cell]; ++i) {
+                            final int entityIndex = cellMembers[cell][i];
+                            if(isInBox(getDenseIndex(entityIndex), minX, minY, minZ, maxX, maxY, maxZ)) {
+                                result.set(entityIndex);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Находит не более result.length ближайших к точке (x, y, z) сущностей пула и записывает их
+     * в result в виде упакованных значений ({@link Entity#asLong()}) в порядке возрастания расстояния.
+     * Ячейки сетки просматриваются кольцами вокруг точки запроса, пока найденные сущности не окажутся
+     * заведомо ближе непросмотренных ячеек.
+     * @param mask если не null, то рассматриваются только сущности, индексы которых входят в маску
+     *             (например, результат {@code world.selectEntityIndexes(filter)}).
+     * @return кол-во найденных сущностей.
+     */
+    public int findNearest(float x, float y, float z, Bits mask, long[] result) {
+        final int k = result.length;
+        if(heapDistances.length < k) {
+            heapDistances = new float[k];
+            heapDenseIndexes = new int[k];
+        }
+
+        int heapSize = 0;
+        final int cx = cellCoordinate(x), cy = cellCoordinate(y), cz = dimensions == 3 ? cellCoordinate(z) : 0;
+        int visited = 0;
+        boolean useFullScan = false;
+        for(int ring = 0; k > 0 && visited < size() && !useFullScan; ++ring) {
+            final float ringDistance = Math.max(0, ring - 1) * cellSize;
+            if(heapSize == k && ringDistance * ringDistance > heapDistances[0]) break;
+
+            final long ringCellsNumber = ring == 0 ? 1 :
+                    dimensions == 3 ? cube(2L * ring + 1) - cube(2L * ring - 1) : square(2L * ring + 1) - square(2L * ring - 1);
+            useFullScan = ringCellsNumber > occupiedCellsNumber;
+
+            final int dzRange = dimensions == 3 ? ring : 0;
+            for(int dx = -ring; dx <= ring && !useFullScan; ++dx) {
+                for(int dy = -ring; dy <= ring; ++dy) {
+                    final boolean isInnerColumn = Math.abs(dx) < ring && Math.abs(dy) < ring;
+                    if(isInnerColumn && dimensions == 2) continue;
+                    final int dzStep = isInnerColumn ? Math.max(1, 2 * dzRange) : 1;
+                    for(int dz = -dzRange; dz <= dzRange; dz += dzStep) {
+                        final int cell = findCell(cellKey(cx + dx, cy + dy, cz + dz));
+                        for(int i = 0; cell != -1 && i < cellSizes[cell]; ++i) {
+                            final int entityIndex = cellMembers[cell][i];
+                            ++visited;
+                            if(mask == null || (mask.inBound(entityIndex) && mask.get(entityIndex))) {
+                                heapSize = offer(heapSize, k, getDenseIndex(entityIndex), x, y, z);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if(useFullScan) {
+            heapSize = 0;
+            for(int i = 0; i < size(); ++i) {
+                final int entityIndex = Entity.indexOf(getPackedEntityUnchecked(i));
+                if(mask == null || (mask.inBound(entityIndex) && mask.get(entityIndex))) {
+                    heapSize = offer(heapSize, k, i, x, y, z);
+                }
+            }
+        }
+
+        final int found = heapSize;
+        while(heapSize > 0) {
+            result[heapSize - 1] = getPackedEntityUnchecked(heapDenseIndexes[0]);
+            --heapSize;
+            heapDistances[0] = heapDistances[heapSize];
+            heapDenseIndexes[0] = heapDenseIndexes[heapSize];
+            siftDown(0, heapSize);
+        }
+        return found;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (o != null && getClass() == o.getClass()) {
+            SpatialGridPool other = (SpatialGridPool)o;
+
+            boolean result = size() == other.size() && cellSize == other.cellSize && dimensions == other.dimensions;
+            for(int i = 0; i < size() && result; ++i) {
+                result = xs[i] == other.xs[i]
+                        && ys[i] == other.ys[i]
+                        && zs[i] == other.zs[i]
+                        && getPackedEntityUnchecked(i) == other.getPackedEntityUnchecked(i);
+            }
+            return result;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size();
+        for(int i = 0; i < size(); ++i) {
+            result = result * 31 + Float.hashCode(xs[i]);
+            result = result * 31 + Float.hashCode(ys[i]);
+            result = result * 31 + Float.hashCode(zs[i]);
+            result = result * 31 + Long.hashCode(getPackedEntityUnchecked(i));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SpatialGridPool{" +
+                "size: " + size() +
+                ", cellSize: " + cellSize +
+                ", dimensions: " + dimensions +
+                ", occupiedCells: " + occupiedCellsNumber +
+                ", entities: " + entitiesToString() +
+                '}';
+    }
+
+
+    @Override
+    protected void growCompsArray(int newCapacity) {
+        final int oldCapacity = cellOfComp.length;
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        zs = Arrays.copyOf(zs, newCapacity);
+        cellOfComp = Arrays.copyOf(cellOfComp, newCapacity);
+        slotInCell = Arrays.copyOf(slotInCell, newCapacity);
+        if(newCapacity > oldCapacity) Arrays.fill(cellOfComp, oldCapacity, newCapacity, -1);
+    }
+
+    @Override
+    protected void moveComp(int from, int to) {
+        xs[to] = xs[from];
+        ys[to] = ys[from];
+        zs[to] = zs[from];
+        cellOfComp[to] = cellOfComp[from];
+        slotInCell[to] = slotInCell[from];
+        cellOfComp[from] = -1;
+    }
+
+    @Override
+    protected void swapComps(int first, int second) {
+        float tempFloat = xs[first]; xs[first] = xs[second]; xs[second] = tempFloat;
+        tempFloat = ys[first]; ys[first] = ys[second]; ys[second] = tempFloat;
+        tempFloat = zs[first]; zs[first] = zs[second]; zs[second] = tempFloat;
+        int tempInt = cellOfComp[first]; cellOfComp[first] = cellOfComp[second]; cellOfComp[second] = tempInt;
+        tempInt = slotInCell[first]; slotInCell[first] = slotInCell[second]; slotInCell[second] = tempInt;
+    }
+
+    @Override
+    protected Object getBoxedComp(int index) {
+        return new Point(xs[index], ys[index], zs[index]);
+    }
+
+    @Override
+    protected void setBoxedComp(int index, Object comp) {
+        Point point = (Point) comp;
+        place(index, point.x(), point.y(), point.z());
+    }
+
+
+    private void assertPoint(Object component) {
+        if(!(component instanceof Point)) {
+            throw new IllegalArgumentException("Expected Point. Actual: %s".formatted(component));
+        }
+    }
+
+    private void place(int denseIndex, float x, float y, float z) {
+        xs[denseIndex] = x;
+        ys[denseIndex] = y;
+        zs[denseIndex] = z;
+
+        final long key = cellKey(cellCoordinate(x), cellCoordinate(y), dimensions == 3 ? cellCoordinate(z) : 0);
+        final int oldCell = cellOfComp[denseIndex];
+        final int newCell = getOrCreateCell(key);
+        if(oldCell != newCell) {
+            if(oldCell != -1) removeFromCell(denseIndex);
+            addToCell(denseIndex, newCell);
+        }
+    }
+
+    private void addToCell(int denseIndex, int cell) {
+        if(cellSizes[cell] == cellMembers[cell].length) {
+            cellMembers[cell] = Arrays.copyOf(cellMembers[cell], cellMembers[cell].length << 1);
+        }
+        if(cellSizes[cell] == 0) ++occupiedCellsNumber;
+
+        cellMembers[cell][cellSizes[cell]] = Entity.indexOf(getPackedEntityUnchecked(denseIndex));
+        cellOfComp[denseIndex] = cell;
+        slotInCell[denseIndex] = cellSizes[cell]++;
+    }
+
+    private void removeFromCell(int denseIndex) {
+        final int cell = cellOfComp[denseIndex];
+        final int slot = slotInCell[denseIndex];
+        final int lastSlot = --cellSizes[cell];
+        if(slot != lastSlot) {
+            final int movedEntityIndex = cellMembers[cell][lastSlot];
+            cellMembers[cell][slot] = movedEntityIndex;
+            slotInCell[getDenseIndex(movedEntityIndex)] = slot;
+        }
+        if(lastSlot == 0) {
+            --occupiedCellsNumber;
+            freeCell(cell);
+        }
+        cellOfComp[denseIndex] = -1;
+    }
+
+    /**
+     * Возвращает номер ячейки с указанным ключом. Если такой ячейки нет - создает её, повторно используя
+     * одну из ранее освобожденных ячеек, если они есть.
+     */
+    private int getOrCreateCell(long key) {
+        int slot = findSlot(key);
+        if(tableKeys[slot] == EMPTY_KEY) {
+            if((cellsNumber - freeCellsNumber + 1) * 2 > tableKeys.length) {
+                rehash(tableKeys.length << 1);
+                slot = findSlot(key);
+            }
+
+            int cell;
+            if(freeCellsNumber > 0) {
+                cell = freeCells[--freeCellsNumber];
+            } else {
+                if(cellsNumber == cellMembers.length) {
+                    cellMembers = Arrays.copyOf(cellMembers, cellsNumber << 1);
+                    cellSizes = Arrays.copyOf(cellSizes, cellsNumber << 1);
+                    cellKeys = Arrays.copyOf(cellKeys, cellsNumber << 1);
+                }
+                cell = cellsNumber++;
+                cellMembers[cell] = new int[INIT_CELL_CAPACITY];
+            }
+            cellKeys[cell] = key;
+            tableKeys[slot] = key;
+            tableCells[slot] = cell;
+        }
+        return tableCells[slot];
+    }
+
+    /**
+     * Удаляет опустевшую ячейку из хеш-таблицы и помещает её в список свободных ячеек. Освободившаяся
+     * позиция хеш-таблицы заполняется сдвигом последующих записей той же цепочки, поэтому таблица
+     * не накапливает удаленных записей.
+     */
+    private void freeCell(int cell) {
+        final int mask = tableKeys.length - 1;
+        int hole = findSlot(cellKeys[cell]);
+        for(int slot = (hole + 1) & mask; tableKeys[slot] != EMPTY_KEY; slot = (slot + 1) & mask) {
+            final int home = homeSlot(tableKeys[slot]);
+            if(((slot - home) & mask) >= ((slot - hole) & mask)) {
+                tableKeys[hole] = tableKeys[slot];
+                tableCells[hole] = tableCells[slot];
+                hole = slot;
+            }
+        }
+        tableKeys[hole] = EMPTY_KEY;
+
+        if(freeCellsNumber == freeCells.length) freeCells = Arrays.copyOf(freeCells, freeCellsNumber << 1);
+        freeCells[freeCellsNumber++] = cell;
+    }
+
+    private int findCell(long key) {
+        final int slot = findSlot(key);
+        return tableKeys[slot] == key ? tableCells[slot] : -1;
+    }
+
+    /**
+     * Возвращает позицию ключа в хеш-таблице ячеек или позицию первого свободного места, куда этот ключ
+     * может быть записан.
+     */
+    private int findSlot(long key) {
+        final int mask = tableKeys.length - 1;
+        int slot = homeSlot(key);
+        while(tableKeys[slot] != EMPTY_KEY && tableKeys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private int homeSlot(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (tableKeys.length - 1);
+    }
+
+    /**
+     * Возвращает кол-во ячеек, под которые выделена память, включая свободные.
+     */
+    int allocatedCellsNumber() {
+        return cellsNumber;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = tableKeys;
+        int[] oldCells = tableCells;
+        tableKeys = new long[newCapacity];
+        tableCells = new int[newCapacity];
+        Arrays.fill(tableKeys, EMPTY_KEY);
+        for(int i = 0; i < oldKeys.length; ++i) {
+            if(oldKeys[i] != EMPTY_KEY) {
+                final int slot = findSlot(oldKeys[i]);
+                tableKeys[slot] = oldKeys[i];
+                tableCells[slot] = oldCells[i];
+            }
+        }
+    }
+
+    private int cellCoordinate(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Упаковывает координаты ячейки в ключ по 21 биту на координату. Ячейки, координаты которых
+     * отличаются на 2^21, получают одинаковый ключ - это допустимо, так как все запросы дополнительно
+     * проверяют точные позиции сущностей.
+     */
+    private long cellKey(int cx, int cy, int cz) {
+        return ((cx & 0x1FFFFFL) << 42) | ((cy & 0x1FFFFFL) << 21) | (cz & 0x1FFFFFL);
+    }
+
+    private long cellsNumberInRange(int minCx, int maxCx, int minCy, int maxCy, int minCz, int maxCz) {
+        return ((long) maxCx - minCx + 1) * ((long) maxCy - minCy + 1) * ((long) maxCz - minCz + 1);
+    }
+
+    private float distanceSquare(int denseIndex, float x, float y, float z) {
+        final float dx = xs[denseIndex] - x;
+        final float dy = ys[denseIndex] - y;
+        final float dz = zs[denseIndex] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private boolean isInBox(int denseIndex,
+                            float minX, float minY, float minZ,
+                            float maxX, float maxY, float maxZ) {
+        return xs[denseIndex] >= minX && xs[denseIndex] <= maxX
+                && ys[denseIndex] >= minY && ys[denseIndex] <= maxY
+                && zs[denseIndex] >= minZ && zs[denseIndex] <= maxZ;
+    }
+
+    /**
+     * Добавляет компонент в max-кучу k ближайших, если куча не заполнена или компонент ближе
+     * самого дальнего из найденных.
+     * @return новый размер кучи.
+     */
+    private int offer(int heapSize, int k, int denseIndex, float x, float y, float z) {
+        final float distance = distanceSquare(denseIndex, x, y, z);
+        if(heapSize < k) {
+            int i = heapSize++;
+            while(i > 0 && heapDistances[(i - 1) >>> 1] < distance) {
+                final int parent = (i - 1) >>> 1;
+                heapDistances[i] = heapDistances[parent];
+                heapDenseIndexes[i] = heapDenseIndexes[parent];
+                i = parent;
+            }
+            heapDistances[i] = distance;
+            heapDenseIndexes[i] = denseIndex;
+        } else if(distance < heapDistances[0]) {
+            heapDistances[0] = distance;
+            heapDenseIndexes[0] = denseIndex;
+            siftDown(0, heapSize);
+        }
+        return heapSize;
+    }
+
+    private void siftDown(int i, int heapSize) {
+        final float distance = heapDistances[i];
+        final int denseIndex = heapDenseIndexes[i];
+        int child = 2 * i + 1;
+        while(child < heapSize) {
+            if(child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) ++child;
+            if(heapDistances[child] <= distance) break;
+            heapDistances[i] = heapDistances[child];
+            heapDenseIndexes[i] = heapDenseIndexes[child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        heapDistances[i] = distance;
+        heapDenseIndexes[i] = denseIndex;
+    }
+
+    private static long square(long value) {
+        return value * value;
+    }
+
+    private static long cube(long value) {
+        return value * value * value;
+    }
+
+
+    /**
+     * Позиция сущности. Используется методами общего интерфейса {@link CompPool}
+     * (например, {@link #attachComp(Entity, Object)} и {@link #getComp(Entity)}).
+     */
+    public record Point(float x, float y, float z) {}
+}
@@ -0,0 +1,20 @@
+package com.bakuard.ecsEngine.component;
+
+/**
+ * Способ хранения компонентов, для которых не был явно зарегистрирован пул компонентов
+ * (см. {@link CompsManager#registerCompPool(CompPool, Class)}).
+ */
+public enum StorageMode {
+
+    /**
+     * Каждый тип компонентов хранится в отдельном {@link SparseSet}.
+     */
+    SPARSE_SETS,
+
+    /**
+     * Сущности с одинаковым набором типов компонентов хранятся вместе в одной таблице
+     * (см. {@link ArchetypeStorage}).
+     */
+    ARCHETYPES
+
+}
@@ -0,0 +1,159 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.DynamicArray;
+import com.bakuard.collections.ReadableLinearStructure;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Описание структуры компонента, состоящего из именованных полей примитивных типов. Используется
+ * {@link StructPool} для хранения каждого поля в отдельном массиве примитивов. Индекс поля
+ * ({@link #getFieldIndex(String)}) рекомендуется получать один раз при инициализации системы и далее
+ * обращаться к полям только по индексу.
+ */
+public final class StructLayout {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    public enum FieldType {
+        INT(Integer.BYTES),
+        LONG(Long.BYTES),
+        FLOAT(Float.BYTES),
+        DOUBLE(Double.BYTES);
+
+        private final int bytes;
+
+        FieldType(int bytes) {
+            this.bytes = bytes;
+        }
+
+        public int bytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * @param columnIndex порядковый номер поля среди всех полей того же типа.
+     * @param byteOffset смещение поля в байтах от начала компонента при плотной упаковке полей
+     *                   в порядке их объявления.
+     */
+    public record Field(String name, FieldType type, int columnIndex, int byteOffset) {}
+
+
+    private final ReadableLinearStructure<Field> fields;
+    private final HashMap<String, Integer> fieldIndexes;
+    private final int[] columnsNumber;
+    private final int byteSize;
+
+    private StructLayout(DynamicArray<Field> fields, int byteSize) {
+        this.fields = fields;
+        this.byteSize = byteSize;
+        this.fieldIndexes = new HashMap<>();
+        this.columnsNumber = new int[FieldType.values().length];
+        for(int i = 0; i < fields.size(); ++i) {
+            Field field = fields.get(i);
+            fieldIndexes.put(field.name(), i);
+            ++columnsNumber[field.type().ordinal()];
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException если поля с указанным именем не существует.
+     */
+    public int getFieldIndex(String fieldName) {
+        Integer index = fieldIndexes.get(fieldName);
+        if(index == null) {
+            throw new IllegalArgumentException("Unknown field '%s'. Layout: %s".formatted(fieldName, this));
+        }
+        return index;
+    }
+
+    public Field getField(int fieldIndex) {
+        return fields.get(fieldIndex);
+    }
+
+    public int fieldsNumber() {
+        return fields.size();
+    }
+
+    /**
+     * Возвращает кол-во полей указанного типа.
+     */
+    public int columnsNumber(FieldType type) {
+        return columnsNumber[type.ordinal()];
+    }
+
+    /**
+     * Возвращает размер одного компонента в байтах при плотной упаковке всех его полей.
+     */
+    public int byteSize() {
+        return byteSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StructLayout other = (StructLayout) o;
+        return fields.equals(other.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fields);
+    }
+
+    @Override
+    public String toString() {
+        return "StructLayout{fields: " + fields + '}';
+    }
+
+
+    public static final class Builder {
+
+        private final DynamicArray<Field> fields;
+        private final int[] columnsNumber;
+        private int byteSize;
+
+        private Builder() {
+            fields = new DynamicArray<>();
+            columnsNumber = new int[FieldType.values().length];
+        }
+
+        public Builder addIntField(String name) {
+            return addField(name, FieldType.INT);
+        }
+
+        public Builder addLongField(String name) {
+            return addField(name, FieldType.LONG);
+        }
+
+        public Builder addFloatField(String name) {
+            return addField(name, FieldType.FLOAT);
+        }
+
+        public Builder addDoubleField(String name) {
+            return addField(name, FieldType.DOUBLE);
+        }
+
+        /**
+         * @throws IllegalArgumentException если поле с указанным именем уже было добавлено.
+         */
+        public Builder addField(String name, FieldType type) {
+            if(fields.linearSearch(field -> field.name().equals(name)) != -1) {
+                throw new IllegalArgumentException("Field '%s' already exists.".formatted(name));
+            }
+            fields.addLast(new Field(name, type, columnsNumber[type.ordinal()]++, byteSize));
+            byteSize += type.bytes();
+            return this;
+        }
+
+        public StructLayout build() {
+            return new StructLayout(new DynamicArray<>(fields), byteSize);
+        }
+    }
+}
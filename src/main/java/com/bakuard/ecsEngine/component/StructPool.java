@@ -0,0 +1,514 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Пул компонентов, структура которых описана с помощью {@link StructLayout}. Каждое поле компонента
+ * хранится в отдельном массиве примитивов (struct-of-arrays), поэтому проход по плотному массиву
+ * читает память последовательно и не создает объектов для отдельных компонентов. Доступ к полям
+ * осуществляется через переиспользуемый курсор ({@link Cursor}), через методы пула, принимающие индекс
+ * в плотном массиве и индекс поля, или через описатели полей ({@link IntField}, {@link LongField},
+ * {@link FloatField}, {@link DoubleField}). Описатель проверяет тип поля один раз при создании, поэтому
+ * в циклах по плотному массиву его следует получать до начала цикла. Все способы доступа проверяют,
+ * что индекс в плотном массиве меньше {@link #size()}, и выбрасывают {@link IndexOutOfBoundsException}
+ * в противном случае.
+ * <br/><br/>
+ * Методы общего интерфейса {@link CompPool} также поддерживаются: {@link #getComp(Entity)} возвращает
+ * новый курсор установленный на компонент сущности, а {@link #attachComp(Entity, Object)} принимает
+ * курсор с той же структурой и копирует значения его полей.
+ */
+public final class StructPool extends AbstractSparseSet {
+
+    private static final int INIT_CAPACITY = 10;
+
+
+    private final StructLayout layout;
+    private final int[][] intColumns;
+    private final long[][] longColumns;
+    private final float[][] floatColumns;
+    private final double[][] doubleColumns;
+
+    public StructPool(StructLayout layout) {
+        this.layout = layout;
+        intColumns = new int[layout.columnsNumber(StructLayout.FieldType.INT)][INIT_CAPACITY];
+        longColumns = new long[layout.columnsNumber(StructLayout.FieldType.LONG)][INIT_CAPACITY];
+        floatColumns = new float[layout.columnsNumber(StructLayout.FieldType.FLOAT)][INIT_CAPACITY];
+        doubleColumns = new double[layout.columnsNumber(StructLayout.FieldType.DOUBLE)][INIT_CAPACITY];
+    }
+
+    public StructLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Добавляет сущности компонент, все поля которого равны нулю. Если сущность уже имеет компонент
+     * в этом пуле - обнуляет его поля.
+     * @return индекс компонента в плотном массиве.
+     */
+    public int attachStruct(Entity entity) {
+        final boolean isNew = !hasComp(entity);
+        clearFields(attachEntity(entity));
+        notifyAttached(entity, isNew);
+        return getDenseIndex(entity);
+    }
+
+    @Override
+    public void attachComp(Entity entity, Object component) {
+        assertCursor(component);
+        super.attachComp(entity, component);
+    }
+
+    @Override
+    public void attachComps(Entity[] entities, Object[] comps, int from, int to) {
+        for(int i = from; i < to; ++i) assertCursor(comps[i]);
+        super.attachComps(entities, comps, from, to);
+    }
+
+    /**
+     * Создает новый курсор. Курсор не указывает ни на один компонент до вызова одного из его
+     * методов moveTo.
+     */
+    public Cursor createCursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Последовательно обходит все компоненты пула в порядке плотного массива. Для всего обхода
+     * используется один и тот же курсор, поэтому его нельзя сохранять за пределами consumer.
+     */
+    public void forEachStruct(Consumer<Cursor> consumer) {
+        Cursor cursor = new Cursor();
+        for(int i = 0; i < size(); ++i) {
+            cursor.denseIndex = i;
+            consumer.accept(cursor);
+        }
+    }
+
+    public int getInt(int denseIndex, int fieldIndex) {
+        assertInBound(denseIndex);
+        return intColumns[columnIndex(fieldIndex, StructLayout.FieldType.INT)][denseIndex];
+    }
+
+    public long getLong(int denseIndex, int fieldIndex) {
+        assertInBound(denseIndex);
+        return longColumns[columnIndex(fieldIndex, StructLayout.FieldType.LONG)][denseIndex];
+    }
+
+    public float getFloat(int denseIndex, int fieldIndex) {
+        assertInBound(denseIndex);
+        return floatColumns[columnIndex(fieldIndex, StructLayout.FieldType.FLOAT)][denseIndex];
+    }
+
+    public double getDouble(int denseIndex, int fieldIndex) {
+        assertInBound(denseIndex);
+        return doubleColumns[columnIndex(fieldIndex, StructLayout.FieldType.DOUBLE)][denseIndex];
+    }
+
+    public void setInt(int denseIndex, int fieldIndex, int value) {
+        assertInBound(denseIndex);
+        intColumns[columnIndex(fieldIndex, StructLayout.FieldType.INT)][denseIndex] = value;
+    }
+
+    public void setLong(int denseIndex, int fieldIndex, long value) {
+        assertInBound(denseIndex);
+        longColumns[columnIndex(fieldIndex, StructLayout.FieldType.LONG)][denseIndex] = value;
+    }
+
+    public void setFloat(int denseIndex, int fieldIndex, float value) {
+        assertInBound(denseIndex);
+        floatColumns[columnIndex(fieldIndex, StructLayout.FieldType.FLOAT)][denseIndex] = value;
+    }
+
+    public void setDouble(int denseIndex, int fieldIndex, double value) {
+        assertInBound(denseIndex);
+        doubleColumns[columnIndex(fieldIndex, StructLayout.FieldType.DOUBLE)][denseIndex] = value;
+    }
+
+    /**
+     * @throws IllegalArgumentException если поле с указанным индексом не имеет тип {@link StructLayout.FieldType#INT}.
+     */
+    public IntField getIntField(int fieldIndex) {
+        return new IntField(columnIndex(fieldIndex, StructLayout.FieldType.INT));
+    }
+
+    /**
+     * @throws IllegalArgumentException если поле с указанным индексом не имеет тип {@link StructLayout.FieldType#LONG}.
+     */
+    public LongField getLongField(int fieldIndex) {
+        return new LongField(columnIndex(fieldIndex, StructLayout.FieldType.LONG));
+    }
+
+    /**
+     * @throws IllegalArgumentException если поле с указанным индексом не имеет тип {@link StructLayout.FieldType#FLOAT}.
+     */
+    public FloatField getFloatField(int fieldIndex) {
+        return new FloatField(columnIndex(fieldIndex, StructLayout.FieldType.FLOAT));
+    }
+
+    /**
+     * @throws IllegalArgumentException если поле с указанным индексом не имеет тип {@link StructLayout.FieldType#DOUBLE}.
+     */
+    public DoubleField getDoubleField(int fieldIndex) {
+        return new DoubleField(columnIndex(fieldIndex, StructLayout.FieldType.DOUBLE));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (o != null && getClass() == o.getClass()) {
+            StructPool other = (StructPool)o;
+
+            boolean result = size() == other.size() && layout.equals(other.layout);
+            for(int i = 0; i < size() && result; ++i) {
+                result = fieldsEqual(i, other, i) && getPackedEntityUnchecked(i) == other.getPackedEntityUnchecked(i);
+            }
+            return result;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size();
+        for(int i = 0; i < size(); ++i) {
+            result = result * 31 + fieldsHashCode(i);
+            result = result * 31 + Long.hashCode(getPackedEntityUnchecked(i));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder comps = new StringBuilder("[");
+        for(int i = 0; i < size(); ++i) {
+            if(i > 0) comps.append(',');
+            appendFields(comps, i);
+        }
+        comps.append(']');
+
+        return "StructPool{" +
+                "size: " + size() +
+                ", layout: " + layout +
+                ", comps: " + comps +
+                ", entities: " + entitiesToString() +
+                '}';
+    }
+
+
+    @Override
+    protected void growCompsArray(int newCapacity) {
+        for(int i = 0; i < intColumns.length; ++i) intColumns[i] = Arrays.copyOf(intColumns[i], newCapacity);
+        for(int i = 0; i < longColumns.length; ++i) longColumns[i] = Arrays.copyOf(longColumns[i], newCapacity);
+        for(int i = 0; i < floatColumns.length; ++i) floatColumns[i] = Arrays.copyOf(floatColumns[i], newCapacity);
+        for(int i = 0; i < doubleColumns.length; ++i) doubleColumns[i] = Arrays.copyOf(doubleColumns[i], newCapacity);
+    }
+
+    @Override
+    protected void moveComp(int from, int to) {
+        for(int[] column : intColumns) column[to] = column[from];
+        for(long[] column : longColumns) column[to] = column[from];
+        for(float[] column : floatColumns) column[to] = column[from];
+        for(double[] column : doubleColumns) column[to] = column[from];
+    }
+
+    @Override
+    protected void swapComps(int first, int second) {
+        for(int[] column : intColumns) {
+            int temp = column[first];
+            column[first] = column[second];
+            column[second] = temp;
+        }
+        for(long[] column : longColumns) {
+            long temp = column[first];
+            column[first] = column[second];
+            column[second] = temp;
+        }
+        for(float[] column : floatColumns) {
+            float temp = column[first];
+            column[first] = column[second];
+            column[second] = temp;
+        }
+        for(double[] column : doubleColumns) {
+            double temp = column[first];
+            column[first] = column[second];
+            column[second] = temp;
+        }
+    }
+
+    @Override
+    protected Object getBoxedComp(int index) {
+        Cursor cursor = new Cursor();
+        cursor.denseIndex = index;
+        return cursor;
+    }
+
+    @Override
+    protected void setBoxedComp(int index, Object comp) {
+        Cursor source = (Cursor) comp;
+        StructPool sourcePool = source.getPool();
+        for(int i = 0; i < intColumns.length; ++i) intColumns[i][index] = sourcePool.intColumns[i][source.denseIndex];
+        for(int i = 0; i < longColumns.length; ++i) longColumns[i][index] = sourcePool.longColumns[i][source.denseIndex];
+        for(int i = 0; i < floatColumns.length; ++i) floatColumns[i][index] = sourcePool.floatColumns[i][source.denseIndex];
+        for(int i = 0; i < doubleColumns.length; ++i) doubleColumns[i][index] = sourcePool.doubleColumns[i][source.denseIndex];
+    }
+
+
+    private void assertCursor(Object component) {
+        if(!(component instanceof Cursor cursor) || !cursor.getLayout().equals(layout)) {
+            throw new IllegalArgumentException(
+                    "Expected cursor with layout %s. Actual: %s".formatted(layout, component)
+            );
+        }
+    }
+
+    private int columnIndex(int fieldIndex, StructLayout.FieldType expectedType) {
+        StructLayout.Field field = layout.getField(fieldIndex);
+        if(field.type() != expectedType) {
+            throw new IllegalArgumentException(
+                    "Field '%s' has type %s. Expected: %s".formatted(field.name(), field.type(), expectedType)
+            );
+        }
+        return field.columnIndex();
+    }
+
+    private void clearFields(int index) {
+        for(int[] column : intColumns) column[index] = 0;
+        for(long[] column : longColumns) column[index] = 0L;
+        for(float[] column : floatColumns) column[index] = 0.0f;
+        for(double[] column : doubleColumns) column[index] = 0.0;
+    }
+
+    private boolean fieldsEqual(int index, StructPool other, int otherIndex) {
+        boolean result = true;
+        for(int i = 0; i < intColumns.length && result; ++i)
+            result = intColumns[i][index] == other.intColumns[i][otherIndex];
+        for(int i = 0; i < longColumns.length && result; ++i)
+            result = longColumns[i][index] == other.longColumns[i][otherIndex];
+        for(int i = 0; i < floatColumns.length && result; ++i)
+            result = Float.compare(floatColumns[i][index], other.floatColumns[i][otherIndex]) == 0;
+        for(int i = 0; i < doubleColumns.length && result; ++i)
+            result = Double.compare(doubleColumns[i][index], other.doubleColumns[i][otherIndex]) == 0;
+        return result;
+    }
+
+    private int fieldsHashCode(int index) {
+        int result = 1;
+        for(int[] column : intColumns) result = result * 31 + Integer.hashCode(column[index]);
+        for(long[] column : longColumns) result = result * 31 + Long.hashCode(column[index]);
+        for(float[] column : floatColumns) result = result * 31 + Float.hashCode(column[index]);
+        for(double[] column : doubleColumns) result = result * 31 + Double.hashCode(column[index]);
+        return result;
+    }
+
+    private void appendFields(StringBuilder sb, int index) {
+        sb.append('{');
+        for(int i = 0; i < layout.fieldsNumber(); ++i) {
+            StructLayout.Field field = layout.getField(i);
+            if(i > 0) sb.append(", ");
+            sb.append(field.name()).append(": ");
+            switch(field.type()) {
+                case INT -> sb.append(intColumns[field.columnIndex()][index]);
+                case LONG -> sb.append(longColumns[field.columnIndex()][index]);
+                case FLOAT -> sb.append(floatColumns[field.columnIndex()][index]);
+                case DOUBLE -> sb.append(doubleColumns[field.columnIndex()][index]);
+            }
+        }
+        sb.append('}');
+    }
+
+
+    /**
+     * Легковесный указатель на компонент в плотном массиве пула. Один курсор можно многократно
+     * перемещать между компонентами, не создавая новых объектов. Курсор становится недействительным
+     * после любого структурного изменения пула (добавление или удаление компонентов).
+     */
+    public final class Cursor {
+
+        private int denseIndex = -1;
+
+        private Cursor() {}
+
+        /**
+         * @throws java.util.NoSuchElementException если сущность не имеет компонента в этом пуле.
+         */
+        public Cursor moveTo(Entity entity) {
+            denseIndex = getExistedDenseIndex(entity);
+            return this;
+        }
+
+        public Cursor moveToDenseIndex(int denseIndex) {
+            assertInBound(denseIndex);
+            this.denseIndex = denseIndex;
+            return this;
+        }
+
+        public int getDenseIndex() {
+            return denseIndex;
+        }
+
+        public Entity getEntity() {
+            return getEntityFromDensityArray(denseIndex);
+        }
+
+        public StructLayout getLayout() {
+            return layout;
+        }
+
+        public int getInt(int fieldIndex) {
+            return StructPool.this.getInt(denseIndex, fieldIndex);
+        }
+
+        public long getLong(int fieldIndex) {
+            return StructPool.this.getLong(denseIndex, fieldIndex);
+        }
+
+        public float getFloat(int fieldIndex) {
+            return StructPool.this.getFloat(denseIndex, fieldIndex);
+        }
+
+        public double getDouble(int fieldIndex) {
+            return StructPool.this.getDouble(denseIndex, fieldIndex);
+        }
+
+        public Cursor setInt(int fieldIndex, int value) {
+            StructPool.this.setInt(denseIndex, fieldIndex, value);
+            return this;
+        }
+
+        public Cursor setLong(int fieldIndex, long value) {
+            StructPool.this.setLong(denseIndex, fieldIndex, value);
+            return this;
+        }
+
+        public Cursor setFloat(int fieldIndex, float value) {
+            StructPool.this.setFloat(denseIndex, fieldIndex, value);
+            return this;
+        }
+
+        public Cursor setDouble(int fieldIndex, double value) {
+            StructPool.this.setDouble(denseIndex, fieldIndex, value);
+            return this;
+        }
+
+        /**
+         * Два курсора равны, если они имеют одинаковую структуру и одинаковые значения всех полей
+         * компонентов, на которые они указывают.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Cursor other)) return false;
+            return layout.equals(other.getLayout())
+                    && StructPool.this.fieldsEqual(denseIndex, other.getPool(), other.denseIndex);
+        }
+
+        @Override
+        public int hashCode() {
+            return fieldsHashCode(denseIndex);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Cursor{denseIndex: ").append(denseIndex).append(", fields: ");
+            appendFields(sb, denseIndex);
+            return sb.append('}').toString();
+        }
+
+        private StructPool getPool() {
+            return StructPool.this;
+        }
+    }
+
+    /**
+     * Описатель int поля компонентов пула (см. {@link #getIntField(int)}).
+     */
+    public final class IntField {
+
+        private final int columnIndex;
+
+        private IntField(int columnIndex) {
+            this.columnIndex = columnIndex;
+        }
+
+        public int get(int denseIndex) {
+            assertInBound(denseIndex);
+            return intColumns[columnIndex][denseIndex];
+        }
+
+        public void set(int denseIndex, int value) {
+            assertInBound(denseIndex);
+            intColumns[columnIndex][denseIndex] = value;
+        }
+    }
+
+    /**
+     * Описатель long поля компонентов пула (см. {@link #getLongField(int)}).
+     */
+    public final class LongField {
+
+        private final int columnIndex;
+
+        private LongField(int columnIndex) {
+            this.columnIndex = columnIndex;
+        }
+
+        public long get(int denseIndex) {
+            assertInBound(denseIndex);
+            return longColumns[columnIndex][denseIndex];
+        }
+
+        public void set(int denseIndex, long value) {
+            assertInBound(denseIndex);
+            longColumns[columnIndex][denseIndex] = value;
+        }
+    }
+
+    /**
+     * Описатель float поля компонентов пула (см. {@link #getFloatField(int)}).
+     */
+    public final class FloatField {
+
+        private final int columnIndex;
+
+        private FloatField(int columnIndex) {
+            this.columnIndex = columnIndex;
+        }
+
+        public float get(int denseIndex) {
+            assertInBound(denseIndex);
+            return floatColumns[columnIndex][denseIndex];
+        }
+
+        public void set(int denseIndex, float value) {
+            assertInBound(denseIndex);
+            floatColumns[columnIndex][denseIndex] = value;
+        }
+    }
+
+    /**
+     * Описатель double поля компонентов пула (см. {@link #getDoubleField(int)}).
+     */
+    public final class DoubleField {
+
+        private final int columnIndex;
+
+        private DoubleField(int columnIndex) {
+            this.columnIndex = columnIndex;
+        }
+
+        public double get(int denseIndex) {
+            assertInBound(denseIndex);
+            return doubleColumns[columnIndex][denseIndex];
+        }
+
+        public void set(int denseIndex, double value) {
+            assertInBound(denseIndex);
+            doubleColumns[columnIndex][denseIndex] = value;
+        }
+    }
+}
@@ -5,47 +5,145 @@ import com.bakuard.collections.ReadableLinearStructure;
 import com.bakuard.ecsEngine.entity.Entity;
 import com.bakuard.ecsEngine.entity.EntityManager;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 
+/**
+ * Хранит обычные и уникальные теги сущностей. Каждый обычный тег при первом обращении получает
+ * идентификатор - целое неотрицательное число, уникальное в пределах менеджера и не меняющееся до конца
+ * его жизни. Маски тегов хранятся в массиве по идентификатору тега, поэтому методы, принимающие
+ * идентификатор, не вычисляют хеш строки. Методы, принимающие имя тега, являются обертками над ними.
+ * <br/><br/>
+ * Для каждого индекса сущности также хранится список идентификаторов её обычных тегов и список её
+ * уникальных тегов. Поэтому удаление всех тегов сущности и сравнение тегов двух сущностей требуют времени,
+ * пропорционального кол-ву тегов этих сущностей, а не общему кол-ву тегов.
+ */
 public final class TagsManager {
 
-    private final HashMap<String, Bits> tagMasks;
+    private static final Listener[] EMPTY_LISTENERS = new Listener[0];
+
+
+    private final HashMap<String, Integer> tagIds;
+    private String[] tagNames;
+    private Bits[] tagMasks;
+    private BlockSummary[] tagSummaries;
+    private int tagsNumber;
+    private int[][] tagIdsOfEntities;
+    private int[] tagsNumberOfEntities;
     private final HashMap<String, Entity> uniqueTags;
+    private String[][] uniqueTagsOfEntities;
+    private int[] uniqueTagsNumberOfEntities;
     private final EntityManager entityManager;
+    private Listener[] listeners;
 
     public TagsManager(EntityManager entityManager) {
-        this.tagMasks = new HashMap<>();
+        this.listeners = EMPTY_LISTENERS;
+        this.tagIds = new HashMap<>();
+        this.tagNames = new String[16];
+        this.tagMasks = new Bits[16];
+        this.tagSummaries = new BlockSummary[16];
+        this.tagIdsOfEntities = new int[128][];
+        this.tagsNumberOfEntities = new int[128];
         this.uniqueTags = new HashMap<>();
+        this.uniqueTagsOfEntities = new String[16][];
+        this.uniqueTagsNumberOfEntities = new int[16];
         this.entityManager = entityManager;
     }
 
+    /**
+     * Возвращает идентификатор указанного тега. Если тегу ещё не был назначен идентификатор - назначает.
+     */
+    public int getTagId(String tag) {
+        Integer tagId = tagIds.get(tag);
+        if(tagId == null) {
+            if(tagsNumber == tagNames.length) {
+                final int newCapacity = tagsNumber + (tagsNumber >>> 1);
+                tagNames = Arrays.copyOf(tagNames, newCapacity);
+                tagMasks = Arrays.copyOf(tagMasks, newCapacity);
+                tagSummaries = Arrays.copyOf(tagSummaries, newCapacity);
+            }
+            tagId = tagsNumber++;
+            tagNames[tagId] = tag;
+            tagMasks[tagId] = new Bits(0);
+            tagSummaries[tagId] = new BlockSummary();
+            tagIds.put(tag, tagId);
+        }
+        return tagId;
+    }
+
+    /**
+     * Возвращает идентификатор указанного тега или -1, если тегу ещё не был назначен идентификатор.
+     */
+    public int findTagId(String tag) {
+        return tagIds.getOrDefault(tag, -1);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException если тегу с указанным идентификатором не был назначен тег.
+     */
+    public String getTagName(int tagId) {
+        assertTagId(tagId);
+        return tagNames[tagId];
+    }
+
+    /**
+     * Возвращает кол-во тегов, которым был назначен идентификатор.
+     */
+    public int getTagsNumber() {
+        return tagsNumber;
+    }
+
     public void attachTag(Entity entity, String tag) {
-        if(entityManager.isAlive(entity)) attachTagIgnoringEntityState(entity, tag);
+        if(entityManager.isAlive(entity)) attachTagIgnoringEntityState(entity, getTagId(tag));
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException если tagId не является идентификатором тега.
+     */
+    public void attachTag(Entity entity, int tagId) {
+        assertTagId(tagId);
+        if(entityManager.isAlive(entity)) attachTagIgnoringEntityState(entity, tagId);
     }
 
     public void attachTags(Entity entity, String... tags) {
         if(entityManager.isAlive(entity)) {
-            for(String tag : tags) attachTagIgnoringEntityState(entity, tag);
+            for(String tag : tags) attachTagIgnoringEntityState(entity, getTagId(tag));
         }
     }
 
     public void detachTag(Entity entity, String tag) {
-        if(entityManager.isAlive(entity)) detachTagIgnoringEntityState(entity, tag);
+        final int tagId = findTagId(tag);
+        if(tagId != -1 && entityManager.isAlive(entity)) detachTagIgnoringEntityState(entity, tagId);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException если tagId не является идентификатором тега.
+     */
+    public void detachTag(Entity entity, int tagId) {
+        assertTagId(tagId);
+        if(entityManager.isAlive(entity)) detachTagIgnoringEntityState(entity, tagId);
     }
 
     public void detachTags(Entity entity, String... tags) {
         if(entityManager.isAlive(entity)) {
-            for(String tag : tags) detachTagIgnoringEntityState(entity, tag);
+            for(String tag : tags) {
+                final int tagId = findTagId(tag);
+                if(tagId != -1) detachTagIgnoringEntityState(entity, tagId);
+            }
         }
     }
 
     public void detachAllTags(Entity entity) {
         if(entityManager.isAlive(entity)) {
-            tagMasks.forEach((key, bits) -> {
-                if(bits.inBound(entity.index())) bits.clear(entity.index());
-            });
-            uniqueTags.values().removeIf(entity::equals);
+            final int entityIndex = entity.index();
+            while(entityIndex < tagsNumberOfEntities.length && tagsNumberOfEntities[entityIndex] > 0) {
+                detachTagIgnoringEntityState(entity, tagIdsOfEntities[entityIndex][tagsNumberOfEntities[entityIndex] - 1]);
+            }
+            while(entityIndex < uniqueTagsNumberOfEntities.length && uniqueTagsNumberOfEntities[entityIndex] > 0) {
+                final String uniqueTag = uniqueTagsOfEntities[entityIndex][--uniqueTagsNumberOfEntities[entityIndex]];
+                uniqueTagsOfEntities[entityIndex][uniqueTagsNumberOfEntities[entityIndex]] = null;
+                if(entity.equals(uniqueTags.get(uniqueTag))) uniqueTags.remove(uniqueTag);
+            }
         }
     }
 
@@ -56,13 +154,23 @@ public final class TagsManager {
 
 
     public boolean hasTag(Entity entity, String tag) {
-        return entityManager.isAlive(entity) && hasTagIgnoringEntityState(entity, tag);
+        final int tagId = findTagId(tag);
+        return tagId != -1 && entityManager.isAlive(entity) && hasTagIgnoringEntityState(entity, tagId);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException если tagId не является идентификатором тега.
+     */
+    public boolean hasTag(Entity entity, int tagId) {
+        assertTagId(tagId);
+        return entityManager.isAlive(entity) && hasTagIgnoringEntityState(entity, tagId);
     }
 
     public boolean hasAllTags(Entity entity, String... tags) {
         boolean result = entityManager.isAlive(entity);
         for(int i = 0; i < tags.length && result; ++i) {
-            result = hasTagIgnoringEntityState(entity, tags[i]);
+            final int tagId = findTagId(tags[i]);
+            result = tagId != -1 && hasTagIgnoringEntityState(entity, tagId);
         }
         return result;
     }
@@ -70,7 +178,8 @@ public final class TagsManager {
     public boolean hasNoneOfTags(Entity entity, String... tags) {
         boolean result = entityManager.isAlive(entity);
         for(int i = 0; i < tags.length && result; ++i) {
-            result = !hasTagIgnoringEntityState(entity, tags[i]);
+            final int tagId = findTagId(tags[i]);
+            result = tagId == -1 || !hasTagIgnoringEntityState(entity, tagId);
         }
         return result;
     }
@@ -81,11 +190,10 @@ public final class TagsManager {
         boolean result = isFirstAlive && isSecondAlive;
 
         if(result) {
-            Iterator<Bits> tagsIterator = tagMasks.values().iterator();
-            while(result && tagsIterator.hasNext()) {
-                Bits mask = tagsIterator.next();
-                result = ( mask.inBound(firstEntity.index()) && mask.get(firstEntity.index()) ) ==
-                        ( mask.inBound(secondEntity.index()) && mask.get(secondEntity.index()) );
+            final int tagsNumberOfFirst = tagsNumberOf(firstEntity.index());
+            result = tagsNumberOfFirst == tagsNumberOf(secondEntity.index());
+            for(int i = 0; i < tagsNumberOfFirst && result; ++i) {
+                result = hasTagIgnoringEntityState(secondEntity, tagIdsOfEntities[firstEntity.index()][i]);
             }
         }
 
@@ -93,10 +201,61 @@ public final class TagsManager {
     }
 
 
+    /**
+     * Возвращает битовую маску индексов сущностей, имеющих указанный тег, или null, если тегу не был
+     * назначен идентификатор. Возвращаемый объект является внутренним состоянием менеджера и не должен
+     * изменяться.
+     */
+    public Bits getTagMask(String tag) {
+        final int tagId = findTagId(tag);
+        return tagId != -1 ? tagMasks[tagId] : null;
+    }
+
+    /**
+     * Аналог {@link #getTagMask(String)} для идентификатора тега.
+     * @throws IndexOutOfBoundsException если tagId не является идентификатором тега.
+     */
+    public Bits getTagMask(int tagId) {
+        assertTagId(tagId);
+        return tagMasks[tagId];
+    }
+
+    /**
+     * Возвращает сводку по блокам маски {@link #getTagMask(String)} или null, если тегу не был назначен
+     * идентификатор.
+     */
+    public BlockSummary getTagSummary(String tag) {
+        final int tagId = findTagId(tag);
+        return tagId != -1 ? tagSummaries[tagId] : null;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException если tagId не является идентификатором тега.
+     */
+    public BlockSummary getTagSummary(int tagId) {
+        assertTagId(tagId);
+        return tagSummaries[tagId];
+    }
+
+    /**
+     * Возвращает кол-во сущностей, имеющих указанный тег.
+     */
+    public int getTagCardinality(String tag) {
+        final int tagId = findTagId(tag);
+        return tagId != -1 ? tagSummaries[tagId].cardinality() : 0;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException если tagId не является идентификатором тега.
+     */
+    public int getTagCardinality(int tagId) {
+        assertTagId(tagId);
+        return tagSummaries[tagId].cardinality();
+    }
+
     public void excludeEntityIndexesWithout(Bits entityIndexes, ReadableLinearStructure<String> tagNames) {
         for(int i = 0; i < tagNames.size(); ++i) {
-            String tagName = tagNames.get(i);
-            Bits mask = tagMasks.get(tagName);
+            Bits mask = getTagMask(tagNames.get(i));
             if(mask != null) {
                 entityIndexes.and(mask);
             } else {
@@ -108,8 +267,7 @@ public final class TagsManager {
 
     public void excludeEntityIndexesWith(Bits entityIndexes, ReadableLinearStructure<String> tagNames) {
         for(int i = 0; i < tagNames.size(); ++i) {
-            String tagName = tagNames.get(i);
-            Bits mask = tagMasks.get(tagName);
+            Bits mask = getTagMask(tagNames.get(i));
             if(mask != null) entityIndexes.andNot(mask);
         }
     }
@@ -117,12 +275,17 @@ public final class TagsManager {
 
     public void attachUniqueTag(Entity entity, String uniqueTag) {
         if(entityManager.isAlive(entity)) {
-            uniqueTags.put(uniqueTag, entity);
+            Entity previous = uniqueTags.put(uniqueTag, entity);
+            if(!entity.equals(previous)) {
+                if(previous != null) removeUniqueTagOfEntity(previous.index(), uniqueTag);
+                addUniqueTagOfEntity(entity.index(), uniqueTag);
+            }
         }
     }
 
     public void detachUniqueTag(String uniqueTag) {
-        uniqueTags.remove(uniqueTag);
+        Entity previous = uniqueTags.remove(uniqueTag);
+        if(previous != null) removeUniqueTagOfEntity(previous.index(), uniqueTag);
     }
 
     public Entity getEntityByUniqueTag(String uniqueTag) {
@@ -134,20 +297,139 @@ public final class TagsManager {
     }
 
 
-    private void attachTagIgnoringEntityState(Entity entity, String tag) {
-        tagMasks.computeIfAbsent(tag, key -> new Bits(entity.index() + 1))
-                .growToIndex(entity.index())
-                .set(entity.index());
+    /**
+     * Добавляет слушателя, который будет уведомляться о добавлении и удалении обычных (не уникальных) тегов.
+     */
+    public void addListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
     }
 
-    private void detachTagIgnoringEntityState(Entity entity, String tag) {
-        Bits bits = tagMasks.get(tag);
-        if(bits != null && bits.inBound(entity.index())) bits.clear(entity.index());
+    public void removeListener(Listener listener) {
+        for(int i = 0; i < listeners.length; ++i) {
+            if(listeners[i] == listener) {
+                Listener[] newListeners = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+                listeners = newListeners;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Уменьшает битовые маски тегов до максимального индекса сущности с этим тегом. Идентификаторы тегов,
+     * которых нет ни у одной сущности, сохраняются.
+     */
+    public void trim() {
+        for(int tagId = 0; tagId < tagsNumber; ++tagId) {
+            Bits mask = tagMasks[tagId];
+            int lastIndex = -1;
+            for(int i = mask.nextSetBit(0); i != -1; i = mask.nextSetBit(i + 1)) lastIndex = i;
+            mask.compressTo(lastIndex + 1);
+        }
+    }
+
+
+    private void attachTagIgnoringEntityState(Entity entity, int tagId) {
+        Bits bits = tagMasks[tagId].growToIndex(entity.index());
+        if(!bits.get(entity.index())) {
+            bits.set(entity.index());
+            tagSummaries[tagId].onSet(entity.index());
+            addTagOfEntity(entity.index(), tagId);
+            for(Listener listener : listeners) listener.afterAttach(entity, tagId);
+        }
+    }
+
+    private void detachTagIgnoringEntityState(Entity entity, int tagId) {
+        Bits bits = tagMasks[tagId];
+        if(bits.inBound(entity.index()) && bits.get(entity.index())) {
+            for(Listener listener : listeners) listener.beforeDetach(entity, tagId);
+            bits.clear(entity.index());
+            tagSummaries[tagId].onClear(entity.index());
+            removeTagOfEntity(entity.index(), tagId);
+        }
+    }
+
+    private boolean hasTagIgnoringEntityState(Entity entity, int tagId) {
+        Bits bits = tagMasks[tagId];
+        return bits.inBound(entity.index()) && bits.get(entity.index());
+    }
+
+    private int tagsNumberOf(int entityIndex) {
+        return entityIndex < tagsNumberOfEntities.length ? tagsNumberOfEntities[entityIndex] : 0;
+    }
+
+    private void addTagOfEntity(int entityIndex, int tagId) {
+        if(entityIndex >= tagsNumberOfEntities.length) {
+            final int newCapacity = Math.max(entityIndex + 1, tagsNumberOfEntities.length + (tagsNumberOfEntities.length >>> 1));
+            tagIdsOfEntities = Arrays.copyOf(tagIdsOfEntities, newCapacity);
+            tagsNumberOfEntities = Arrays.copyOf(tagsNumberOfEntities, newCapacity);
+        }
+
+        int[] tagIds = tagIdsOfEntities[entityIndex];
+        final int size = tagsNumberOfEntities[entityIndex];
+        if(tagIds == null) {
+            tagIds = tagIdsOfEntities[entityIndex] = new int[4];
+        } else if(size == tagIds.length) {
+            tagIds = tagIdsOfEntities[entityIndex] = Arrays.copyOf(tagIds, size << 1);
+        }
+        tagIds[size] = tagId;
+        tagsNumberOfEntities[entityIndex] = size + 1;
     }
 
-    private boolean hasTagIgnoringEntityState(Entity entity, String tag) {
-        Bits bits = tagMasks.get(tag);
-        return bits != null && bits.inBound(entity.index()) && bits.get(entity.index());
+    private void removeTagOfEntity(int entityIndex, int tagId) {
+        int[] tagIds = tagIdsOfEntities[entityIndex];
+        final int last = --tagsNumberOfEntities[entityIndex];
+        int i = last;
+        while(tagIds[i] != tagId) --i;
+        tagIds[i] = tagIds[last];
+    }
+
+    private void addUniqueTagOfEntity(int entityIndex, String uniqueTag) {
+        if(entityIndex >= uniqueTagsNumberOfEntities.length) {
+            final int newCapacity = Math.max(entityIndex + 1, uniqueTagsNumberOfEntities.length + (uniqueTagsNumberOfEntities.length >>> 1));
+            uniqueTagsOfEntities = Arrays.copyOf(uniqueTagsOfEntities, newCapacity);
+            uniqueTagsNumberOfEntities = Arrays.copyOf(uniqueTagsNumberOfEntities, newCapacity);
+        }
+
+        String[] tags = uniqueTagsOfEntities[entityIndex];
+        final int size = uniqueTagsNumberOfEntities[entityIndex];
+        if(tags == null) {
+            tags = uniqueTagsOfEntities[entityIndex] = new String[2];
+        } else if(size == tags.length) {
+            tags = uniqueTagsOfEntities[entityIndex] = Arrays.copyOf(tags, size << 1);
+        }
+        tags[size] = uniqueTag;
+        uniqueTagsNumberOfEntities[entityIndex] = size + 1;
     }
 
+    private void removeUniqueTagOfEntity(int entityIndex, String uniqueTag) {
+        String[] tags = uniqueTagsOfEntities[entityIndex];
+        final int last = --uniqueTagsNumberOfEntities[entityIndex];
+        int i = last;
+        while(!tags[i].equals(uniqueTag)) --i;
+        tags[i] = tags[last];
+        tags[last] = null;
+    }
+
+    private void assertTagId(int tagId) {
+        if(tagId < 0 || tagId >= tagsNumber) {
+            throw new IndexOutOfBoundsException("Expected: tagId >= 0 and tagId < tagsNumber. Actual: tagId = %d, tagsNumber = %d".formatted(tagId, tagsNumber));
+        }
+    }
+
+
+    public static interface Listener {
+        /**
+         * Вызывается после того, как сущность получила тег, которого у неё до этого не было. Имя тега
+         * можно получить через {@link TagsManager#getTagName(int)}.
+         */
+        public default void afterAttach(Entity entity, int tagId) {}
+
+        /**
+         * Вызывается перед удалением тега сущности.
+         */
+        public default void beforeDetach(Entity entity, int tagId) {}
+    }
 }
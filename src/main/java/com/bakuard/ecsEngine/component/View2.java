@@ -0,0 +1,24 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+/**
+ * Представление всех сущностей, которые имеют компоненты двух указанных типов. Подробнее см.
+ * {@link CompsManager#createView(Class, Class)}.
+ */
+public final class View2<A, B> extends AbstractView {
+
+    View2(CompsManager compsManager, Class<A> firstCompType, Class<B> secondCompType) {
+        super(compsManager, firstCompType, secondCompType);
+    }
+
+    public void forEach(EntryConsumer<A, B> consumer) {
+        iterate((entity, comps) -> consumer.accept(entity, (A) comps[0], (B) comps[1]));
+    }
+
+
+    @FunctionalInterface
+    public static interface EntryConsumer<A, B> {
+        public void accept(Entity entity, A first, B second);
+    }
+}
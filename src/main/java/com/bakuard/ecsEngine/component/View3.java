@@ -0,0 +1,24 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+
+/**
+ * Представление всех сущностей, которые имеют компоненты трех указанных типов. Подробнее см.
+ * {@link CompsManager#createView(Class, Class, Class)}.
+ */
+public final class View3<A, B, C> extends AbstractView {
+
+    View3(CompsManager compsManager, Class<A> firstCompType, Class<B> secondCompType, Class<C> thirdCompType) {
+        super(compsManager, firstCompType, secondCompType, thirdCompType);
+    }
+
+    public void forEach(EntryConsumer<A, B, C> consumer) {
+        iterate((entity, comps) -> consumer.accept(entity, (A) comps[0], (B) comps[1], (C) comps[2]));
+    }
+
+
+    @FunctionalInterface
+    public static interface EntryConsumer<A, B, C> {
+        public void accept(Entity entity, A first, B second, C third);
+    }
+}
@@ -13,6 +13,20 @@ public record Entity(int index, int generation) {
         this((int) entityAsLong, (int) (entityAsLong >>> 32));
     }
 
+    /**
+     * Возвращает индекс сущности упакованной в long (см. {@link #asLong()}) без создания объекта сущности.
+     */
+    public static int indexOf(long entityAsLong) {
+        return (int) entityAsLong;
+    }
+
+    /**
+     * Возвращает поколение сущности упакованной в long (см. {@link #asLong()}) без создания объекта сущности.
+     */
+    public static int generationOf(long entityAsLong) {
+        return (int) (entityAsLong >>> 32);
+    }
+
     public long asLong() {
         return (long)generation << 32 | (long)index;
     }
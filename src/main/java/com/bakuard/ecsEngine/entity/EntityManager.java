@@ -28,7 +28,7 @@ public final class EntityManager {
 
     private long[] entities;
     private int size;
-    private Bits aliveEntitiesMask;
+    private final Bits aliveEntitiesMask;
 
     public EntityManager() {
         entities = new long[10];
@@ -89,6 +89,22 @@ public final class EntityManager {
         return index < size ? new Entity(entities[index]) : new Entity(index, 0);
     }
 
+    /**
+     * Аналог {@link #getEntityByIndex(int)}, который возвращает сущность упакованную в long
+     * (см. {@link Entity#asLong()}) и не создает объект сущности.
+     */
+    public long getPackedEntityByIndex(int index) {
+        return index < size ? entities[index] : pack(index, 0);
+    }
+
+    /**
+     * Аналог {@link #isAlive(Entity)} для сущности упакованной в long (см. {@link Entity#asLong()}).
+     */
+    public boolean isAlive(long entityAsLong) {
+        int index = Entity.indexOf(entityAsLong);
+        return index >= 0 && index < size && entities[index] == entityAsLong && aliveEntitiesMask.get(index);
+    }
+
     /**
      * Создает снимок текущего состояния данного менеджера сущностей. Снимок представляет собой
      * все созданные (включая удаленные) сущности через данный менеджер сущностей.
@@ -111,7 +127,8 @@ public final class EntityManager {
     public void restore(Snapshot snapshot) {
         size = snapshot.alive().size() + snapshot.notAlive().size();
         entities = new long[size];
-        aliveEntitiesMask = new Bits(calculateBitsCapacity(size) + 1);
+        final int bitsSize = calculateBitsCapacity(size) + 1;
+        aliveEntitiesMask.clearAll().compressTo(bitsSize).expandTo(bitsSize);
 
         for(Entity entity : snapshot.alive()) {
             entities[entity.index()] = entity.asLong();
@@ -130,6 +147,35 @@ public final class EntityManager {
         return new Bits(aliveEntitiesMask);
     }
 
+    /**
+     * Аналог {@link #createAliveEntitiesMask()}, который записывает результат в переданную маску
+     * вместо создания новой. Если емкости result достаточно, метод не выделяет память.
+     * @return result.
+     */
+    public Bits copyAliveEntitiesMaskTo(Bits result) {
+        return result.clearAll().expandTo(aliveEntitiesMask.size()).or(aliveEntitiesMask);
+    }
+
+    /**
+     * Возвращает битовую маску живых сущностей. Возвращаемый объект является внутренним состоянием
+     * менеджера сущностей и не должен изменяться.
+     */
+    public Bits getAliveEntitiesMask() {
+        return aliveEntitiesMask;
+    }
+
+    /**
+     * Уменьшает емкость внутренних массивов до минимально необходимой. Сведения о поколениях всех
+     * когда-либо созданных сущностей сохраняются, поэтому удаленные сущности остаются мертвыми. Маска
+     * живых сущностей уменьшается на месте, поэтому ранее полученная {@link #getAliveEntitiesMask()}
+     * остается актуальной.
+     */
+    public void trim() {
+        if(entities.length > size) entities = Arrays.copyOf(entities, Math.max(size, 10));
+
+        aliveEntitiesMask.compressTo(calculateBitsCapacity(size) + 1);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
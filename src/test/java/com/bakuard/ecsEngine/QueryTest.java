@@ -0,0 +1,162 @@
+package com.bakuard.ecsEngine;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.component.EntityFilter;
+import com.bakuard.ecsEngine.component.StorageMode;
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class QueryTest {
+
+    public record Position(int value) {}
+    public record Velocity(int value) {}
+    public record Frozen() {}
+
+    @DisplayName("""
+            createQuery(filter):
+             world already contains entities,
+             then comps and tags are attached and detached
+             => query contains exactly entities that match filter
+            """)
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    public void createQuery1(StorageMode storageMode) {
+        World world = new World(storageMode);
+        EntityFilter filter = new EntityFilter()
+                .allComps(Position.class, Velocity.class)
+                .noneComps(Frozen.class)
+                .allTags("visible")
+                .noneTags("dead");
+        List<Entity> entities = new ArrayList<>();
+        for(int i = 0; i < 20; ++i) {
+            Entity entity = world.create(new Position(i));
+            world.attachTag(entity, "visible");
+            if(i % 2 == 0) world.attachComp(entity, new Velocity(i));
+            entities.add(entity);
+        }
+        Query query = world.createQuery(filter);
+
+        world.attachComp(entities.get(1), new Velocity(1));
+        world.detachComp(entities.get(2), Velocity.class);
+        world.attachComp(entities.get(4), new Frozen());
+        world.attachTag(entities.get(6), "dead");
+        world.detachTag(entities.get(8), "visible");
+        world.remove(entities.get(10));
+        Entity created = world.create(new Position(100), new Velocity(100));
+        world.attachTag(created, "visible");
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertQueryIsConsistent(assertions, world, query, filter);
+        assertions.assertThat(query.contains(entities.get(1))).isTrue();
+        assertions.assertThat(query.contains(created)).isTrue();
+        assertions.assertThat(query.size()).isEqualTo(7);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            createQuery(filter):
+             filter contains anyComps and nested filters,
+             then comps and tags are attached and detached
+             => query contains exactly entities that match filter
+            """)
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    public void createQuery2(StorageMode storageMode) {
+        World world = new World(storageMode);
+        EntityFilter filter = new EntityFilter()
+                .anyComps(Velocity.class, Frozen.class)
+                .noneOf(new EntityFilter().allComps(Position.class).allTags("dead"));
+        Query query = world.createQuery(filter);
+        List<Entity> entities = new ArrayList<>();
+        for(int i = 0; i < 10; ++i) entities.add(world.create(new Position(i)));
+
+        world.attachComp(entities.get(0), new Velocity(0));
+        world.attachComp(entities.get(1), new Frozen());
+        world.attachComp(entities.get(2), new Velocity(2));
+        world.attachComp(entities.get(2), new Frozen());
+        world.detachComp(entities.get(2), Velocity.class);
+        world.attachComp(entities.get(3), new Velocity(3));
+        world.attachTag(entities.get(3), "dead");
+        world.attachComp(entities.get(4), new Velocity(4));
+        world.detachComp(entities.get(4), Velocity.class);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertQueryIsConsistent(assertions, world, query, filter);
+        assertions.assertThat(query.size()).isEqualTo(3);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            createQuery(filter):
+             filters contain noneComps,
+             entities have several comps, then detachAllComps and replaceAllComps are called
+             => queries contain exactly entities that match filters
+            """)
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    public void createQuery3(StorageMode storageMode) {
+        World world = new World(storageMode);
+        EntityFilter positionOnly = new EntityFilter().allComps(Position.class).noneComps(Velocity.class);
+        EntityFilter velocityOnly = new EntityFilter().allComps(Velocity.class).noneComps(Position.class);
+        Query positionQuery = world.createQuery(positionOnly);
+        Query velocityQuery = world.createQuery(velocityOnly);
+        Entity detached = world.create(new Position(0), new Velocity(0));
+        Entity replacedByPosition = world.create(new Position(1), new Velocity(1));
+        Entity replacedByVelocity = world.create(new Position(2), new Velocity(2), new Frozen());
+
+        world.detachAllComps(detached);
+        world.replaceAllComps(replacedByPosition, new Position(10));
+        world.replaceAllComps(replacedByVelocity, new Velocity(20), new Frozen());
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertQueryIsConsistent(assertions, world, positionQuery, positionOnly);
+        assertQueryIsConsistent(assertions, world, velocityQuery, velocityOnly);
+        assertions.assertThat(positionQuery.contains(detached)).isFalse();
+        assertions.assertThat(velocityQuery.contains(detached)).isFalse();
+        assertions.assertThat(positionQuery.contains(replacedByPosition)).isTrue();
+        assertions.assertThat(velocityQuery.contains(replacedByVelocity)).isTrue();
+        assertions.assertThat(positionQuery.size()).isOne();
+        assertions.assertThat(velocityQuery.size()).isOne();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            removeQuery(query):
+             comps are attached after query is removed
+             => query is not updated
+            """)
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    public void removeQuery1(StorageMode storageMode) {
+        World world = new World(storageMode);
+        Query query = world.createQuery(new EntityFilter().allComps(Position.class));
+        world.create(new Position(0));
+
+        world.removeQuery(query);
+        world.create(new Position(1));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(query.size()).isEqualTo(1);
+        assertions.assertAll();
+    }
+
+    private void assertQueryIsConsistent(SoftAssertions assertions, World world, Query query, EntityFilter filter) {
+        Bits expected = world.selectEntityIndexes(filter);
+        for(int i = expected.nextSetBit(0); i != -1; i = expected.nextSetBit(i + 1)) {
+            assertions.assertThat(query.contains(world.getEntityByIndex(i))).isTrue();
+        }
+        assertions.assertThat(query.size()).isEqualTo(expected.cardinality());
+        for(int i = 0; i < query.size(); ++i) {
+            Entity entity = query.getEntity(i);
+            assertions.assertThat(query.getEntityIndexes().get(entity.index())).isTrue();
+            assertions.assertThat(query.contains(entity)).isTrue();
+        }
+        assertions.assertThat(query.size()).isEqualTo(query.getEntityIndexes().cardinality());
+    }
+}
@@ -0,0 +1,311 @@
+package com.bakuard.ecsEngine;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.component.EntityFilter;
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class WorldTest {
+
+    public record Position(int value) {}
+    public record Velocity(int value) {}
+    public record Frozen() {}
+
+    @DisplayName("""
+            selectEntityIndexes(filter, result):
+             result is reused between calls
+             => result contains the same indexes as selectEntityIndexes(filter)
+            """)
+    @Test
+    public void selectEntityIndexes1() {
+        World world = createWorld();
+        EntityFilter filter = new EntityFilter().allComps(Position.class, Velocity.class).noneComps(Frozen.class);
+        Bits result = new Bits(16);
+        world.selectEntityIndexes(new EntityFilter().allComps(Position.class), result);
+
+        world.selectEntityIndexes(filter, result);
+
+        Bits expected = world.selectEntityIndexes(filter);
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(result.cardinality()).isEqualTo(expected.cardinality());
+        for(int i = expected.nextSetBit(0); i != -1; i = expected.nextSetBit(i + 1)) {
+            assertions.assertThat(result.get(i)).isTrue();
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            selectEntityIndexes(filter):
+             one of required tags is rare (sparse probe),
+             other required comps and tags are common
+             => return indexes of exactly those entities that match filter
+            """)
+    @Test
+    public void selectEntityIndexes2() {
+        World world = new World();
+        for(int i = 0; i < 20000; ++i) {
+            Entity entity = world.create(new Position(i));
+            if(i % 2 == 0) world.attachComp(entity, new Velocity(i));
+            if(i % 3 == 0) world.attachTag(entity, "visible");
+            if(i % 1000 == 0) world.attachTag(entity, "boss");
+            if(i % 4000 == 0) world.attachComp(entity, new Frozen());
+        }
+        EntityFilter filter = new EntityFilter()
+                .allComps(Position.class, Velocity.class)
+                .allTags("visible", "boss")
+                .noneComps(Frozen.class);
+
+        Bits actual = world.selectEntityIndexes(filter);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertSelectionMatchesFilter(assertions, world, filter, actual);
+        assertions.assertThat(actual.cardinality()).isEqualTo(5);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            selectEntityIndexes(filter):
+             all required comps and tags are common (bitset scan)
+             => return indexes of exactly those entities that match filter
+            """)
+    @Test
+    public void selectEntityIndexes3() {
+        World world = createWorld();
+        EntityFilter filter = new EntityFilter()
+                .allComps(Velocity.class, Position.class)
+                .allTags("visible")
+                .noneComps(Frozen.class);
+
+        Bits actual = world.selectEntityIndexes(filter);
+        world.attachTag(world.getEntityByIndex(1), "visible");
+        world.attachComp(world.getEntityByIndex(1), new Velocity(1));
+        Bits actualAfterChange = world.selectEntityIndexes(filter);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertSelectionMatchesFilter(assertions, world, filter, actualAfterChange);
+        assertions.assertThat(actualAfterChange.cardinality()).isEqualTo(actual.cardinality() + 1);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            selectEntityIndexes(filter):
+             no entity has one of required comps
+             => return empty mask
+            """)
+    @Test
+    public void selectEntityIndexes4() {
+        World world = createWorld();
+        EntityFilter filter = new EntityFilter().allComps(Position.class, String.class);
+
+        Bits actual = world.selectEntityIndexes(filter);
+
+        Assertions.assertThat(actual.isEmpty()).isTrue();
+    }
+
+    @DisplayName("""
+            selectEntityIndexes(filter):
+             filter contains anyComps, anyTags and nested filters
+             => return indexes of exactly those entities that match filter
+            """)
+    @Test
+    public void selectEntityIndexes5() {
+        World world = createWorld();
+        EntityFilter filter = new EntityFilter()
+                .allComps(Position.class)
+                .anyComps(Velocity.class, Frozen.class)
+                .anyTags("visible", "hidden")
+                .anyOf(
+                        new EntityFilter().allComps(Velocity.class),
+                        new EntityFilter().allComps(Frozen.class).noneTags("visible")
+                )
+                .noneOf(new EntityFilter().allComps(Velocity.class, Frozen.class));
+
+        Bits actual = world.selectEntityIndexes(filter);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertSelectionMatchesFilter(assertions, world, filter, actual);
+        assertions.assertThat(actual.isEmpty()).isFalse();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            selectEntityIndexes(filter), forEachEntityIndex(filter, consumer):
+             filter contains rare required tag (sparse probe) and nested filters
+             => both return indexes of exactly those entities that match filter
+            """)
+    @Test
+    public void selectEntityIndexes6() {
+        World world = new World();
+        for(int i = 0; i < 20000; ++i) {
+            Entity entity = world.create(new Position(i));
+            if(i % 2 == 0) world.attachComp(entity, new Velocity(i));
+            if(i % 3 == 0) world.attachTag(entity, "visible");
+            if(i % 100 == 0) world.attachTag(entity, "boss");
+        }
+        EntityFilter filter = new EntityFilter()
+                .allTags("boss")
+                .anyOf(new EntityFilter().allComps(Velocity.class), new EntityFilter().allTags("visible"))
+                .noneOf(new EntityFilter().allComps(Velocity.class).allTags("visible"));
+
+        Bits actual = world.selectEntityIndexes(filter);
+        List<Integer> streamed = new ArrayList<>();
+        world.forEachEntityIndex(filter, streamed::add);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertSelectionMatchesFilter(assertions, world, filter, actual);
+        assertions.assertThat(streamed).hasSize(actual.cardinality());
+        streamed.forEach(i -> assertions.assertThat(actual.get(i)).isTrue());
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            selectEntityIndexes(filter):
+             filter contains tags that were never attached,
+             then one of these tags is attached
+             => unknown tags are treated as absent and aren't registered,
+                the same filter takes the tag into account after it is attached
+            """)
+    @Test
+    public void selectEntityIndexes7() {
+        World world = new World();
+        Entity first = world.create(new Position(0));
+        Entity second = world.create(new Position(1));
+        world.attachTag(first, "visible");
+        EntityFilter required = new EntityFilter().allComps(Position.class).allTags("ghost");
+        EntityFilter excluded = new EntityFilter().allComps(Position.class).noneTags("ghost");
+
+        Bits requiredBefore = world.selectEntityIndexes(required);
+        Bits excludedBefore = world.selectEntityIndexes(excluded);
+        int nextTagId = world.getTagId("other");
+        world.attachTag(second, "ghost");
+        Bits requiredAfter = world.selectEntityIndexes(required);
+        Bits excludedAfter = world.selectEntityIndexes(excluded);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(requiredBefore.isEmpty()).isTrue();
+        assertions.assertThat(excludedBefore.cardinality()).isEqualTo(2);
+        assertions.assertThat(nextTagId).isOne();
+        assertions.assertThat(requiredAfter.cardinality()).isOne();
+        assertions.assertThat(requiredAfter.get(second.index())).isTrue();
+        assertions.assertThat(excludedAfter.cardinality()).isOne();
+        assertions.assertThat(excludedAfter.get(first.index())).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            forEachEntityIndex(filter, consumer):
+             filter contains comps and tags
+             => consumer gets the same indexes as selectEntityIndexes(filter) in ascending order
+            """)
+    @Test
+    public void forEachEntityIndex1() {
+        World world = createWorld();
+        EntityFilter filter = new EntityFilter()
+                .allComps(Position.class, Velocity.class)
+                .noneComps(Frozen.class)
+                .allTags("visible");
+
+        List<Integer> actual = new ArrayList<>();
+        world.forEachEntityIndex(filter, actual::add);
+
+        List<Integer> expected = new ArrayList<>();
+        Bits mask = world.selectEntityIndexes(filter);
+        for(int i = mask.nextSetBit(0); i != -1; i = mask.nextSetBit(i + 1)) expected.add(i);
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).isNotEmpty();
+        assertions.assertThat(actual).containsExactlyElementsOf(expected);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            forEachEntityIndex(filter, consumer):
+             no entity has ever had one of required tags
+             => consumer isn't called
+            """)
+    @Test
+    public void forEachEntityIndex2() {
+        World world = createWorld();
+        EntityFilter filter = new EntityFilter().allComps(Position.class).allTags("unknown");
+
+        List<Integer> actual = new ArrayList<>();
+        world.forEachEntityIndex(filter, actual::add);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).isEmpty();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            forEachEntityIndex(filter, consumer):
+             world is big, required tag is attached to a few entities in distant blocks
+             => consumer gets only these entities
+            """)
+    @Test
+    public void forEachEntityIndex3() {
+        World world = new World();
+        List<Integer> expected = new ArrayList<>();
+        for(int i = 0; i < 50000; ++i) {
+            Entity entity = world.create(new Position(i));
+            if(i % 9000 == 0) {
+                world.attachTag(entity, "boss");
+                expected.add(i);
+            }
+        }
+        world.detachTag(world.getEntityByIndex(9000), "boss");
+        expected.remove(Integer.valueOf(9000));
+
+        List<Integer> actual = new ArrayList<>();
+        world.forEachEntityIndex(new EntityFilter().allComps(Position.class).allTags("boss"), actual::add);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).containsExactlyElementsOf(expected);
+        assertions.assertAll();
+    }
+
+    private void assertSelectionMatchesFilter(SoftAssertions assertions, World world, EntityFilter filter, Bits actual) {
+        for(int i = 0; i < actual.size(); ++i) {
+            Entity entity = world.getEntityByIndex(i);
+            boolean expected = entity != null && world.isAlive(entity) && matches(world, entity, filter);
+            assertions.assertThat(actual.get(i)).as("entity index " + i).isEqualTo(expected);
+        }
+    }
+
+    private boolean matches(World world, Entity entity, EntityFilter filter) {
+        boolean result = true;
+        for(Class<?> compType : filter.getAllComps()) result &= world.hasComp(entity, compType);
+        for(Class<?> compType : filter.getNoneComps()) result &= !world.hasComp(entity, compType);
+        for(String tag : filter.getAllTags()) result &= world.hasTag(entity, tag);
+        for(String tag : filter.getNoneTags()) result &= !world.hasTag(entity, tag);
+
+        boolean any = filter.getAnyComps().size() == 0 && filter.getAnyTags().size() == 0;
+        for(Class<?> compType : filter.getAnyComps()) any |= world.hasComp(entity, compType);
+        for(String tag : filter.getAnyTags()) any |= world.hasTag(entity, tag);
+        result &= any;
+
+        boolean anyOf = filter.getAnyOf().size() == 0;
+        for(EntityFilter subFilter : filter.getAnyOf()) anyOf |= matches(world, entity, subFilter);
+        result &= anyOf;
+
+        for(EntityFilter subFilter : filter.getNoneOf()) result &= !matches(world, entity, subFilter);
+        return result;
+    }
+
+    private World createWorld() {
+        World world = new World();
+        for(int i = 0; i < 200; ++i) {
+            Entity entity = world.create(new Position(i));
+            if(i % 2 == 0) world.attachComp(entity, new Velocity(i));
+            if(i % 5 == 0) world.attachComp(entity, new Frozen());
+            if(i % 3 == 0) world.attachTag(entity, "visible");
+            if(i % 11 == 0) world.attachTag(entity, "hidden");
+            if(i % 7 == 0) world.remove(entity);
+        }
+        return world;
+    }
+}
@@ -0,0 +1,126 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.collections.DynamicArray;
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ArchetypeStorageTest {
+
+    public record A(int value) {}
+    public record B(int value) {}
+    public record C(int value) {}
+
+    @DisplayName("""
+            attachComp(entity, comp):
+             entity already has other comps
+             => entity moves to archetype with new set of comp types, all comps are preserved
+            """)
+    @Test
+    public void attachComp1() {
+        ArchetypeStorage storage = new ArchetypeStorage();
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(1, 0);
+        storage.attachComp(entityA, new A(1));
+        storage.attachComp(entityB, new A(2));
+        storage.attachComp(entityA, new B(10));
+
+        storage.attachComp(entityA, new C(100));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(storage.getComp(entityA, A.class)).isEqualTo(new A(1));
+        assertions.assertThat(storage.getComp(entityA, B.class)).isEqualTo(new B(10));
+        assertions.assertThat(storage.getComp(entityA, C.class)).isEqualTo(new C(100));
+        assertions.assertThat(storage.getComp(entityB, A.class)).isEqualTo(new A(2));
+        assertions.assertThat(storage.hasComp(entityB, B.class)).isFalse();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            detachComp(entity, compType):
+             several entities share archetype
+             => other entities and their comps don't change
+            """)
+    @Test
+    public void detachComp1() {
+        ArchetypeStorage storage = new ArchetypeStorage();
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(1, 0);
+        Entity entityC = new Entity(2, 0);
+        storage.attachComp(entityA, new A(1));
+        storage.attachComp(entityA, new B(1));
+        storage.attachComp(entityB, new A(2));
+        storage.attachComp(entityB, new B(2));
+        storage.attachComp(entityC, new A(3));
+        storage.attachComp(entityC, new B(3));
+
+        storage.detachComp(entityA, B.class);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(storage.getComp(entityA, A.class)).isEqualTo(new A(1));
+        assertions.assertThat(storage.hasComp(entityA, B.class)).isFalse();
+        assertions.assertThat(storage.getComp(entityB, B.class)).isEqualTo(new B(2));
+        assertions.assertThat(storage.getComp(entityC, B.class)).isEqualTo(new B(3));
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            forEachArchetype(consumer, compTypes):
+             there are archetypes with and without all compTypes
+             => consumer is called only for archetypes that contain all compTypes
+            """)
+    @Test
+    public void forEachArchetype1() {
+        ArchetypeStorage storage = new ArchetypeStorage();
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(1, 0);
+        Entity entityC = new Entity(2, 0);
+        storage.attachComp(entityA, new A(1));
+        storage.attachComp(entityA, new B(1));
+        storage.attachComp(entityB, new A(2));
+        storage.attachComp(entityC, new A(3));
+        storage.attachComp(entityC, new B(3));
+        storage.attachComp(entityC, new C(3));
+
+        List<Entity> actual = new ArrayList<>();
+        storage.forEachArchetype(archetype -> {
+            for(int row = 0; row < archetype.size(); ++row) actual.add(archetype.getEntity(row));
+        }, A.class, B.class);
+
+        Assertions.assertThat(actual).containsExactlyInAnyOrder(entityA, entityC);
+    }
+
+    @DisplayName("""
+            CompsManager with StorageMode.ARCHETYPES:
+             excludeEntityIndexesWithout(entityIndexes, compTypes)
+             => remove correct entity indexes from entityIndexes
+            """)
+    @Test
+    public void compsManager1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager, StorageMode.ARCHETYPES);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        Entity entityC = entityManager.create();
+        compsManager.attachComps(entityA, new A(1), new B(1));
+        compsManager.attachComps(entityB, new A(2), new C(2));
+        compsManager.attachComps(entityC, new B(3), new C(3));
+        compsManager.detachAllComps(entityB);
+
+        Bits actual = Bits.filled(100);
+        compsManager.excludeEntityIndexesWithout(actual, DynamicArray.of(A.class));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).isEqualTo(Bits.of(100, 0));
+        assertions.assertThat(compsManager.getCompPool(C.class).size()).isEqualTo(1);
+        assertions.assertThat(compsManager.getComp(entityC, C.class)).isEqualTo(new C(3));
+        assertions.assertAll();
+    }
+}
@@ -0,0 +1,61 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BlockSummaryTest {
+
+    @DisplayName("""
+            onSet(index), onClear(index):
+             bits are set in several blocks, then all bits of one block are cleared
+             => cleared block is empty, other blocks are not empty
+            """)
+    @Test
+    public void onSetAndOnClear1() {
+        BlockSummary summary = new BlockSummary();
+        summary.onSet(1);
+        summary.onSet(BlockSummary.BLOCK_SIZE * 3 + 5);
+        summary.onSet(BlockSummary.BLOCK_SIZE * 3 + 6);
+        summary.onSet(BlockSummary.BLOCK_SIZE * 100);
+
+        summary.onClear(BlockSummary.BLOCK_SIZE * 3 + 5);
+        summary.onClear(BlockSummary.BLOCK_SIZE * 3 + 6);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(summary.isEmptyBlock(0)).isFalse();
+        assertions.assertThat(summary.isEmptyBlock(3)).isTrue();
+        assertions.assertThat(summary.isEmptyBlock(100)).isFalse();
+        assertions.assertThat(summary.isEmptyBlock(1000)).isTrue();
+        assertions.assertThat(summary.nonEmptyBlocksNumber()).isEqualTo(2);
+        assertions.assertThat(summary.nextNonEmptyBlock(1)).isEqualTo(100);
+        assertions.assertThat(summary.nextNonEmptyBlock(101)).isEqualTo(-1);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            getEntityIndexesSummary():
+             comps are attached and detached
+             => summary matches pool mask
+            """)
+    @Test
+    public void getEntityIndexesSummary1() {
+        SparseSet pool = new SparseSet();
+        for(int i = 0; i < 20000; i += 7) pool.attachComp(new Entity(i, 0), i);
+        for(int i = 0; i < 20000; i += 14) pool.detachComp(new Entity(i, 0));
+        for(int i = 4096; i < 8192; ++i) pool.detachComp(new Entity(i, 0));
+
+        BlockSummary summary = pool.getEntityIndexesSummary();
+        SoftAssertions assertions = new SoftAssertions();
+        for(int block = 0; block < 5; ++block) {
+            int expected = 0;
+            for(int i = block * BlockSummary.BLOCK_SIZE; i < (block + 1) * BlockSummary.BLOCK_SIZE; ++i) {
+                if(pool.hasComp(new Entity(i, 0))) ++expected;
+            }
+            assertions.assertThat(summary.blockCardinality(block)).isEqualTo(expected);
+        }
+        assertions.assertThat(summary.isEmptyBlock(1)).isTrue();
+        assertions.assertAll();
+    }
+}
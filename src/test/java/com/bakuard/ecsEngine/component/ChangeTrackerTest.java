@@ -0,0 +1,117 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ChangeTrackerTest {
+
+    public record Position(int value) {}
+
+    @DisplayName("""
+            trackChanges(compType):
+             comps are attached, replaced, marked as changed and detached
+             => added, removed and changed masks contain corresponding entity indexes
+            """)
+    @Test
+    public void trackChanges1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        Entity entityC = entityManager.create();
+        Entity entityD = entityManager.create();
+        compsManager.attachComp(entityA, new Position(0));
+        compsManager.attachComp(entityB, new Position(0));
+        compsManager.attachComp(entityC, new Position(0));
+        ChangeTracker tracker = compsManager.trackChanges(Position.class);
+
+        compsManager.attachComp(entityA, new Position(1));
+        compsManager.markChanged(entityB, Position.class);
+        compsManager.detachComp(entityC, Position.class);
+        compsManager.attachComp(entityD, new Position(1));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(tracker.getAdded().cardinality()).isEqualTo(1);
+        assertions.assertThat(tracker.getAdded().get(entityD.index())).isTrue();
+        assertions.assertThat(tracker.getRemoved().cardinality()).isEqualTo(1);
+        assertions.assertThat(tracker.getRemoved().get(entityC.index())).isTrue();
+        assertions.assertThat(tracker.getChanged().cardinality()).isEqualTo(2);
+        assertions.assertThat(tracker.getChanged().get(entityA.index())).isTrue();
+        assertions.assertThat(tracker.getChanged().get(entityB.index())).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            trackChanges(compType):
+             comp is added and detached, another comp is detached and added again during one period
+             => first entity isn't in any mask, second entity is in changed mask
+            """)
+    @Test
+    public void trackChanges2() {
+        SparseSet pool = new SparseSet();
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(1, 0);
+        pool.attachComp(entityB, new Position(0));
+        ChangeTracker tracker = new ChangeTracker(pool);
+
+        pool.attachComp(entityA, new Position(1));
+        pool.detachComp(entityA);
+        pool.detachComp(entityB);
+        pool.attachComp(entityB, new Position(1));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(tracker.getAdded().isEmpty()).isTrue();
+        assertions.assertThat(tracker.getRemoved().isEmpty()).isTrue();
+        assertions.assertThat(tracker.getChanged().cardinality()).isEqualTo(1);
+        assertions.assertThat(tracker.getChanged().get(entityB.index())).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            setIntInDensityArray(index, comp), setIntInDensityArrayAndNotify(index, comp):
+             comps are changed by dense index
+             => only comp changed with notification is in changed mask
+            """)
+    @Test
+    public void trackChanges3() {
+        IntPool pool = new IntPool();
+        pool.attachInt(new Entity(0, 0), 1);
+        pool.attachInt(new Entity(1, 0), 1);
+        ChangeTracker tracker = new ChangeTracker(pool);
+
+        pool.setIntInDensityArray(pool.getDenseIndex(new Entity(0, 0)), 2);
+        pool.setIntInDensityArrayAndNotify(pool.getDenseIndex(new Entity(1, 0)), 2);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(tracker.getChanged().cardinality()).isEqualTo(1);
+        assertions.assertThat(tracker.getChanged().get(1)).isTrue();
+        assertions.assertThat(pool.getInt(new Entity(0, 0))).isEqualTo(2);
+        assertions.assertThat(pool.getInt(new Entity(1, 0))).isEqualTo(2);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            clear():
+             tracker has changes
+             => all masks are empty
+            """)
+    @Test
+    public void clear1() {
+        IntPool pool = new IntPool();
+        ChangeTracker tracker = new ChangeTracker(pool);
+        pool.attachInt(new Entity(0, 0), 1);
+        pool.attachInt(new Entity(1, 0), 1);
+        tracker.clear();
+        pool.setInt(new Entity(1, 0), 2);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(tracker.getAdded().isEmpty()).isTrue();
+        assertions.assertThat(tracker.getRemoved().isEmpty()).isTrue();
+        assertions.assertThat(tracker.getChanged().get(1)).isTrue();
+        assertions.assertThat(tracker.getChanged().get(0)).isFalse();
+        assertions.assertAll();
+    }
+}
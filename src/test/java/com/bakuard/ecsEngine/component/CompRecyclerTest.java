@@ -0,0 +1,107 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CompRecyclerTest {
+
+    public static class Bullet {
+        public int damage;
+    }
+
+    @DisplayName("""
+            detachComp(entity, compType), obtainComp(compType):
+             recycling is enabled for compType
+             => obtainComp returns detached instance in reset state
+            """)
+    @Test
+    public void recycling1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        compsManager.enableRecycling(Bullet.class, Bullet::new, bullet -> bullet.damage = 0, 10);
+        Entity entity = entityManager.create();
+        Bullet bullet = compsManager.attachRecycledComp(entity, Bullet.class);
+        bullet.damage = 10;
+
+        compsManager.detachComp(entity, Bullet.class);
+        Bullet actual = compsManager.obtainComp(Bullet.class);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).isSameAs(bullet);
+        assertions.assertThat(actual.damage).isZero();
+        assertions.assertThat(compsManager.obtainComp(Bullet.class)).isNotSameAs(bullet);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            detachAllComps(entity):
+             recycling is enabled for compType,
+             free list has room for only one instance
+             => only one instance is recycled
+            """)
+    @Test
+    public void recycling2() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        CompRecycler<Bullet> recycler = compsManager.enableRecycling(Bullet.class, Bullet::new, bullet -> {}, 1);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        compsManager.attachComp(entityA, new Bullet());
+        compsManager.attachComp(entityB, new Bullet());
+
+        compsManager.detachAllComps(entityA);
+        compsManager.detachAllComps(entityB);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(recycler.size()).isEqualTo(1);
+        assertions.assertThat(compsManager.hasComp(entityA, Bullet.class)).isFalse();
+        assertions.assertThat(compsManager.hasComp(entityB, Bullet.class)).isFalse();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComp(entity, comp), attachComps(entities, comps):
+             recycling is enabled for compType,
+             entity already has comp of this type
+             => replaced instance is recycled, reattached same instance isn't recycled
+            """)
+    @Test
+    public void recycling3() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        CompRecycler<Bullet> recycler = compsManager.enableRecycling(Bullet.class, Bullet::new, bullet -> {}, 10);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        Bullet oldBulletA = compsManager.attachRecycledComp(entityA, Bullet.class);
+        Bullet oldBulletB = compsManager.attachRecycledComp(entityB, Bullet.class);
+
+        Bullet newBulletA = new Bullet();
+        compsManager.attachComp(entityA, newBulletA);
+        compsManager.attachComp(entityA, newBulletA);
+        compsManager.attachComps(new Entity[]{entityB}, new Object[]{new Bullet()});
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(recycler.size()).isEqualTo(2);
+        assertions.assertThat(compsManager.getComp(entityA, Bullet.class)).isSameAs(newBulletA);
+        assertions.assertThat(compsManager.obtainComp(Bullet.class)).isIn(oldBulletA, oldBulletB);
+        assertions.assertThat(compsManager.obtainComp(Bullet.class)).isIn(oldBulletA, oldBulletB);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            obtainComp(compType):
+             recycling isn't enabled for compType
+             => throw IllegalStateException
+            """)
+    @Test
+    public void obtainComp1() {
+        CompsManager compsManager = new CompsManager(new EntityManager());
+
+        Assertions.assertThatIllegalStateException()
+                .isThrownBy(() -> compsManager.obtainComp(Bullet.class));
+    }
+}
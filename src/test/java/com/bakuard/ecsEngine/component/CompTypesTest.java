@@ -0,0 +1,56 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CompTypesTest {
+
+    public record Position(int value) {}
+    public record Velocity(int value) {}
+
+    @DisplayName("""
+            idOf(compType), typeOf(id):
+             different comp types
+             => each type gets its own stable id, typeOf returns type by id
+            """)
+    @Test
+    public void idOf1() {
+        int positionId = CompTypes.idOf(Position.class);
+        int velocityId = CompTypes.idOf(Velocity.class);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(positionId).isNotEqualTo(velocityId);
+        assertions.assertThat(CompTypes.idOf(Position.class)).isEqualTo(positionId);
+        assertions.assertThat(CompTypes.typeOf(positionId)).isEqualTo(Position.class);
+        assertions.assertThat(CompTypes.typeOf(velocityId)).isEqualTo(Velocity.class);
+        assertions.assertThat(CompTypes.typesNumber()).isGreaterThan(Math.max(positionId, velocityId));
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            getComp(entity, compTypeId), hasComp(entity, compTypeId), detachComp(entity, compTypeId):
+             comp type id was resolved once
+             => id-based methods work the same way as class-based methods
+            """)
+    @Test
+    public void compsManagerIdOverloads1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        Entity entity = entityManager.create();
+        int positionId = CompTypes.idOf(Position.class);
+        int velocityId = CompTypes.idOf(Velocity.class);
+        compsManager.attachComps(entity, new Position(1), new Velocity(2));
+
+        compsManager.detachComp(entity, velocityId);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(compsManager.<Position>getComp(entity, positionId)).isEqualTo(new Position(1));
+        assertions.assertThat(compsManager.hasComp(entity, positionId)).isTrue();
+        assertions.assertThat(compsManager.hasComp(entity, velocityId)).isFalse();
+        assertions.assertThat(compsManager.hasComp(entity, Velocity.class)).isFalse();
+        assertions.assertAll();
+    }
+}
@@ -364,4 +364,75 @@ class CompsManagerTest {
 
         Assertions.assertThat(actual).isEqualTo(Bits.filled(100));
     }
-}
\ No newline at end of file
+
+    @DisplayName("""
+            attachComps(entities, comps):
+             comps have different types,
+             some entities are dead
+             => alive entities get corresponding comps, dead entities are ignored
+            """)
+    @Test
+    public void attachCompsBatch1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        Entity deadEntity = entityManager.create();
+        Entity entityC = entityManager.create();
+        entityManager.remove(deadEntity);
+
+        compsManager.attachComps(
+                new Entity[]{entityA, entityB, deadEntity, entityC, entityA},
+                new Object[]{new A(), new A(), new A(), new A(), new B()}
+        );
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(compsManager.hasAllComps(entityA, A.class, B.class)).isTrue();
+        assertions.assertThat(compsManager.hasComp(entityB, A.class)).isTrue();
+        assertions.assertThat(compsManager.hasComp(entityB, B.class)).isFalse();
+        assertions.assertThat(compsManager.hasComp(entityC, A.class)).isTrue();
+        assertions.assertThat(compsManager.getCompPool(A.class).size()).isEqualTo(3);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComps(entities, comps):
+             entities.length != comps.length
+             => throw IllegalArgumentException
+            """)
+    @Test
+    public void attachCompsBatch2() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        Entity entity = entityManager.create();
+
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> compsManager.attachComps(new Entity[]{entity}, new Object[]{new A(), new B()}));
+    }
+
+    @DisplayName("""
+            detachComps(entities, compType):
+             some entities have comp
+             => all entities don't have comp, other comps are preserved
+            """)
+    @Test
+    public void detachCompsBatch1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        Entity entityC = entityManager.create();
+        compsManager.attachComps(entityA, new A(), new B());
+        compsManager.attachComps(entityB, new A());
+        compsManager.attachComps(entityC, new B());
+
+        compsManager.detachComps(new Entity[]{entityA, entityB, entityC}, A.class);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(compsManager.hasComp(entityA, A.class)).isFalse();
+        assertions.assertThat(compsManager.hasComp(entityB, A.class)).isFalse();
+        assertions.assertThat(compsManager.hasComp(entityA, B.class)).isTrue();
+        assertions.assertThat(compsManager.hasComp(entityC, B.class)).isTrue();
+        assertions.assertAll();
+    }
+}
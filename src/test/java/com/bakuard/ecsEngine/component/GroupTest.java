@@ -0,0 +1,120 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class GroupTest {
+
+    public record Position(int value) {}
+    public record Velocity(int value) {}
+
+    @DisplayName("""
+            Group(pools):
+             pools already contain comps
+             => first size() cells of all pools point to entities that have all comps
+            """)
+    @Test
+    public void group1() {
+        SparseSet positions = new SparseSet();
+        SparseSet velocities = new SparseSet();
+        for(int i = 0; i < 10; ++i) positions.attachComp(new Entity(i, 0), new Position(i));
+        for(int i = 9; i >= 0; i -= 2) velocities.attachComp(new Entity(i, 0), new Velocity(i));
+
+        Group group = new Group(positions, velocities);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(group.size()).isEqualTo(5);
+        assertGroupIsConsistent(assertions, group, positions, velocities);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComp(entity, comp), detachComp(entity):
+             pools are owned by group
+             => group is updated incrementally, comps are preserved
+            """)
+    @Test
+    public void group2() {
+        SparseSet positions = new SparseSet();
+        SparseSet velocities = new SparseSet();
+        Group group = new Group(positions, velocities);
+
+        for(int i = 0; i < 20; ++i) positions.attachComp(new Entity(i, 0), new Position(i));
+        for(int i = 0; i < 20; i += 3) velocities.attachComp(new Entity(i, 0), new Velocity(i));
+        positions.detachComp(new Entity(3, 0));
+        velocities.detachComp(new Entity(12, 0));
+        positions.detachComp(new Entity(1, 0));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(group.size()).isEqualTo(5);
+        assertions.assertThat(group.contains(new Entity(3, 0))).isFalse();
+        assertions.assertThat(group.contains(new Entity(12, 0))).isFalse();
+        assertions.assertThat(group.contains(new Entity(18, 0))).isTrue();
+        assertGroupIsConsistent(assertions, group, positions, velocities);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            Group(pools):
+             one of pools is owned by another group
+             => throw IllegalStateException
+            """)
+    @Test
+    public void group3() {
+        SparseSet positions = new SparseSet();
+        new Group(positions, new SparseSet());
+
+        Assertions.assertThatIllegalStateException()
+                .isThrownBy(() -> new Group(positions, new SparseSet()));
+    }
+
+    @DisplayName("""
+            sortByEntityIndex():
+             pool is owned by group
+             => group remains consistent, cells outside group are ordered by entity index
+            """)
+    @Test
+    public void group4() {
+        SparseSet positions = new SparseSet();
+        SparseSet velocities = new SparseSet();
+        Group group = new Group(positions, velocities);
+        for(int i = 19; i >= 0; --i) positions.attachComp(new Entity(i, 0), new Position(i));
+        for(int i = 0; i < 20; i += 4) velocities.attachComp(new Entity(i, 0), new Velocity(i));
+
+        positions.sortByEntityIndex();
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(group.size()).isEqualTo(5);
+        assertGroupIsConsistent(assertions, group, positions, velocities);
+        for(int i = group.size() + 1; i < positions.size(); ++i) {
+            assertions.assertThat(positions.getEntityFromDensityArray(i).index())
+                    .isGreaterThan(positions.getEntityFromDensityArray(i - 1).index());
+        }
+        assertions.assertAll();
+    }
+
+    private void assertGroupIsConsistent(SoftAssertions assertions,
+                                         Group group,
+                                         SparseSet positions,
+                                         SparseSet velocities) {
+        List<Entity> actual = new ArrayList<>();
+        group.forEach(i -> {
+            Entity entity = positions.getEntityFromDensityArray(i);
+            actual.add(entity);
+            assertions.assertThat(velocities.getEntityFromDensityArray(i)).isEqualTo(entity);
+            assertions.assertThat(positions.<Position>getCompFromDensityArray(i).value()).isEqualTo(entity.index());
+            assertions.assertThat(velocities.<Velocity>getCompFromDensityArray(i).value()).isEqualTo(entity.index());
+        });
+        for(int i = 0; i < positions.size(); ++i) {
+            Entity entity = positions.getEntityFromDensityArray(i);
+            assertions.assertThat(positions.<Position>getComp(entity).value()).isEqualTo(entity.index());
+            assertions.assertThat(actual.contains(entity)).isEqualTo(velocities.hasComp(entity));
+        }
+    }
+}
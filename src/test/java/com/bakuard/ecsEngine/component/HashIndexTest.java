@@ -0,0 +1,90 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class HashIndexTest {
+
+    public enum Team {RED, BLUE, GREEN}
+    public record Player(int id, Team team) {}
+
+    @DisplayName("""
+            HashIndex(pool, keyExtractor):
+             pool already contains comps, then comps are attached, replaced, marked changed and detached
+             => index returns exactly entities with given key
+            """)
+    @Test
+    public void hashIndex1() {
+        SparseSet pool = new SparseSet();
+        for(int i = 0; i < 10; ++i) pool.attachComp(new Entity(i, 0), new Player(i, Team.values()[i % 3]));
+        HashIndex<Player, Team> index = new HashIndex<>(pool, Player::team);
+
+        for(int i = 10; i < 20; ++i) pool.attachComp(new Entity(i, 0), new Player(i, Team.values()[i % 3]));
+        pool.attachComp(new Entity(0, 0), new Player(0, Team.GREEN));
+        pool.detachComp(new Entity(3, 0));
+        pool.detachComp(new Entity(6, 0));
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(Team team : Team.values()) {
+            Bits actual = index.select(team, new Bits());
+            List<Entity> actualEntities = new ArrayList<>();
+            index.forEach(team, actualEntities::add);
+
+            int expectedCount = 0;
+            for(int i = 0; i < 20; ++i) {
+                Entity entity = new Entity(i, 0);
+                boolean expected = pool.hasComp(entity) && pool.<Player>getComp(entity).team() == team;
+                if(expected) ++expectedCount;
+                assertions.assertThat(actual.inBound(i) && actual.get(i)).as("team %s, entity %s", team, i).isEqualTo(expected);
+                assertions.assertThat(actualEntities.contains(entity)).as("team %s, entity %s", team, i).isEqualTo(expected);
+            }
+            assertions.assertThat(index.count(team)).isEqualTo(expectedCount);
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            findFirst(key):
+             keys are unique, one comp was removed
+             => return entity with given key or null
+            """)
+    @Test
+    public void findFirst1() {
+        SparseSet pool = new SparseSet();
+        HashIndex<Player, Integer> index = new HashIndex<>(pool, Player::id);
+        for(int i = 0; i < 100; ++i) pool.attachComp(new Entity(i, 0), new Player(8800 + i, Team.RED));
+        pool.detachComp(new Entity(13, 0));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(index.findFirst(8812)).isEqualTo(new Entity(12, 0));
+        assertions.assertThat(index.findFirst(8813)).isNull();
+        assertions.assertThat(index.keysNumber()).isEqualTo(99);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            stop():
+             comps are attached after index is stopped
+             => index isn't updated
+            """)
+    @Test
+    public void stop1() {
+        SparseSet pool = new SparseSet();
+        HashIndex<Player, Integer> index = new HashIndex<>(pool, Player::id);
+        pool.attachComp(new Entity(0, 0), new Player(1, Team.RED));
+
+        index.stop();
+        pool.attachComp(new Entity(1, 0), new Player(2, Team.RED));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(index.findFirst(1)).isEqualTo(new Entity(0, 0));
+        assertions.assertThat(index.findFirst(2)).isNull();
+        assertions.assertAll();
+    }
+}
@@ -0,0 +1,209 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.collections.DynamicArray;
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+class IntPoolTest {
+
+    public record Health() {}
+
+    @DisplayName("""
+            attachInt(entity, comp):
+             entity hasn't such comp
+             => getInt(entity) must return comp
+            """)
+    @Test
+    public void attachInt1() {
+        IntPool pool = new IntPool();
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(10, 0);
+        Entity entityC = new Entity(1000, 0);
+
+        pool.attachInt(entityA, 1);
+        pool.attachInt(entityB, 2);
+        pool.attachInt(entityC, 3);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.getInt(entityA)).isEqualTo(1);
+        assertions.assertThat(pool.getInt(entityB)).isEqualTo(2);
+        assertions.assertThat(pool.getInt(entityC)).isEqualTo(3);
+        assertions.assertThat(pool.size()).isEqualTo(3);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachInt(entity, comp):
+             entity has such comp
+             => replace comp, size doesn't change
+            """)
+    @Test
+    public void attachInt2() {
+        IntPool pool = new IntPool();
+        Entity entity = new Entity(10, 0);
+        pool.attachInt(entity, 1);
+
+        pool.attachInt(entity, 2);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.getInt(entity)).isEqualTo(2);
+        assertions.assertThat(pool.size()).isEqualTo(1);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachInt(entity, comp):
+             pool contains more comps than initial capacity
+             => getInt(entity) must return comp for each entity
+            """)
+    @Test
+    public void attachInt3() {
+        IntPool pool = new IntPool();
+
+        for(int i = 0; i < 100; ++i) pool.attachInt(new Entity(i, 0), i * 10);
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(int i = 0; i < 100; ++i) {
+            assertions.assertThat(pool.getInt(new Entity(i, 0))).as("entity %s", i).isEqualTo(i * 10);
+        }
+        assertions.assertThat(pool.size()).isEqualTo(100);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComp(entity, comp), attachComps(entities, comps, from, to):
+             comp is null or isn't Integer
+             => throw IllegalArgumentException, pool doesn't change, listeners aren't notified
+            """)
+    @Test
+    public void attachComp1() {
+        IntPool pool = new IntPool();
+        pool.attachInt(new Entity(0, 0), 5);
+        List<Entity> attached = new ArrayList<>();
+        pool.addListener(new CompPool.Listener() {
+            @Override
+            public void afterAttach(Entity entity) {
+                attached.add(entity);
+            }
+        });
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> pool.attachComp(new Entity(1, 0), null));
+        assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> pool.attachComp(new Entity(2, 0), "7"));
+        assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> pool.attachComps(
+                        new Entity[]{new Entity(3, 0), new Entity(4, 0)}, new Object[]{3, 4L}, 0, 2));
+        assertions.assertThat(pool.size()).isEqualTo(1);
+        assertions.assertThat(pool.hasComp(new Entity(1, 0))).isFalse();
+        assertions.assertThat(pool.hasComp(new Entity(2, 0))).isFalse();
+        assertions.assertThat(pool.hasComp(new Entity(3, 0))).isFalse();
+        assertions.assertThat(attached).isEmpty();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            getInt(entity):
+             entity hasn't such comp
+             => throw NoSuchElementException
+            """)
+    @Test
+    public void getInt1() {
+        IntPool pool = new IntPool();
+        pool.attachInt(new Entity(0, 0), 1);
+
+        Assertions.assertThatExceptionOfType(NoSuchElementException.class)
+                .isThrownBy(() -> pool.getInt(new Entity(1, 0)));
+    }
+
+    @DisplayName("""
+            detachComp(entity):
+             entity has such comp
+             => hasComp(entity) return false, other comps don't change
+            """)
+    @Test
+    public void detachComp1() {
+        IntPool pool = new IntPool();
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(10, 0);
+        Entity entityC = new Entity(100, 0);
+        pool.attachInt(entityA, 1);
+        pool.attachInt(entityB, 2);
+        pool.attachInt(entityC, 3);
+
+        pool.detachComp(entityA);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.hasComp(entityA)).isFalse();
+        assertions.assertThat(pool.getInt(entityB)).isEqualTo(2);
+        assertions.assertThat(pool.getInt(entityC)).isEqualTo(3);
+        assertions.assertThat(pool.getEntityIndexesMask().get(0)).isFalse();
+        assertions.assertThat(pool.size()).isEqualTo(2);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            forEachInt(consumer):
+             pool contains several comps
+             => consumer is called for each pair of entity and comp
+            """)
+    @Test
+    public void forEachInt1() {
+        IntPool pool = new IntPool();
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(10, 0);
+        Entity entityC = new Entity(100, 0);
+        pool.attachInt(entityA, 1);
+        pool.attachInt(entityB, 2);
+        pool.attachInt(entityC, 3);
+
+        List<Entity> actualEntities = new ArrayList<>();
+        List<Integer> actualComps = new ArrayList<>();
+        pool.forEachInt((entity, comp) -> {
+            actualEntities.add(entity);
+            actualComps.add(comp);
+        });
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actualEntities).containsExactlyInAnyOrder(entityA, entityB, entityC);
+        assertions.assertThat(actualComps).containsExactlyInAnyOrder(1, 2, 3);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            pool was registered in CompsManager:
+             there are entities with comp
+             => excludeEntityIndexesWithout(entityIndexes, compTypes) remove correct entity indexes
+            """)
+    @Test
+    public void registeredPool1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        IntPool pool = new IntPool();
+        compsManager.registerCompPool(pool, Health.class);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        Entity entityC = entityManager.create();
+        pool.attachInt(entityA, 100);
+        pool.attachInt(entityC, 50);
+
+        Bits actual = Bits.filled(100);
+        compsManager.excludeEntityIndexesWithout(actual, DynamicArray.of(Health.class));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).isEqualTo(Bits.of(100, 0, 2));
+        assertions.assertThat(compsManager.hasComp(entityB, Health.class)).isFalse();
+        assertions.assertThat(compsManager.hasComp(entityC, Health.class)).isTrue();
+        assertions.assertAll();
+    }
+}
@@ -0,0 +1,67 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class MarkerPoolTest {
+
+    @Marker
+    public record Enemy() {}
+
+    @DisplayName("""
+            attachComp(entity, comp):
+             comp type is annotated with @Marker
+             => CompsManager uses MarkerPool for this comp type
+            """)
+    @Test
+    public void markerPool1() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+
+        compsManager.attachComp(entityA, new Enemy());
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(compsManager.<Enemy, CompPool>getCompPool(Enemy.class)).isInstanceOf(MarkerPool.class);
+        assertions.assertThat(compsManager.hasComp(entityA, Enemy.class)).isTrue();
+        assertions.assertThat(compsManager.hasComp(entityB, Enemy.class)).isFalse();
+        assertions.assertThat(compsManager.getComp(entityA, Enemy.class)).isEqualTo(new Enemy());
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            detachComp(entity), forEach(consumer), size():
+             some entities have marker
+             => consumer gets only entities with marker, size is correct
+            """)
+    @Test
+    public void markerPool2() {
+        EntityManager entityManager = new EntityManager();
+        MarkerPool pool = new MarkerPool(entityManager);
+        List<Entity> entities = new ArrayList<>();
+        for(int i = 0; i < 10; ++i) {
+            Entity entity = entityManager.create();
+            entities.add(entity);
+            pool.attachComp(entity, new Enemy());
+        }
+        for(int i = 0; i < 10; i += 2) pool.detachComp(entities.get(i));
+
+        List<Entity> actual = new ArrayList<>();
+        pool.forEach((entity, comp) -> actual.add(entity));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.size()).isEqualTo(5);
+        assertions.assertThat(actual).containsExactly(
+                entities.get(1), entities.get(3), entities.get(5), entities.get(7), entities.get(9)
+        );
+        assertions.assertThat(pool.getEntityIndexesMask().cardinality()).isEqualTo(5);
+        assertions.assertAll();
+    }
+}
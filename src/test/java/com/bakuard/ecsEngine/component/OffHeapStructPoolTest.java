@@ -0,0 +1,180 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.World;
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+class OffHeapStructPoolTest {
+
+    public record Transform() {}
+
+    private static final StructLayout TRANSFORM = StructLayout.builder()
+            .addFloatField("x")
+            .addLongField("id")
+            .addDoubleField("rotation")
+            .build();
+
+    @DisplayName("""
+            attachStruct(entity):
+             number of comps greater than initial capacity
+             => grow capacity, fields of all comps are preserved
+            """)
+    @Test
+    public void attachStruct1() {
+        OffHeapStructPool pool = new OffHeapStructPool(TRANSFORM, 10);
+        int x = TRANSFORM.getFieldIndex("x");
+        int id = TRANSFORM.getFieldIndex("id");
+
+        for(int i = 0; i < 100; ++i) {
+            int denseIndex = pool.attachStruct(new Entity(i * 3, 0));
+            pool.setFloat(denseIndex, x, i);
+            pool.setLong(denseIndex, id, i * 1000L);
+        }
+        pool.detachComp(new Entity(0, 0));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.size()).isEqualTo(99);
+        assertions.assertThat(pool.capacity()).isGreaterThanOrEqualTo(99);
+        for(int i = 1; i < 100; ++i) {
+            int denseIndex = pool.getDenseIndex(new Entity(i * 3, 0));
+            assertions.assertThat(pool.getFloat(denseIndex, x)).isEqualTo(i);
+            assertions.assertThat(pool.getLong(denseIndex, id)).isEqualTo(i * 1000L);
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComp(entity, comp):
+             comp is ByteBuffer with byte order different from native
+             => fields are converted to native byte order
+            """)
+    @Test
+    public void attachComp1() {
+        OffHeapStructPool pool = new OffHeapStructPool(TRANSFORM);
+        Entity entity = new Entity(0, 0);
+        ByteOrder foreignOrder = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        ByteBuffer comp = ByteBuffer.allocate(TRANSFORM.byteSize() + 1).order(foreignOrder);
+        comp.position(1);
+        comp.putFloat(1 + TRANSFORM.getField(TRANSFORM.getFieldIndex("x")).byteOffset(), 1.5f);
+        comp.putLong(1 + TRANSFORM.getField(TRANSFORM.getFieldIndex("id")).byteOffset(), 42L);
+        comp.putDouble(1 + TRANSFORM.getField(TRANSFORM.getFieldIndex("rotation")).byteOffset(), -0.25);
+
+        pool.attachComp(entity, comp);
+
+        int denseIndex = pool.getDenseIndex(entity);
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.getFloat(denseIndex, TRANSFORM.getFieldIndex("x"))).isEqualTo(1.5f);
+        assertions.assertThat(pool.getLong(denseIndex, TRANSFORM.getFieldIndex("id"))).isEqualTo(42L);
+        assertions.assertThat(pool.getDouble(denseIndex, TRANSFORM.getFieldIndex("rotation"))).isEqualTo(-0.25);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComp(entity, comp):
+             comp has less remaining bytes than layout size or pool is closed
+             => throw exception, entity isn't added
+            """)
+    @Test
+    public void attachComp2() {
+        OffHeapStructPool pool = new OffHeapStructPool(TRANSFORM);
+        Entity entity = new Entity(0, 0);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> pool.attachComp(entity, ByteBuffer.allocate(TRANSFORM.byteSize() - 1)));
+        pool.close();
+        assertions.assertThatIllegalStateException()
+                .isThrownBy(() -> pool.attachComp(entity, ByteBuffer.allocate(TRANSFORM.byteSize())));
+        assertions.assertThat(pool.hasComp(entity)).isFalse();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            getFloat(denseIndex, fieldIndex), setFloat(denseIndex, fieldIndex, value):
+             denseIndex equal size, slot was used by detached comp
+             => throw IndexOutOfBoundsException
+            """)
+    @Test
+    public void getFloat1() {
+        OffHeapStructPool pool = new OffHeapStructPool(TRANSFORM);
+        int x = TRANSFORM.getFieldIndex("x");
+        pool.attachStruct(new Entity(0, 0));
+        pool.setFloat(pool.attachStruct(new Entity(1, 0)), x, 7f);
+        pool.detachComp(new Entity(1, 0));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThatIndexOutOfBoundsException()
+                .isThrownBy(() -> pool.getFloat(pool.size(), x));
+        assertions.assertThatIndexOutOfBoundsException()
+                .isThrownBy(() -> pool.setFloat(pool.size(), x, 1f));
+        assertions.assertThat(pool.size()).isEqualTo(1);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            trim():
+             pool grew and then most of comps were detached
+             => capacity shrinks, fields of remaining comps are preserved
+            """)
+    @Test
+    public void trim1() {
+        OffHeapStructPool pool = new OffHeapStructPool(TRANSFORM);
+        int id = TRANSFORM.getFieldIndex("id");
+        for(int i = 0; i < 100; ++i) pool.setLong(pool.attachStruct(new Entity(i, 0)), id, i);
+        for(int i = 20; i < 100; ++i) pool.detachComp(new Entity(i, 0));
+
+        pool.trim();
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.capacity()).isEqualTo(20);
+        for(int i = 0; i < 20; ++i) {
+            assertions.assertThat(pool.getLong(pool.getDenseIndex(new Entity(i, 0)), id)).isEqualTo(i);
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            close():
+             pool is already closed
+             => do nothing
+            """)
+    @Test
+    public void close2() {
+        OffHeapStructPool pool = new OffHeapStructPool(TRANSFORM);
+        pool.attachStruct(new Entity(0, 0));
+        pool.close();
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThatCode(pool::close).doesNotThrowAnyException();
+        assertions.assertThat(pool.isClosed()).isTrue();
+        assertions.assertThat(pool.capacity()).isZero();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            World.close():
+             pool was registered in world
+             => pool is closed, access to comps throw IllegalStateException
+            """)
+    @Test
+    public void close1() {
+        OffHeapStructPool pool = new OffHeapStructPool(TRANSFORM);
+        World world = new World().registerCompPool(pool, Transform.class);
+        Entity entity = world.create();
+        int denseIndex = pool.attachStruct(entity);
+
+        world.close();
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.isClosed()).isTrue();
+        assertions.assertThatIllegalStateException()
+                .isThrownBy(() -> pool.getFloat(denseIndex, TRANSFORM.getFieldIndex("x")));
+        assertions.assertAll();
+    }
+}
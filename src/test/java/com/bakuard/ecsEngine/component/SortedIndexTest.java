@@ -0,0 +1,70 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SortedIndexTest {
+
+    public record Score(int value) {}
+
+    @DisplayName("""
+            selectRange(from, fromInclusive, to, toInclusive, result), forEachInRange(...):
+             comps were attached, changed through IntPool and detached
+             => return exactly entities with keys in range, forEachInRange is ordered by key
+            """)
+    @Test
+    public void selectRange1() {
+        IntPool pool = new IntPool();
+        SortedIndex<Integer, Integer> index = new SortedIndex<>(pool, value -> value);
+        for(int i = 0; i < 50; ++i) pool.attachInt(new Entity(i, 0), (i * 7) % 50);
+        pool.setInt(new Entity(1, 0), 25);
+        pool.detachComp(new Entity(2, 0));
+
+        Bits actual = index.selectRange(10, true, 30, false, new Bits());
+        List<Integer> actualOrder = new ArrayList<>();
+        index.forEachInRange(10, true, 30, false, entity -> actualOrder.add(pool.getInt(entity)));
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(int i = 0; i < 50; ++i) {
+            Entity entity = new Entity(i, 0);
+            boolean expected = pool.hasComp(entity) && pool.getInt(entity) >= 10 && pool.getInt(entity) < 30;
+            assertions.assertThat(actual.inBound(i) && actual.get(i)).as("entity %s", i).isEqualTo(expected);
+        }
+        assertions.assertThat(actualOrder).isSorted().hasSize(actual.cardinality());
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            selectLowest(result), selectHighest(result):
+             index contains more entities than result length
+             => return entities with lowest and highest keys in proper order
+            """)
+    @Test
+    public void selectLowestAndHighest1() {
+        SparseSet pool = new SparseSet();
+        SortedIndex<Score, Integer> index = new SortedIndex<>(pool, Score::value);
+        for(int i = 0; i < 20; ++i) pool.attachComp(new Entity(i, 0), new Score(100 - i * 5));
+
+        long[] lowest = new long[3];
+        long[] highest = new long[3];
+        int lowestCount = index.selectLowest(lowest);
+        int highestCount = index.selectHighest(highest);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(lowestCount).isEqualTo(3);
+        assertions.assertThat(highestCount).isEqualTo(3);
+        assertions.assertThat(new Entity(lowest[0])).isEqualTo(new Entity(19, 0));
+        assertions.assertThat(new Entity(lowest[2])).isEqualTo(new Entity(17, 0));
+        assertions.assertThat(new Entity(highest[0])).isEqualTo(new Entity(0, 0));
+        assertions.assertThat(new Entity(highest[2])).isEqualTo(new Entity(2, 0));
+        assertions.assertThat(index.firstKey()).isEqualTo(5);
+        assertions.assertThat(index.lastKey()).isEqualTo(100);
+        assertions.assertAll();
+    }
+}
@@ -1,5 +1,6 @@
 package com.bakuard.ecsEngine.component;
 
+import com.bakuard.collections.Bits;
 import com.bakuard.ecsEngine.entity.Entity;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.SoftAssertions;
@@ -7,7 +8,12 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 class SparseSetTest {
 
@@ -435,4 +441,311 @@ class SparseSetTest {
 		assertions.assertThat(iterator.recentComp()).isNull();
 		assertions.assertAll();
 	}
-}
\ No newline at end of file
+
+    @DisplayName("""
+            attachComp(entity, comp), detachComp(entity):
+             entity indexes belong to distant pages of sparse array
+             => getComp(entity) and hasComp(entity) return correct values
+            """)
+    @Test
+    public void pagedSparseArray1() {
+        SparseSet sparseSet = new SparseSet();
+        Entity entityA = new Entity(3, 0);
+        Entity entityB = new Entity(1023, 0);
+        Entity entityC = new Entity(1024, 0);
+        Entity entityD = new Entity(2_000_000, 0);
+        Comp compA = new Comp("A");
+        Comp compC = new Comp("C");
+        Comp compD = new Comp("D");
+        sparseSet.attachComp(entityA, compA);
+        sparseSet.attachComp(entityB, new Comp("B"));
+        sparseSet.attachComp(entityC, compC);
+        sparseSet.attachComp(entityD, compD);
+
+        sparseSet.detachComp(entityB);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat((Comp)sparseSet.getComp(entityA)).isSameAs(compA);
+        assertions.assertThat(sparseSet.hasComp(entityB)).isFalse();
+        assertions.assertThat((Comp)sparseSet.getComp(entityC)).isSameAs(compC);
+        assertions.assertThat((Comp)sparseSet.getComp(entityD)).isSameAs(compD);
+        assertions.assertThat(sparseSet.hasComp(new Entity(1_999_999, 0))).isFalse();
+        assertions.assertThat(sparseSet.hasComp(new Entity(5_000_000, 0))).isFalse();
+        assertions.assertThat(sparseSet.size()).isEqualTo(3);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComps(entities, comps, from, to):
+             some entities already have comp,
+             batch requires growing of density arrays
+             => every entity in range has corresponding comp, entities outside range are ignored
+            """)
+    @Test
+    public void attachComps1() {
+        SparseSet sparseSet = new SparseSet();
+        Comp oldComp = new Comp("old");
+        sparseSet.attachComp(new Entity(5, 0), oldComp);
+        Entity[] entities = new Entity[100];
+        Comp[] comps = new Comp[100];
+        for(int i = 0; i < entities.length; ++i) {
+            entities[i] = new Entity(i * 7 % 100, 0);
+            comps[i] = new Comp("comp" + i);
+        }
+
+        sparseSet.attachComps(entities, comps, 1, 100);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(sparseSet.size()).isEqualTo(99);
+        assertions.assertThat(sparseSet.hasComp(entities[0])).isFalse();
+        for(int i = 1; i < entities.length; ++i) {
+            assertions.assertThat((Comp)sparseSet.getComp(entities[i])).isSameAs(comps[i]);
+            assertions.assertThat(sparseSet.getEntityIndexesMask().get(entities[i].index())).isTrue();
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            sortByEntityIndex():
+             dense array is shuffled by detachComp
+             => entities in dense array are ordered by index, every entity keeps its comp
+            """)
+    @Test
+    public void sortByEntityIndex1() {
+        SparseSet sparseSet = new SparseSet();
+        for(int i = 0; i < 50; ++i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+        for(int i = 0; i < 50; i += 3) sparseSet.detachComp(new Entity(i, 0));
+        for(int i = 49; i >= 0; i -= 6) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+
+        sparseSet.sortByEntityIndex();
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(int i = 1; i < sparseSet.size(); ++i) {
+            assertions.assertThat(sparseSet.getEntityFromDensityArray(i).index())
+                    .isGreaterThan(sparseSet.getEntityFromDensityArray(i - 1).index());
+        }
+        for(int i = 0; i < sparseSet.size(); ++i) {
+            Entity entity = sparseSet.getEntityFromDensityArray(i);
+            assertions.assertThat(sparseSet.<Comp>getCompFromDensityArray(i).name()).isEqualTo("comp" + entity.index());
+            assertions.assertThat(sparseSet.getDenseIndex(entity)).isEqualTo(i);
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            sortByComps(comparator):
+             pool contains several comps
+             => comps in dense array are ordered by comparator, every entity keeps its comp
+            """)
+    @Test
+    public void sortByComps1() {
+        SparseSet sparseSet = new SparseSet();
+        sparseSet.attachComp(new Entity(0, 0), new Comp("d"));
+        sparseSet.attachComp(new Entity(1, 0), new Comp("b"));
+        sparseSet.attachComp(new Entity(2, 0), new Comp("a"));
+        sparseSet.attachComp(new Entity(3, 0), new Comp("c"));
+
+        sparseSet.sortByComps(Comparator.comparing(Comp::name));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(sparseSet.getEntityFromDensityArray(0)).isEqualTo(new Entity(2, 0));
+        assertions.assertThat(sparseSet.getEntityFromDensityArray(1)).isEqualTo(new Entity(1, 0));
+        assertions.assertThat(sparseSet.getEntityFromDensityArray(2)).isEqualTo(new Entity(3, 0));
+        assertions.assertThat(sparseSet.getEntityFromDensityArray(3)).isEqualTo(new Entity(0, 0));
+        assertions.assertThat((Comp)sparseSet.getComp(new Entity(0, 0))).isEqualTo(new Comp("d"));
+        assertions.assertThat((Comp)sparseSet.getComp(new Entity(2, 0))).isEqualTo(new Comp("a"));
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            partialSortByEntityIndex(maxSteps):
+             called repeatedly
+             => dense array becomes ordered by entity index, after that returns 0
+            """)
+    @Test
+    public void partialSortByEntityIndex1() {
+        SparseSet sparseSet = new SparseSet();
+        for(int i = 19; i >= 0; --i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+
+        for(int i = 0; i < 100; ++i) sparseSet.partialSortByEntityIndex(10);
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(int i = 0; i < sparseSet.size(); ++i) {
+            Entity entity = sparseSet.getEntityFromDensityArray(i);
+            assertions.assertThat(entity.index()).isEqualTo(i);
+            assertions.assertThat((Comp)sparseSet.getComp(entity)).isEqualTo(new Comp("comp" + i));
+        }
+        assertions.assertThat(sparseSet.partialSortByEntityIndex(100)).isZero();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            forEachPacked(consumer):
+             pool contains several comps
+             => consumer gets index and generation of each entity with its comp
+            """)
+    @Test
+    public void forEachPacked1() {
+        SparseSet sparseSet = new SparseSet();
+        sparseSet.attachComp(new Entity(0, 3), new Comp("A"));
+        sparseSet.attachComp(new Entity(7, 1), new Comp("B"));
+        sparseSet.attachComp(new Entity(2, 0), new Comp("C"));
+
+        List<String> actual = new ArrayList<>();
+        sparseSet.<Comp>forEachPacked((index, generation, comp) -> actual.add(index + ":" + generation + ":" + comp.name()));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).containsExactlyInAnyOrder("0:3:A", "7:1:B", "2:0:C");
+        assertions.assertThat(sparseSet.getPackedEntityFromDensityArray(1)).isEqualTo(new Entity(7, 1).asLong());
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            parallelForEach(consumer):
+             pool contains many comps
+             => consumer gets every entity exactly once
+            """)
+    @Test
+    public void parallelForEach1() {
+        SparseSet sparseSet = new SparseSet();
+        for(int i = 0; i < 100_000; ++i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+
+        AtomicIntegerArray visits = new AtomicIntegerArray(100_000);
+        sparseSet.<Comp>parallelForEach((entity, comp) -> {
+            if(comp.name().equals("comp" + entity.index())) visits.incrementAndGet(entity.index());
+        });
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(int i = 0; i < visits.length(); ++i) assertions.assertThat(visits.get(i)).isEqualTo(1);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            parallelForEach(consumer):
+             consumer attaches or detaches comps
+             => throw ConcurrentModificationException
+            """)
+    @Test
+    public void parallelForEach2() {
+        SparseSet sparseSet = new SparseSet();
+        for(int i = 0; i < 10; ++i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThatThrownBy(() -> sparseSet.parallelForEach((entity, comp) -> sparseSet.detachComp(entity)))
+                .isInstanceOf(ConcurrentModificationException.class);
+        assertions.assertThatThrownBy(() -> sparseSet.parallelForEach((entity, comp) -> sparseSet.attachComp(new Entity(100, 0), comp)))
+                .isInstanceOf(ConcurrentModificationException.class);
+        assertions.assertThat(sparseSet.size()).isEqualTo(10);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            parallelForEachDenseIndex(forkJoinPool, consumer):
+             another thread detaches comp during iteration
+             => throw ConcurrentModificationException in that thread, pool doesn't change
+            """)
+    @Test
+    public void parallelForEachDenseIndex1() {
+        SparseSet sparseSet = new SparseSet();
+        for(int i = 0; i < 10; ++i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        sparseSet.parallelForEachDenseIndex(ForkJoinPool.commonPool(), index -> {
+            if(index == 0) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        sparseSet.detachComp(new Entity(5, 0));
+                    } catch(Throwable e) {
+                        error.set(e);
+                    }
+                });
+                thread.start();
+                try {
+                    thread.join();
+                } catch(InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(error.get()).isInstanceOf(ConcurrentModificationException.class);
+        assertions.assertThat(sparseSet.size()).isEqualTo(10);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            trim():
+             most comps were detached
+             => remaining comps are preserved, entity indexes mask is shrunk to max entity index
+            """)
+    @Test
+    public void trim1() {
+        SparseSet sparseSet = new SparseSet();
+        for(int i = 0; i < 5000; ++i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+        for(int i = 0; i < 5000; ++i) {
+            if(i != 7 && i != 1500) sparseSet.detachComp(new Entity(i, 0));
+        }
+
+        sparseSet.trim();
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(sparseSet.size()).isEqualTo(2);
+        assertions.assertThat((Comp)sparseSet.getComp(new Entity(7, 0))).isEqualTo(new Comp("comp7"));
+        assertions.assertThat((Comp)sparseSet.getComp(new Entity(1500, 0))).isEqualTo(new Comp("comp1500"));
+        assertions.assertThat(sparseSet.hasComp(new Entity(4999, 0))).isFalse();
+        assertions.assertThat(sparseSet.getEntityIndexesMask().size()).isEqualTo(1501);
+        assertions.assertThat(sparseSet.getEntityIndexesMask().cardinality()).isEqualTo(2);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            trim():
+             entity indexes mask was obtained before trim, comps are attached after trim
+             => previously obtained mask reflects pool state
+            """)
+    @Test
+    public void trim2() {
+        SparseSet sparseSet = new SparseSet();
+        Bits mask = sparseSet.getEntityIndexesMask();
+        for(int i = 0; i < 5000; ++i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+        for(int i = 10; i < 5000; ++i) sparseSet.detachComp(new Entity(i, 0));
+
+        sparseSet.trim();
+        sparseSet.attachComp(new Entity(3000, 0), new Comp("comp3000"));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(sparseSet.getEntityIndexesMask()).isSameAs(mask);
+        assertions.assertThat(mask.cardinality()).isEqualTo(11);
+        assertions.assertThat(mask.get(3000)).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            setAutoTrim(true), detachComp(entity), attachComp(entity, comp):
+             comps are detached and attached again
+             => pool remains consistent
+            """)
+    @Test
+    public void autoTrim1() {
+        SparseSet sparseSet = new SparseSet();
+        sparseSet.setAutoTrim(true);
+        for(int round = 0; round < 3; ++round) {
+            for(int i = 0; i < 3000; ++i) sparseSet.attachComp(new Entity(i, 0), new Comp("comp" + i));
+            for(int i = 0; i < 3000; ++i) {
+                if(i % 100 != 0) sparseSet.detachComp(new Entity(i, 0));
+            }
+        }
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(sparseSet.size()).isEqualTo(30);
+        for(int i = 0; i < 3000; ++i) {
+            assertions.assertThat(sparseSet.hasComp(new Entity(i, 0))).isEqualTo(i % 100 == 0);
+        }
+        for(int i = 0; i < sparseSet.size(); ++i) {
+            Entity entity = sparseSet.getEntityFromDensityArray(i);
+            assertions.assertThat(sparseSet.<Comp>getCompFromDensityArray(i).name()).isEqualTo("comp" + entity.index());
+        }
+        assertions.assertAll();
+    }
+}
@@ -0,0 +1,224 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.collections.Bits;
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+class SpatialGridPoolTest {
+
+    @DisplayName("""
+            selectInRadius(x, y, z, radius, result):
+             entities were attached, moved and detached
+             => result contains exactly entities within radius
+            """)
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3})
+    public void selectInRadius1(int dimensions) {
+        SpatialGridPool pool = createPool(dimensions);
+
+        SoftAssertions assertions = new SoftAssertions();
+        Bits actual = new Bits();
+        for(float radius : new float[]{0.5f, 3f, 12f, 1000f}) {
+            pool.selectInRadius(25, 25, dimensions == 3 ? 25 : 0, radius, actual);
+            for(int i = 0; i < 1000; ++i) {
+                Entity entity = new Entity(i, 0);
+                boolean expected = pool.hasComp(entity) && distanceSquare(pool, entity, 25, 25, dimensions == 3 ? 25 : 0) <= radius * radius;
+                assertions.assertThat(actual.inBound(i) && actual.get(i)).as("radius %s, entity %s", radius, i).isEqualTo(expected);
+            }
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            selectInBox(minX, minY, minZ, maxX, maxY, maxZ, result):
+             entities were attached, moved and detached
+             => result contains exactly entities inside box
+            """)
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3})
+    public void selectInBox1(int dimensions) {
+        SpatialGridPool pool = createPool(dimensions);
+
+        Bits actual = pool.selectInBox(10, 5, dimensions == 3 ? 10 : 0, 30, 40, dimensions == 3 ? 30 : 0, new Bits());
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(int i = 0; i < 1000; ++i) {
+            Entity entity = new Entity(i, 0);
+            boolean expected = pool.hasComp(entity)
+                    && pool.getX(entity) >= 10 && pool.getX(entity) <= 30
+                    && pool.getY(entity) >= 5 && pool.getY(entity) <= 40
+                    && (dimensions == 2 || pool.getZ(entity) >= 10 && pool.getZ(entity) <= 30);
+            assertions.assertThat(actual.inBound(i) && actual.get(i)).as("entity %s", i).isEqualTo(expected);
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            findNearest(x, y, z, mask, result):
+             mask is null or contains part of entities
+             => result contains nearest entities from mask in ascending order of distance
+            """)
+    @ParameterizedTest
+    @ValueSource(ints = {2, 3})
+    public void findNearest1(int dimensions) {
+        SpatialGridPool pool = createPool(dimensions);
+        Bits mask = new Bits(1000);
+        for(int i = 0; i < 1000; i += 3) mask.set(i);
+        final float z = dimensions == 3 ? 7 : 0;
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(Bits currentMask : new Bits[]{null, mask}) {
+            long[] actual = new long[10];
+            int found = pool.findNearest(7, 13, z, currentMask, actual);
+
+            List<Entity> expected = new ArrayList<>();
+            for(int i = 0; i < 1000; ++i) {
+                Entity entity = new Entity(i, 0);
+                if(pool.hasComp(entity) && (currentMask == null || currentMask.get(i))) expected.add(entity);
+            }
+            expected.sort(Comparator.comparingDouble(entity -> distanceSquare(pool, entity, 7, 13, z)));
+
+            assertions.assertThat(found).isEqualTo(10);
+            for(int i = 0; i < found; ++i) {
+                assertions.assertThat(distanceSquare(pool, new Entity(actual[i]), 7, 13, z))
+                        .isEqualTo(distanceSquare(pool, expected.get(i), 7, 13, z));
+            }
+        }
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            findNearest(x, y, z, mask, result):
+             pool contains fewer entities than result length
+             => return all entities of pool
+            """)
+    @Test
+    public void findNearest2() {
+        SpatialGridPool pool = new SpatialGridPool(1, 2);
+        pool.attachPosition(new Entity(0, 0), 100, 100, 0);
+        pool.attachPosition(new Entity(1, 0), -100, 5, 0);
+        pool.attachComp(new Entity(2, 0), new SpatialGridPool.Point(0, 0, 0));
+
+        long[] actual = new long[5];
+        int found = pool.findNearest(0, 1, 0, null, actual);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(found).isEqualTo(3);
+        assertions.assertThat(new Entity(actual[0])).isEqualTo(new Entity(2, 0));
+        assertions.assertThat(new Entity(actual[1])).isEqualTo(new Entity(1, 0));
+        assertions.assertThat(new Entity(actual[2])).isEqualTo(new Entity(0, 0));
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            swap(first, second):
+             entities are in different cells
+             => entities exchange positions and are found by queries at new positions
+            """)
+    @Test
+    public void swap1() {
+        SpatialGridPool pool = new SpatialGridPool(4, 2);
+        Entity a = new Entity(0, 0);
+        Entity b = new Entity(1, 0);
+        pool.attachPosition(a, 5, 5, 0);
+        pool.attachPosition(b, 105, 105, 0);
+
+        pool.swap(a, b);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.getX(a)).isEqualTo(105);
+        assertions.assertThat(pool.getX(b)).isEqualTo(5);
+        assertions.assertThat(pool.selectInRadius(105, 105, 0, 1, new Bits()).get(a.index())).isTrue();
+        assertions.assertThat(pool.selectInRadius(5, 5, 0, 1, new Bits()).get(b.index())).isTrue();
+        assertions.assertThat(pool.selectInRadius(5, 5, 0, 1, new Bits()).cardinality()).isOne();
+        pool.detachComp(a);
+        assertions.assertThat(pool.selectInRadius(105, 105, 0, 1, new Bits()).isEmpty()).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            setPosition(entity, x, y, z):
+             entity visits many different cells
+             => emptied cells are reused, queries find entity at last position only
+            """)
+    @Test
+    public void setPosition1() {
+        SpatialGridPool pool = new SpatialGridPool(1, 3);
+        Entity entity = new Entity(0, 0);
+        pool.attachPosition(entity, 0, 0, 0);
+
+        for(int i = 1; i <= 10000; ++i) pool.setPosition(entity, i * 1.5f, i * 0.5f, -i);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.allocatedCellsNumber()).isLessThanOrEqualTo(2);
+        assertions.assertThat(pool.selectInBox(-1e6f, -1e6f, -1e6f, 1e6f, 1e6f, 1e6f, new Bits()).cardinality()).isOne();
+        assertions.assertThat(pool.selectInRadius(15000, 5000, -10000, 0.1f, new Bits()).get(entity.index())).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachComp(entity, comp):
+             comp is null or isn't Point
+             => throw IllegalArgumentException, pool doesn't change
+            """)
+    @Test
+    public void attachComp1() {
+        SpatialGridPool pool = new SpatialGridPool(4, 2);
+        Entity entity = new Entity(0, 0);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThatIllegalArgumentException().isThrownBy(() -> pool.attachComp(entity, null));
+        assertions.assertThatIllegalArgumentException().isThrownBy(() -> pool.attachComp(entity, 1f));
+        assertions.assertThat(pool.hasComp(entity)).isFalse();
+        assertions.assertThat(pool.size()).isZero();
+        assertions.assertThat(pool.selectInRadius(0, 0, 0, 100, new Bits()).isEmpty()).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            SpatialGridPool(cellSize, dimensions):
+             dimensions is 4
+             => throw IllegalArgumentException
+            """)
+    @Test
+    public void spatialGridPool1() {
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> new SpatialGridPool(1, 4));
+    }
+
+    private SpatialGridPool createPool(int dimensions) {
+        SpatialGridPool pool = new SpatialGridPool(4, dimensions);
+        Random random = new Random(42);
+        for(int i = 0; i < 1000; ++i) {
+            pool.attachPosition(new Entity(i, 0),
+                    random.nextFloat() * 50,
+                    random.nextFloat() * 50,
+                    dimensions == 3 ? random.nextFloat() * 50 : 0);
+        }
+        for(int i = 0; i < 1000; i += 5) {
+            pool.setPosition(new Entity(i, 0),
+                    random.nextFloat() * 50,
+                    random.nextFloat() * 50,
+                    dimensions == 3 ? random.nextFloat() * 50 : 0);
+        }
+        for(int i = 0; i < 1000; i += 7) pool.detachComp(new Entity(i, 0));
+        return pool;
+    }
+
+    private double distanceSquare(SpatialGridPool pool, Entity entity, float x, float y, float z) {
+        float dx = pool.getX(entity) - x;
+        float dy = pool.getY(entity) - y;
+        float dz = pool.getZ(entity) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
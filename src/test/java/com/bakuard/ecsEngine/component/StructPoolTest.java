@@ -0,0 +1,142 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StructPoolTest {
+
+    private static final StructLayout TRANSFORM = StructLayout.builder()
+            .addFloatField("x")
+            .addFloatField("y")
+            .addDoubleField("rotation")
+            .addIntField("flags")
+            .build();
+
+    @DisplayName("""
+            attachStruct(entity):
+             entity hasn't such comp
+             => all fields of comp equal zero
+            """)
+    @Test
+    public void attachStruct1() {
+        StructPool pool = new StructPool(TRANSFORM);
+        Entity entity = new Entity(5, 0);
+
+        int denseIndex = pool.attachStruct(entity);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.getFloat(denseIndex, TRANSFORM.getFieldIndex("x"))).isZero();
+        assertions.assertThat(pool.getFloat(denseIndex, TRANSFORM.getFieldIndex("y"))).isZero();
+        assertions.assertThat(pool.getDouble(denseIndex, TRANSFORM.getFieldIndex("rotation"))).isZero();
+        assertions.assertThat(pool.getInt(denseIndex, TRANSFORM.getFieldIndex("flags"))).isZero();
+        assertions.assertThat(pool.hasComp(entity)).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            cursor:
+             several entities have comps,
+             one of entities was detached
+             => fields of other comps don't change
+            """)
+    @Test
+    public void cursor1() {
+        StructPool pool = new StructPool(TRANSFORM);
+        int x = TRANSFORM.getFieldIndex("x");
+        int rotation = TRANSFORM.getFieldIndex("rotation");
+        Entity entityA = new Entity(0, 0);
+        Entity entityB = new Entity(10, 0);
+        Entity entityC = new Entity(100, 0);
+        StructPool.Cursor cursor = pool.createCursor();
+        pool.attachStruct(entityA);
+        pool.attachStruct(entityB);
+        pool.attachStruct(entityC);
+        cursor.moveTo(entityA).setFloat(x, 1f).setDouble(rotation, 0.5);
+        cursor.moveTo(entityB).setFloat(x, 2f).setDouble(rotation, 1.5);
+        cursor.moveTo(entityC).setFloat(x, 3f).setDouble(rotation, 2.5);
+
+        pool.detachComp(entityA);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(pool.hasComp(entityA)).isFalse();
+        assertions.assertThat(cursor.moveTo(entityB).getFloat(x)).isEqualTo(2f);
+        assertions.assertThat(cursor.moveTo(entityB).getDouble(rotation)).isEqualTo(1.5);
+        assertions.assertThat(cursor.moveTo(entityC).getFloat(x)).isEqualTo(3f);
+        assertions.assertThat(cursor.moveTo(entityC).getDouble(rotation)).isEqualTo(2.5);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            cursor:
+             try to read field with another type
+             => throw IllegalArgumentException
+            """)
+    @Test
+    public void cursor2() {
+        StructPool pool = new StructPool(TRANSFORM);
+        Entity entity = new Entity(0, 0);
+        pool.attachStruct(entity);
+        StructPool.Cursor cursor = pool.createCursor().moveTo(entity);
+
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> cursor.getInt(TRANSFORM.getFieldIndex("x")));
+    }
+
+    @DisplayName("""
+            getFloat(denseIndex, fieldIndex):
+             denseIndex >= size
+             => throw IndexOutOfBoundsException
+            """)
+    @Test
+    public void getFloat1() {
+        StructPool pool = new StructPool(TRANSFORM);
+        pool.attachStruct(new Entity(0, 0));
+        pool.attachStruct(new Entity(1, 0));
+        pool.detachComp(new Entity(1, 0));
+
+        Assertions.assertThatIndexOutOfBoundsException()
+                .isThrownBy(() -> pool.getFloat(1, TRANSFORM.getFieldIndex("x")));
+    }
+
+    @DisplayName("""
+            getFloatField(fieldIndex), getIntField(fieldIndex):
+             pool grows after fields were created
+             => fields read and write values of all comps
+            """)
+    @Test
+    public void getFloatField1() {
+        StructPool pool = new StructPool(TRANSFORM);
+        StructPool.FloatField x = pool.getFloatField(TRANSFORM.getFieldIndex("x"));
+        StructPool.IntField flags = pool.getIntField(TRANSFORM.getFieldIndex("flags"));
+
+        for(int i = 0; i < 100; i++) {
+            int denseIndex = pool.attachStruct(new Entity(i, 0));
+            x.set(denseIndex, i * 0.5f);
+            flags.set(denseIndex, i);
+        }
+
+        SoftAssertions assertions = new SoftAssertions();
+        for(int i = 0; i < pool.size(); i++) {
+            assertions.assertThat(x.get(i)).isEqualTo(i * 0.5f);
+            assertions.assertThat(flags.get(i)).isEqualTo(i);
+        }
+        assertions.assertThatIndexOutOfBoundsException().isThrownBy(() -> x.get(pool.size()));
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            getIntField(fieldIndex):
+             field has another type
+             => throw IllegalArgumentException
+            """)
+    @Test
+    public void getIntField1() {
+        StructPool pool = new StructPool(TRANSFORM);
+
+        Assertions.assertThatIllegalArgumentException()
+                .isThrownBy(() -> pool.getIntField(TRANSFORM.getFieldIndex("x")));
+    }
+}
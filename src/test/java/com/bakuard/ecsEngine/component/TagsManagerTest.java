@@ -222,6 +222,38 @@ class TagsManagerTest {
         assertions.assertAll();
     }
 
+    @DisplayName("""
+            detachAllTags(entity):
+             entity has unique tags,
+             one of unique tags was moved from entity to other entity,
+             other entities have the same ordinary tags
+             => detach all ordinary and unique tags of entity only
+            """)
+    @Test
+    public void detachAllTags3() {
+        EntityManager entityManager = new EntityManager();
+        TagsManager tagsManager = new TagsManager(entityManager);
+        Entity entity = entityManager.create();
+        Entity other = entityManager.create();
+        tagsManager.attachTags(entity, "A", "B", "C");
+        tagsManager.attachTags(other, "B", "C");
+        tagsManager.attachUniqueTag(entity, "player");
+        tagsManager.attachUniqueTag(entity, "camera");
+        tagsManager.attachUniqueTag(entity, "target");
+        tagsManager.attachUniqueTag(other, "target");
+
+        tagsManager.detachAllTags(entity);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(tagsManager.hasNoneOfTags(entity, "A", "B", "C")).isTrue();
+        assertions.assertThat(tagsManager.hasAllTags(other, "B", "C")).isTrue();
+        assertions.assertThat(tagsManager.getEntityByUniqueTag("player")).isNull();
+        assertions.assertThat(tagsManager.getEntityByUniqueTag("camera")).isNull();
+        assertions.assertThat(tagsManager.getEntityByUniqueTag("target")).isEqualTo(other);
+        assertions.assertThat(tagsManager.getTagCardinality("B")).isOne();
+        assertions.assertAll();
+    }
+
     @DisplayName("""
             replaceAllTags(entity, tags):
              entity is alive,
@@ -373,6 +405,28 @@ class TagsManagerTest {
         Assertions.assertThat(actual).isTrue();
     }
 
+    @DisplayName("""
+            haveEqualTags(firstEntity, secondEntity):
+             entities have the same tags attached in different order,
+             some tags were detached and attached again
+             => return true
+            """)
+    @Test
+    public void haveEqualTags6() {
+        EntityManager entityManager = new EntityManager();
+        TagsManager tagsManager = new TagsManager(entityManager);
+        Entity firstEntity = entityManager.create();
+        Entity secondEntity = entityManager.create();
+        tagsManager.attachTags(firstEntity, "A", "B", "C", "D");
+        tagsManager.attachTags(secondEntity, "D", "C", "B", "A");
+        tagsManager.detachTags(firstEntity, "B", "A");
+        tagsManager.attachTags(firstEntity, "A", "B");
+
+        boolean actual = tagsManager.haveEqualTags(firstEntity, secondEntity);
+
+        Assertions.assertThat(actual).isTrue();
+    }
+
     @DisplayName("""
             excludeEntityIndexesWithout(entityIndexes, tagNames):
              tagsManager contains all tags in tagNames,
@@ -516,4 +570,99 @@ class TagsManagerTest {
 
         Assertions.assertThat(actual).isEqualTo(Bits.filled(100));
     }
-}
\ No newline at end of file
+
+    @DisplayName("""
+            trim():
+             some tags were detached from all entities
+             => remaining tags are preserved, detached tags are absent
+            """)
+    @Test
+    public void trim1() {
+        EntityManager entityManager = new EntityManager();
+        TagsManager tagsManager = new TagsManager(entityManager);
+        Entity entityA = entityManager.create();
+        Entity entityB = null;
+        for(int i = 0; i < 1000; ++i) entityB = entityManager.create();
+        tagsManager.attachTags(entityA, "A", "B");
+        tagsManager.attachTags(entityB, "A", "C");
+        tagsManager.detachTags(entityB, "A", "C");
+
+        tagsManager.trim();
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(tagsManager.hasAllTags(entityA, "A", "B")).isTrue();
+        assertions.assertThat(tagsManager.hasTag(entityB, "A")).isFalse();
+        assertions.assertThat(tagsManager.hasTag(entityB, "C")).isFalse();
+        Bits withoutC = Bits.filled(10);
+        tagsManager.excludeEntityIndexesWithout(withoutC, DynamicArray.of("C"));
+        assertions.assertThat(withoutC.isEmpty()).isTrue();
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            getTagId(tag):
+             tags are requested several times
+             => each tag gets dense id, repeated calls return the same id, findTagId(tag) is consistent
+            """)
+    @Test
+    public void getTagId1() {
+        TagsManager tagsManager = new TagsManager(new EntityManager());
+
+        int idA = tagsManager.getTagId("A");
+        int idB = tagsManager.getTagId("B");
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(idA).isZero();
+        assertions.assertThat(idB).isOne();
+        assertions.assertThat(tagsManager.getTagId("A")).isEqualTo(idA);
+        assertions.assertThat(tagsManager.findTagId("B")).isEqualTo(idB);
+        assertions.assertThat(tagsManager.findTagId("C")).isEqualTo(-1);
+        assertions.assertThat(tagsManager.getTagName(idB)).isEqualTo("B");
+        assertions.assertThat(tagsManager.getTagsNumber()).isEqualTo(2);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            attachTag(entity, tagId), detachTag(entity, tagId), hasTag(entity, tagId):
+             tags are attached and detached by id and by name interchangeably
+             => both overloads observe the same state
+            """)
+    @Test
+    public void attachTagById1() {
+        EntityManager entityManager = new EntityManager();
+        TagsManager tagsManager = new TagsManager(entityManager);
+        Entity entityA = entityManager.create();
+        Entity entityB = entityManager.create();
+        int idA = tagsManager.getTagId("A");
+        int idB = tagsManager.getTagId("B");
+
+        tagsManager.attachTag(entityA, idA);
+        tagsManager.attachTag(entityA, "B");
+        tagsManager.attachTag(entityB, idB);
+        tagsManager.detachTag(entityA, idB);
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(tagsManager.hasTag(entityA, "A")).isTrue();
+        assertions.assertThat(tagsManager.hasTag(entityA, idB)).isFalse();
+        assertions.assertThat(tagsManager.hasTag(entityB, "B")).isTrue();
+        assertions.assertThat(tagsManager.hasTag(entityB, idA)).isFalse();
+        assertions.assertThat(tagsManager.getTagCardinality(idB)).isOne();
+        assertions.assertThat(tagsManager.getTagMask(idA)).isSameAs(tagsManager.getTagMask("A"));
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            hasTag(entity, tagId):
+             tagId wasn't issued by this manager
+             => throw IndexOutOfBoundsException
+            """)
+    @Test
+    public void hasTagById1() {
+        EntityManager entityManager = new EntityManager();
+        TagsManager tagsManager = new TagsManager(entityManager);
+        Entity entity = entityManager.create();
+        tagsManager.getTagId("A");
+
+        Assertions.assertThatIndexOutOfBoundsException().isThrownBy(() -> tagsManager.hasTag(entity, 1));
+    }
+}
@@ -0,0 +1,99 @@
+package com.bakuard.ecsEngine.component;
+
+import com.bakuard.ecsEngine.entity.Entity;
+import com.bakuard.ecsEngine.entity.EntityManager;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ViewTest {
+
+    public record Position(int value) {}
+    public record Velocity(int value) {}
+    public record Mass(int value) {}
+    @Marker
+    public record Frozen() {}
+
+    @DisplayName("""
+            View3.forEach(consumer):
+             only some entities have all comps
+             => consumer gets only these entities with their comps
+            """)
+    @Test
+    public void view3() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        List<Entity> expected = new ArrayList<>();
+        for(int i = 0; i < 30; ++i) {
+            Entity entity = entityManager.create();
+            compsManager.attachComp(entity, new Position(i));
+            if(i % 2 == 0) compsManager.attachComp(entity, new Velocity(i));
+            if(i % 3 == 0) compsManager.attachComp(entity, new Mass(i));
+            if(i % 6 == 0) expected.add(entity);
+        }
+        View3<Position, Velocity, Mass> view = compsManager.createView(Position.class, Velocity.class, Mass.class);
+
+        List<Entity> actual = new ArrayList<>();
+        SoftAssertions assertions = new SoftAssertions();
+        view.forEach((entity, position, velocity, mass) -> {
+            actual.add(entity);
+            assertions.assertThat(position.value()).isEqualTo(entity.index());
+            assertions.assertThat(velocity.value()).isEqualTo(entity.index());
+            assertions.assertThat(mass.value()).isEqualTo(entity.index());
+        });
+        assertions.assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+        assertions.assertThat(view.estimateSize()).isEqualTo(10);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            View2.forEach(consumer):
+             one of pools is MarkerPool,
+             consumer detaches comp of current entity
+             => consumer gets each matching entity exactly once
+            """)
+    @Test
+    public void view2() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        for(int i = 0; i < 10; ++i) {
+            Entity entity = entityManager.create();
+            compsManager.attachComp(entity, new Position(i));
+            if(i < 5) compsManager.attachComp(entity, new Frozen());
+        }
+        View2<Frozen, Position> view = compsManager.createView(Frozen.class, Position.class);
+
+        List<Integer> actual = new ArrayList<>();
+        view.forEach((entity, frozen, position) -> {
+            actual.add(position.value());
+            compsManager.detachComp(entity, Position.class);
+        });
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).containsExactlyInAnyOrder(0, 1, 2, 3, 4);
+        assertions.assertThat(compsManager.getCompPool(Position.class).size()).isEqualTo(5);
+        assertions.assertAll();
+    }
+
+    @DisplayName("""
+            View2.forEach(consumer):
+             pool of one of comp types doesn't exist
+             => consumer isn't called
+            """)
+    @Test
+    public void view2Empty() {
+        EntityManager entityManager = new EntityManager();
+        CompsManager compsManager = new CompsManager(entityManager);
+        compsManager.attachComp(entityManager.create(), new Position(0));
+
+        List<Entity> actual = new ArrayList<>();
+        compsManager.createView(Position.class, Mass.class).forEach((entity, position, mass) -> actual.add(entity));
+
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(actual).isEmpty();
+        assertions.assertAll();
+    }
+}
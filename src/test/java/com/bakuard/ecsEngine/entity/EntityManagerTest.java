@@ -1,5 +1,6 @@
 package com.bakuard.ecsEngine.entity;
 
+import com.bakuard.collections.Bits;
 import com.bakuard.collections.DynamicArray;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.SoftAssertions;
@@ -182,6 +183,30 @@ class EntityManagerTest {
         Assertions.assertThat(actual).isFalse();
     }
 
+    @DisplayName("""
+            copyAliveEntitiesMaskTo(result):
+             result is reused and contains stale bits
+             => result is equal to createAliveEntitiesMask() by set bits
+            """)
+    @Test
+    void copyAliveEntitiesMaskTo1() {
+        EntityManager manager = new EntityManager();
+        Entity[] entities = new Entity[20];
+        for(int i = 0; i < entities.length; ++i) entities[i] = manager.create();
+        for(int i = 0; i < entities.length; i += 3) manager.remove(entities[i]);
+        Bits result = Bits.filled(300);
+
+        manager.copyAliveEntitiesMaskTo(result);
+
+        Bits expected = manager.createAliveEntitiesMask();
+        SoftAssertions assertions = new SoftAssertions();
+        assertions.assertThat(result.cardinality()).isEqualTo(expected.cardinality());
+        for(int i = expected.nextSetBit(0); i != -1; i = expected.nextSetBit(i + 1)) {
+            assertions.assertThat(result.get(i)).isTrue();
+        }
+        assertions.assertAll();
+    }
+
     @DisplayName("snapshot():")
     @ParameterizedTest(name = """
             note: {2},
@@ -74,4 +74,19 @@ class EntityTest {
 
         Assertions.assertThat(actual).isEqualTo(origin);
     }
-}
\ No newline at end of file
+
+    @DisplayName("""
+            indexOf(entityAsLong), generationOf(entityAsLong):
+             entityAsLong = entity.asLong()
+             => return entity.index() and entity.generation()
+            """)
+    @Test
+    void indexOfAndGenerationOf1() {
+        Entity entity = new Entity(123456, 789);
+
+        long entityAsLong = entity.asLong();
+
+        Assertions.assertThat(Entity.indexOf(entityAsLong)).isEqualTo(123456);
+        Assertions.assertThat(Entity.generationOf(entityAsLong)).isEqualTo(789);
+    }
+}